@@ -0,0 +1,91 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonar.java.bytecode.loader.SquidClassLoader;
+import org.sonar.java.resolve.BytecodeCompleter;
+import org.sonar.java.resolve.JavaSymbol;
+import org.sonar.java.resolve.ParametrizedTypeCache;
+import org.sonar.java.resolve.Symbols;
+
+/**
+ * Completion from bytecode of classes of the JDK which are used by most of the files, with their members.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MINUTES)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BytecodeCompleterBenchmark {
+
+  private static final String[] CLASSES = {
+    "java.lang.String",
+    "java.lang.StringBuilder",
+    "java.lang.Integer",
+    "java.lang.Class",
+    "java.lang.Thread",
+    "java.util.ArrayList",
+    "java.util.HashMap",
+    "java.util.Collections",
+    "java.util.Arrays",
+    "java.util.stream.Collectors",
+    "java.io.File",
+    "java.io.InputStream",
+  };
+
+  private SquidClassLoader classLoader;
+
+  @Setup
+  public void setUp() {
+    classLoader = Corpus.classLoader();
+  }
+
+  @TearDown
+  public void tearDown() {
+    classLoader.close();
+  }
+
+  @Benchmark
+  public void complete(Blackhole blackhole) {
+    BytecodeCompleter bytecodeCompleter = new BytecodeCompleter(classLoader, new ParametrizedTypeCache());
+    blackhole.consume(new Symbols(bytecodeCompleter));
+    for (String className : CLASSES) {
+      JavaSymbol symbol = bytecodeCompleter.loadClass(className);
+      if (symbol.isTypeSymbol()) {
+        blackhole.consume(((JavaSymbol.TypeJavaSymbol) symbol).memberSymbols());
+      }
+    }
+  }
+
+}
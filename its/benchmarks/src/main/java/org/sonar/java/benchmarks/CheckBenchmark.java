@@ -0,0 +1,117 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.benchmarks;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonar.java.SonarComponents;
+import org.sonar.java.bytecode.loader.SquidClassLoader;
+import org.sonar.java.model.JavaVersionImpl;
+import org.sonar.java.model.VisitorsBridgeForTests.TestJavaFileScannerContext;
+import org.sonar.java.resolve.SemanticModel;
+import org.sonar.plugins.java.api.JavaFileScanner;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+
+/**
+ * Scan of all the files of the corpus by a single check, with default values for its parameters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MINUTES)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CheckBenchmark {
+
+  @Param({"commons-beanutils", "jdk6/java/util"})
+  public String project;
+
+  @Param({
+    "org.sonar.java.checks.CognitiveComplexityMethodCheck",
+    "org.sonar.java.checks.DeadStoreCheck",
+    "org.sonar.java.checks.LoopExecutingAtMostOnceCheck",
+    "org.sonar.java.checks.unused.UnusedPrivateMethodCheck"
+  })
+  public String check;
+
+  private SquidClassLoader classLoader;
+  private List<Corpus.AnalyzedFile> files;
+  private JavaFileScanner scanner;
+
+  @Setup
+  public void setUp() throws ReflectiveOperationException {
+    classLoader = Corpus.classLoader();
+    files = Corpus.load(project).analyze(classLoader);
+    scanner = (JavaFileScanner) Class.forName(check).getConstructor().newInstance();
+  }
+
+  @TearDown
+  public void tearDown() {
+    classLoader.close();
+  }
+
+  @Benchmark
+  public void scan(Blackhole blackhole) {
+    for (Corpus.AnalyzedFile file : files) {
+      BenchmarkContext context = new BenchmarkContext(file.tree, file.file, file.semanticModel, file.content);
+      scanner.scanFile(context);
+      blackhole.consume(context.getIssues().size());
+    }
+  }
+
+  /**
+   * Collects issues, and gives access to the content of the file without {@link SonarComponents}.
+   */
+  private static class BenchmarkContext extends TestJavaFileScannerContext {
+
+    private final String content;
+
+    BenchmarkContext(CompilationUnitTree tree, File file, SemanticModel semanticModel, String content) {
+      super(tree, file, semanticModel, null, new JavaVersionImpl(), true);
+      this.content = content;
+    }
+
+    @Override
+    public String getFileContent() {
+      return content;
+    }
+
+    @Override
+    public List<String> getFileLines() {
+      return Arrays.asList(content.split("\\r\\n|\\n|\\r", -1));
+    }
+  }
+
+}
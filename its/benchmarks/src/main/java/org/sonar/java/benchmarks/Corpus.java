@@ -0,0 +1,138 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.benchmarks;
+
+import com.sonar.sslr.api.typed.ActionParser;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.sonar.java.ast.parser.JavaParser;
+import org.sonar.java.bytecode.loader.SquidClassLoader;
+import org.sonar.java.resolve.SemanticModel;
+import org.sonar.plugins.java.api.tree.BaseTreeVisitor;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+import org.sonar.plugins.java.api.tree.MethodTree;
+import org.sonar.plugins.java.api.tree.Tree;
+
+/**
+ * Fixed set of java files taken from the projects of the ruling (its/sources), in a stable order. The location of the
+ * projects can be changed with the "sonar.java.benchmarks.sources" system property.
+ */
+class Corpus {
+
+  static final String SOURCES_PROPERTY = "sonar.java.benchmarks.sources";
+
+  final List<File> files;
+  final List<String> contents;
+
+  private Corpus(List<File> files, List<String> contents) {
+    this.files = files;
+    this.contents = contents;
+  }
+
+  /**
+   * @param project directory of the project, relative to its/sources
+   */
+  static Corpus load(String project) {
+    File directory = new File(System.getProperty(SOURCES_PROPERTY, "../sources"), project);
+    if (!directory.isDirectory()) {
+      throw new IllegalStateException("Corpus not found: " + directory.getAbsolutePath() + ", run 'git submodule update --init its/sources'");
+    }
+    List<File> files;
+    try (Stream<Path> paths = Files.walk(directory.toPath())) {
+      files = paths.filter(path -> path.toString().endsWith(".java")).sorted().map(Path::toFile).collect(Collectors.toList());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    List<String> contents = new ArrayList<>(files.size());
+    for (File file : files) {
+      try {
+        contents.add(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+    return new Corpus(files, contents);
+  }
+
+  static SquidClassLoader classLoader() {
+    return new SquidClassLoader(Collections.emptyList());
+  }
+
+  List<CompilationUnitTree> parse() {
+    ActionParser<Tree> parser = JavaParser.createParser();
+    return contents.stream()
+      .map(content -> (CompilationUnitTree) parser.parse(content))
+      .collect(Collectors.toList());
+  }
+
+  /**
+   * Files for which the semantic model can not be built are dropped, as the analyzer does.
+   */
+  List<AnalyzedFile> analyze(SquidClassLoader classLoader) {
+    List<CompilationUnitTree> trees = parse();
+    List<AnalyzedFile> analyzedFiles = new ArrayList<>(trees.size());
+    for (int i = 0; i < trees.size(); i++) {
+      CompilationUnitTree tree = trees.get(i);
+      try {
+        analyzedFiles.add(new AnalyzedFile(files.get(i), contents.get(i), tree, SemanticModel.createFor(tree, classLoader)));
+      } catch (RuntimeException e) {
+        // skipped, see javadoc
+      }
+    }
+    return analyzedFiles;
+  }
+
+  static class AnalyzedFile {
+    final File file;
+    final String content;
+    final CompilationUnitTree tree;
+    final SemanticModel semanticModel;
+
+    AnalyzedFile(File file, String content, CompilationUnitTree tree, SemanticModel semanticModel) {
+      this.file = file;
+      this.content = content;
+      this.tree = tree;
+      this.semanticModel = semanticModel;
+    }
+
+    List<MethodTree> methodsWithBody() {
+      List<MethodTree> methods = new ArrayList<>();
+      tree.accept(new BaseTreeVisitor() {
+        @Override
+        public void visitMethod(MethodTree tree) {
+          if (tree.block() != null) {
+            methods.add(tree);
+          }
+          super.visitMethod(tree);
+        }
+      });
+      return methods;
+    }
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonar.java.bytecode.loader.SquidClassLoader;
+import org.sonar.java.collections.PCollections;
+import org.sonar.java.collections.PMap;
+import org.sonar.plugins.java.api.semantic.Symbol;
+import org.sonar.plugins.java.api.tree.BaseTreeVisitor;
+import org.sonar.plugins.java.api.tree.MethodTree;
+import org.sonar.plugins.java.api.tree.VariableTree;
+
+/**
+ * Persistent maps used the way program states use them: for each method of the corpus, its variables are bound one
+ * after the other, every intermediate map being kept, and maps reaching the same bindings through different paths are
+ * compared. The end-to-end comparison of implementations is done with {@link SymbolicExecutionBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PersistentCollectionsBenchmark {
+
+  @Param({"commons-beanutils", "jdk6/java/util"})
+  public String project;
+
+  @Param({"AVL_TREE", "HAMT"})
+  public PCollections.Implementation implementation;
+
+  private SquidClassLoader classLoader;
+  private List<List<Symbol>> variablesOfMethods;
+  private List<PMap<Symbol, Integer>> forwardStates;
+  private List<PMap<Symbol, Integer>> backwardStates;
+
+  @Setup
+  public void setUp() {
+    classLoader = Corpus.classLoader();
+    variablesOfMethods = new ArrayList<>();
+    for (Corpus.AnalyzedFile file : Corpus.load(project).analyze(classLoader)) {
+      for (MethodTree method : file.methodsWithBody()) {
+        List<Symbol> variables = new ArrayList<>();
+        method.accept(new BaseTreeVisitor() {
+          @Override
+          public void visitVariable(VariableTree tree) {
+            variables.add(tree.symbol());
+            super.visitVariable(tree);
+          }
+        });
+        variablesOfMethods.add(variables);
+      }
+    }
+    forwardStates = new ArrayList<>();
+    backwardStates = new ArrayList<>();
+    for (List<Symbol> variables : variablesOfMethods) {
+      PMap<Symbol, Integer> forward = PCollections.emptyMap(implementation);
+      PMap<Symbol, Integer> backward = PCollections.emptyMap(implementation);
+      for (int i = 0; i < variables.size(); i++) {
+        forward = forward.put(variables.get(i), i);
+        int j = variables.size() - 1 - i;
+        backward = backward.put(variables.get(j), j);
+      }
+      forwardStates.add(forward);
+      backwardStates.add(backward);
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    classLoader.close();
+  }
+
+  @Benchmark
+  public void bindVariables(Blackhole blackhole) {
+    for (List<Symbol> variables : variablesOfMethods) {
+      PMap<Symbol, Integer> state = PCollections.emptyMap(implementation);
+      for (int i = 0; i < variables.size(); i++) {
+        state = state.put(variables.get(i), i);
+        blackhole.consume(state);
+      }
+    }
+  }
+
+  @Benchmark
+  public void rebindAndUnbindVariables(Blackhole blackhole) {
+    for (int m = 0; m < variablesOfMethods.size(); m++) {
+      PMap<Symbol, Integer> state = forwardStates.get(m);
+      for (Symbol variable : variablesOfMethods.get(m)) {
+        blackhole.consume(state.put(variable, -1));
+        blackhole.consume(state.remove(variable));
+      }
+    }
+  }
+
+  @Benchmark
+  public void lookupVariables(Blackhole blackhole) {
+    for (int m = 0; m < variablesOfMethods.size(); m++) {
+      PMap<Symbol, Integer> state = forwardStates.get(m);
+      for (Symbol variable : variablesOfMethods.get(m)) {
+        blackhole.consume(state.get(variable));
+      }
+    }
+  }
+
+  @Benchmark
+  public void compareStates(Blackhole blackhole) {
+    for (int m = 0; m < forwardStates.size(); m++) {
+      PMap<Symbol, Integer> forward = forwardStates.get(m);
+      blackhole.consume(forward.hashCode() == backwardStates.get(m).hashCode() && forward.equals(backwardStates.get(m)));
+    }
+  }
+
+}
@@ -0,0 +1,89 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.benchmarks;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonar.java.bytecode.loader.SquidClassLoader;
+import org.sonar.java.collections.PCollections;
+import org.sonar.java.model.DefaultJavaFileScannerContext;
+import org.sonar.java.model.JavaVersionImpl;
+import org.sonar.java.se.SymbolicExecutionOptions;
+import org.sonar.java.se.SymbolicExecutionVisitor;
+import org.sonar.java.se.xproc.BehaviorCache;
+
+/**
+ * Symbolic execution of all the methods of the corpus, with the mandatory symbolic execution checks, as done by the
+ * analyzer: behaviors of methods are shared inside a file, and computed from bytecode for the methods of the JDK.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MINUTES)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SymbolicExecutionBenchmark {
+
+  @Param({"commons-beanutils", "jdk6/java/util"})
+  public String project;
+
+  @Param({"AVL_TREE", "HAMT"})
+  public PCollections.Implementation implementation;
+
+  private SquidClassLoader classLoader;
+  private List<Corpus.AnalyzedFile> files;
+
+  @Setup
+  public void setUp() {
+    classLoader = Corpus.classLoader();
+    files = Corpus.load(project).analyze(classLoader);
+  }
+
+  @TearDown
+  public void tearDown() {
+    classLoader.close();
+  }
+
+  @Benchmark
+  public void execute(Blackhole blackhole) {
+    for (Corpus.AnalyzedFile file : files) {
+      BehaviorCache behaviorCache = new BehaviorCache(classLoader);
+      SymbolicExecutionVisitor visitor = new SymbolicExecutionVisitor(Collections.emptyList(), behaviorCache,
+        SymbolicExecutionOptions.defaults().withCollections(implementation));
+      visitor.scanFile(new DefaultJavaFileScannerContext(file.tree, file.file, file.semanticModel, null, new JavaVersionImpl(), true));
+      blackhole.consume(behaviorCache.behaviors.size());
+    }
+  }
+
+}
@@ -24,6 +24,7 @@ import com.google.common.collect.Lists;
 
 import org.sonar.check.Rule;
 import org.sonar.java.cfg.CFG;
+import org.sonar.java.cfg.CFGProvider;
 import org.sonar.java.cfg.LiveVariables;
 import org.sonar.java.cfg.VariableReadExtractor;
 import org.sonar.java.model.ExpressionUtils;
@@ -76,8 +77,9 @@ public class DeadStoreCheck extends IssuableSubscriptionVisitor {
     }
 
     Symbol.MethodSymbol methodSymbol = methodTree.symbol();
-    CFG cfg = CFG.build(methodTree);
-    LiveVariables liveVariables = LiveVariables.analyze(cfg);
+    CFGProvider cfgProvider = CFGProvider.of(context);
+    CFG cfg = cfgProvider.cfg(methodTree);
+    LiveVariables liveVariables = cfgProvider.liveVariables(methodTree);
     // Liveness analysis provides information only for block boundaries, so we should do analysis between elements within blocks
     for (CFG.Block block : cfg.blocks()) {
       checkElements(block, liveVariables.getOut(block), methodSymbol);
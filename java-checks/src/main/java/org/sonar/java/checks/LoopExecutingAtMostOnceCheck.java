@@ -24,6 +24,7 @@ import java.util.Arrays;
 import java.util.List;
 import org.sonar.check.Rule;
 import org.sonar.java.cfg.CFG;
+import org.sonar.java.cfg.CFGProvider;
 import org.sonar.java.matcher.MethodMatcher;
 import org.sonar.java.matcher.MethodMatcherCollection;
 import org.sonar.java.matcher.TypeCriteria;
@@ -143,7 +144,7 @@ public class LoopExecutingAtMostOnceCheck extends IssuableSubscriptionVisitor {
     return false;
   }
 
-  private static boolean executeUnconditionnally(Tree loopTree) {
+  private boolean executeUnconditionnally(Tree loopTree) {
     CFG cfg = getCFG(loopTree);
     CFG.Block loopBlock = getLoopBlock(cfg, loopTree);
     // we cannot find a path in the CFG that goes twice through this instruction.
@@ -220,14 +221,14 @@ public class LoopExecutingAtMostOnceCheck extends IssuableSubscriptionVisitor {
     }
   }
 
-  private static CFG getCFG(Tree loop) {
+  private CFG getCFG(Tree loop) {
     Tree currentTree = loop;
     do {
       currentTree = currentTree.parent();
     } while (!currentTree.is(Tree.Kind.METHOD, Tree.Kind.CONSTRUCTOR, Tree.Kind.LAMBDA_EXPRESSION, Tree.Kind.INITIALIZER, Tree.Kind.STATIC_INITIALIZER));
 
     if (currentTree.is(Tree.Kind.METHOD, Tree.Kind.CONSTRUCTOR)) {
-      return CFG.build((MethodTree) currentTree);
+      return CFGProvider.of(context).cfg((MethodTree) currentTree);
     }
     if (currentTree.is(Tree.Kind.LAMBDA_EXPRESSION)) {
       currentTree = ((LambdaExpressionTree) currentTree).body();
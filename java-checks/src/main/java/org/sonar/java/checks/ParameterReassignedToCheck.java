@@ -22,6 +22,7 @@ package org.sonar.java.checks;
 import com.google.common.collect.Sets;
 import org.sonar.check.Rule;
 import org.sonar.java.cfg.CFG;
+import org.sonar.java.cfg.CFGProvider;
 import org.sonar.java.cfg.LiveVariables;
 import org.sonar.plugins.java.api.JavaFileScanner;
 import org.sonar.plugins.java.api.JavaFileScannerContext;
@@ -62,9 +63,9 @@ public class ParameterReassignedToCheck extends BaseTreeVisitor implements JavaF
     if(block == null) {
       return;
     }
-    CFG cfg = CFG.build(tree);
-    LiveVariables analyze = LiveVariables.analyze(cfg);
-    Set<Symbol> live = analyze.getIn(cfg.entry());
+    CFGProvider cfgProvider = CFGProvider.of(context);
+    CFG cfg = cfgProvider.cfg(tree);
+    Set<Symbol> live = cfgProvider.liveVariables(tree).getIn(cfg.entry());
     for (VariableTree parameterTree : tree.parameters()) {
       if(!live.contains(parameterTree.symbol())) {
         variables.add(parameterTree.symbol());
@@ -22,7 +22,7 @@ package org.sonar.java.checks;
 import com.google.common.collect.ImmutableList;
 import org.sonar.check.Rule;
 import org.sonar.java.cfg.CFG;
-import org.sonar.java.cfg.LiveVariables;
+import org.sonar.java.cfg.CFGProvider;
 import org.sonar.plugins.java.api.IssuableSubscriptionVisitor;
 import org.sonar.plugins.java.api.semantic.Symbol;
 import org.sonar.plugins.java.api.semantic.Symbol.TypeSymbol;
@@ -84,10 +84,10 @@ public class PrivateFieldUsedLocallyCheck extends IssuableSubscriptionVisitor {
     }
   }
 
-  private static boolean isLiveInMethodEntry(Symbol privateFieldSymbol, MethodTree methodTree) {
-    CFG cfg = CFG.build(methodTree);
-    LiveVariables liveVariables = LiveVariables.analyzeWithFields(cfg);
-    return liveVariables.getIn(cfg.entry()).contains(privateFieldSymbol);
+  private boolean isLiveInMethodEntry(Symbol privateFieldSymbol, MethodTree methodTree) {
+    CFGProvider cfgProvider = CFGProvider.of(context);
+    CFG cfg = cfgProvider.cfg(methodTree);
+    return cfgProvider.liveVariablesWithFields(methodTree).getIn(cfg.entry()).contains(privateFieldSymbol);
   }
 
   private static boolean isPrivateField(Symbol memberSymbol) {
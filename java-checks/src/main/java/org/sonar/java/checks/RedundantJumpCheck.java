@@ -24,6 +24,7 @@ import java.util.List;
 import org.sonar.check.Rule;
 import org.sonar.java.cfg.CFG;
 import org.sonar.java.cfg.CFG.Block;
+import org.sonar.java.cfg.CFGProvider;
 import org.sonar.plugins.java.api.IssuableSubscriptionVisitor;
 import org.sonar.plugins.java.api.tree.MethodTree;
 import org.sonar.plugins.java.api.tree.ReturnStatementTree;
@@ -43,7 +44,7 @@ public class RedundantJumpCheck extends IssuableSubscriptionVisitor {
   public void visitNode(Tree tree) {
     MethodTree methodTree = (MethodTree) tree;
     if (methodTree.block() != null) {
-      CFG cfg = CFG.build(methodTree);
+      CFG cfg = CFGProvider.of(context).cfg(methodTree);
       cfg.blocks().forEach(this::checkBlock);
     }
   }
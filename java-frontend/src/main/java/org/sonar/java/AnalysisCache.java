@@ -0,0 +1,249 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java;
+
+import com.google.common.hash.Hashing;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+/**
+ * On-disk cache of the issues raised by checks on each file. An entry is only valid for the exact same content of the file,
+ * and all entries are dropped when the fingerprint of the analysis (active rules and their parameters, classpath, version
+ * of the analyzer) changes.
+ * Entries are written to a directory owned by the analyzer, created under the configured base directory and identified by
+ * a marker file: only files named after hashes are ever deleted from it.
+ */
+public class AnalysisCache {
+
+  private static final Logger LOG = Loggers.get(AnalysisCache.class);
+  private static final Gson GSON = new Gson();
+  static final String OWNED_DIRECTORY = "sonar-java-analysis-cache";
+  static final String MARKER_FILE = ".sonar-java-analysis-cache";
+  private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+  private static final Pattern ENTRY = Pattern.compile("[0-9a-f]{64}\\.json");
+
+  private final File cacheDirectory;
+  private final boolean usable;
+  @Nullable
+  private Recording recording;
+
+  /**
+   * @param analysisFingerprint as computed by {@link #fingerprint(List)}
+   */
+  public AnalysisCache(File baseDirectory, String analysisFingerprint) {
+    File ownedDirectory = new File(baseDirectory, OWNED_DIRECTORY);
+    this.cacheDirectory = new File(ownedDirectory, analysisFingerprint);
+    boolean owned = isOwned(ownedDirectory);
+    if (owned) {
+      deleteOtherFingerprints(ownedDirectory, cacheDirectory);
+    } else if (ownedDirectory.exists()) {
+      LOG.warn("Analysis cache directory is not used, as it has not been created by the analyzer: " + ownedDirectory.getAbsolutePath());
+    } else {
+      owned = createOwnedDirectory(ownedDirectory);
+    }
+    if (owned && !cacheDirectory.isDirectory() && !cacheDirectory.mkdirs()) {
+      LOG.warn("Unable to create analysis cache directory: " + cacheDirectory.getAbsolutePath());
+      owned = false;
+    }
+    this.usable = owned;
+  }
+
+  private static boolean isOwned(File ownedDirectory) {
+    return new File(ownedDirectory, MARKER_FILE).isFile();
+  }
+
+  private static boolean createOwnedDirectory(File ownedDirectory) {
+    try {
+      Files.createDirectories(ownedDirectory.toPath());
+      Files.createFile(new File(ownedDirectory, MARKER_FILE).toPath());
+      return true;
+    } catch (IOException e) {
+      LOG.warn("Unable to create analysis cache directory: " + ownedDirectory.getAbsolutePath(), e);
+      return false;
+    }
+  }
+
+  private static void deleteOtherFingerprints(File ownedDirectory, File cacheDirectory) {
+    File[] fingerprints = ownedDirectory.listFiles(file -> file.isDirectory() && HASH.matcher(file.getName()).matches());
+    if (fingerprints == null) {
+      return;
+    }
+    for (File fingerprint : fingerprints) {
+      if (!fingerprint.equals(cacheDirectory)) {
+        File[] entries = fingerprint.listFiles(file -> file.isFile() && ENTRY.matcher(file.getName()).matches());
+        if (entries != null) {
+          for (File entry : entries) {
+            entry.delete();
+          }
+        }
+        // not deleted if it contains files which have not been written by the analyzer
+        fingerprint.delete();
+      }
+    }
+  }
+
+  public static String fingerprint(List<String> parts) {
+    return hash(String.join("\n", parts));
+  }
+
+  private static String hash(String value) {
+    return Hashing.sha256().hashString(value, StandardCharsets.UTF_8).toString();
+  }
+
+  /**
+   * @return issues cached for the given content of the file, or null if there is no valid entry for it.
+   */
+  @CheckForNull
+  public List<CachedIssue> cachedIssues(File file, String content) {
+    File entryFile = entryFile(file);
+    if (!usable || !entryFile.isFile()) {
+      return null;
+    }
+    try (Reader reader = Files.newBufferedReader(entryFile.toPath(), StandardCharsets.UTF_8)) {
+      Entry entry = GSON.fromJson(reader, Entry.class);
+      if (entry == null || !hash(content).equals(entry.contentHash)) {
+        return null;
+      }
+      return entry.issues;
+    } catch (IOException | JsonParseException e) {
+      LOG.debug("Unable to read analysis cache entry for " + file.getAbsolutePath(), e);
+      return null;
+    }
+  }
+
+  public void startRecording(File file, String content) {
+    recording = new Recording(file, hash(content));
+  }
+
+  /**
+   * Issues raised on another file than the recorded one can not be replayed when only the recorded file is skipped: the
+   * recorded file is then not cached.
+   */
+  public void record(String ruleKey, AnalyzerMessage analyzerMessage) {
+    if (recording == null) {
+      return;
+    }
+    if (recording.file.equals(analyzerMessage.getFile())) {
+      recording.issues.add(CachedIssue.from(ruleKey, analyzerMessage));
+    } else {
+      recording.complete = false;
+    }
+  }
+
+  /**
+   * Stop recording issues of the current file, and store them only if the analysis of the file went fine.
+   */
+  public void stopRecording(boolean analysisSucceeded) {
+    Recording finished = recording;
+    recording = null;
+    if (finished == null || !analysisSucceeded || !finished.complete) {
+      return;
+    }
+    Entry entry = new Entry();
+    entry.contentHash = finished.contentHash;
+    entry.issues = finished.issues;
+    if (!usable) {
+      return;
+    }
+    try (Writer writer = Files.newBufferedWriter(entryFile(finished.file).toPath(), StandardCharsets.UTF_8)) {
+      GSON.toJson(entry, writer);
+    } catch (IOException e) {
+      LOG.debug("Unable to write analysis cache entry for " + finished.file.getAbsolutePath(), e);
+    }
+  }
+
+  private File entryFile(File file) {
+    return new File(cacheDirectory, hash(file.getAbsolutePath()) + ".json");
+  }
+
+  private static class Recording {
+    private final File file;
+    private final String contentHash;
+    private final List<CachedIssue> issues = new ArrayList<>();
+    private boolean complete = true;
+
+    Recording(File file, String contentHash) {
+      this.file = file;
+      this.contentHash = contentHash;
+    }
+  }
+
+  private static class Entry {
+    private String contentHash;
+    private List<CachedIssue> issues;
+  }
+
+  public static class CachedIssue {
+    private String ruleKey;
+    private String message;
+    private int cost;
+    @Nullable
+    private int[] location;
+    private List<List<CachedIssue>> flows;
+
+    private static CachedIssue from(@Nullable String ruleKey, AnalyzerMessage analyzerMessage) {
+      CachedIssue cachedIssue = new CachedIssue();
+      cachedIssue.ruleKey = ruleKey;
+      cachedIssue.message = analyzerMessage.getMessage();
+      Double cost = analyzerMessage.getCost();
+      cachedIssue.cost = cost == null ? 0 : cost.intValue();
+      AnalyzerMessage.TextSpan textSpan = analyzerMessage.primaryLocation();
+      if (textSpan != null) {
+        cachedIssue.location = new int[] {textSpan.startLine, textSpan.startCharacter, textSpan.endLine, textSpan.endCharacter};
+      }
+      cachedIssue.flows = analyzerMessage.flows.stream()
+        .map(flow -> flow.stream().map(location -> from(null, location)).collect(Collectors.toList()))
+        .collect(Collectors.toList());
+      return cachedIssue;
+    }
+
+    public String ruleKey() {
+      return ruleKey;
+    }
+
+    public AnalyzerMessage toAnalyzerMessage(File file) {
+      AnalyzerMessage.TextSpan textSpan = null;
+      if (location != null) {
+        textSpan = new AnalyzerMessage.TextSpan(location[0], location[1], location[2], location[3]);
+      }
+      AnalyzerMessage analyzerMessage = new AnalyzerMessage(null, file, textSpan, message, cost);
+      if (flows != null) {
+        for (List<CachedIssue> flow : flows) {
+          analyzerMessage.flows.add(flow.stream().map(location -> location.toAnalyzerMessage(file)).collect(Collectors.toList()));
+        }
+      }
+      return analyzerMessage;
+    }
+  }
+}
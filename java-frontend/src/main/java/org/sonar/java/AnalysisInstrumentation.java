@@ -0,0 +1,213 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import org.sonar.api.utils.AnnotationUtils;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.check.Rule;
+
+/**
+ * Collects wall time, CPU time and allocated bytes of the phases of the analysis, of each check and of each file.
+ * Parsing and semantic analysis can run on several threads: every measure is taken on the thread doing the work, and
+ * accumulated in thread-safe counters.
+ */
+public class AnalysisInstrumentation {
+
+  private static final Logger LOG = Loggers.get(AnalysisInstrumentation.class);
+  private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+  public enum Phase {
+    PARSING, SEMANTIC, SYMBOLIC_EXECUTION, CHECKS
+  }
+
+  private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+  private final boolean cpuTimeSupported;
+  private final boolean allocationSupported;
+  private final int slowestFilesCount;
+  private final Map<Phase, Measures> phases = new EnumMap<>(Phase.class);
+  private final Map<String, Measures> checks = new ConcurrentHashMap<>();
+  private final Map<String, Measures> files = new ConcurrentHashMap<>();
+  private final Map<Class<?>, String> checkKeys = new ConcurrentHashMap<>();
+
+  public AnalysisInstrumentation(int slowestFilesCount) {
+    this.slowestFilesCount = slowestFilesCount;
+    this.cpuTimeSupported = threadMXBean.isCurrentThreadCpuTimeSupported() && threadMXBean.isThreadCpuTimeEnabled();
+    this.allocationSupported = threadMXBean instanceof com.sun.management.ThreadMXBean
+      && ((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemorySupported()
+      && ((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemoryEnabled();
+    for (Phase phase : Phase.values()) {
+      phases.put(phase, new Measures());
+    }
+  }
+
+  /**
+   * @return counters of the current thread, to be given back to one of the record methods once the measured work is done.
+   */
+  public Sample start() {
+    return new Sample(System.nanoTime(), cpuTime(), allocatedBytes());
+  }
+
+  public void recordPhase(Phase phase, File file, Sample start) {
+    Sample end = start();
+    phases.get(phase).add(start, end);
+    fileMeasures(file).add(start, end);
+  }
+
+  /**
+   * Records the execution of a check on a file, under the key of its rule.
+   */
+  public void recordCheck(Object check, File file, Sample start) {
+    Sample end = start();
+    String key = checkKeys.computeIfAbsent(check.getClass(), AnalysisInstrumentation::checkKey);
+    checks.computeIfAbsent(key, k -> new Measures()).add(start, end);
+    phases.get(Phase.CHECKS).add(start, end);
+    fileMeasures(file).add(start, end);
+  }
+
+  private Measures fileMeasures(File file) {
+    return files.computeIfAbsent(file.getPath(), k -> new Measures());
+  }
+
+  private static String checkKey(Class<?> checkClass) {
+    Rule rule = AnnotationUtils.getAnnotation(checkClass, Rule.class);
+    return rule == null ? checkClass.getName() : rule.key();
+  }
+
+  private long cpuTime() {
+    return cpuTimeSupported ? threadMXBean.getCurrentThreadCpuTime() : 0L;
+  }
+
+  private long allocatedBytes() {
+    if (!allocationSupported) {
+      return 0L;
+    }
+    return ((com.sun.management.ThreadMXBean) threadMXBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  public void writeReport(File reportFile) {
+    File directory = reportFile.getParentFile();
+    if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+      LOG.warn("Unable to create directory of the analysis instrumentation report: " + directory.getAbsolutePath());
+      return;
+    }
+    try (Writer writer = Files.newBufferedWriter(reportFile.toPath(), StandardCharsets.UTF_8)) {
+      GSON.toJson(report(), writer);
+      LOG.info("Analysis instrumentation report written to " + reportFile.getAbsolutePath());
+    } catch (IOException e) {
+      LOG.warn("Unable to write analysis instrumentation report: " + reportFile.getAbsolutePath(), e);
+    }
+  }
+
+  Report report() {
+    Report report = new Report();
+    report.cpuTimeSupported = cpuTimeSupported;
+    report.allocationSupported = allocationSupported;
+    phases.forEach((phase, measures) -> report.phases.put(phase.name().toLowerCase(Locale.ENGLISH), measures.snapshot()));
+    checks.forEach((key, measures) -> report.checks.put(key, measures.snapshot()));
+    report.slowestFiles = files.entrySet().stream()
+      .map(entry -> new FileReport(entry.getKey(), entry.getValue().snapshot()))
+      .sorted(Comparator.comparingLong((FileReport fileReport) -> fileReport.wallTimeNanos).reversed())
+      .limit(slowestFilesCount)
+      .collect(Collectors.toList());
+    return report;
+  }
+
+  public static final class Sample {
+    private final long wallTime;
+    private final long cpuTime;
+    private final long allocatedBytes;
+
+    private Sample(long wallTime, long cpuTime, long allocatedBytes) {
+      this.wallTime = wallTime;
+      this.cpuTime = cpuTime;
+      this.allocatedBytes = allocatedBytes;
+    }
+  }
+
+  private static class Measures {
+    private long count;
+    private long wallTimeNanos;
+    private long cpuTimeNanos;
+    private long allocatedBytes;
+
+    synchronized void add(Sample start, Sample end) {
+      count++;
+      wallTimeNanos += end.wallTime - start.wallTime;
+      cpuTimeNanos += end.cpuTime - start.cpuTime;
+      allocatedBytes += end.allocatedBytes - start.allocatedBytes;
+    }
+
+    synchronized MeasuresReport snapshot() {
+      MeasuresReport report = new MeasuresReport();
+      report.count = count;
+      report.wallTimeNanos = wallTimeNanos;
+      report.cpuTimeNanos = cpuTimeNanos;
+      report.allocatedBytes = allocatedBytes;
+      return report;
+    }
+  }
+
+  static class Report {
+    boolean cpuTimeSupported;
+    boolean allocationSupported;
+    Map<String, MeasuresReport> phases = new LinkedHashMap<>();
+    Map<String, MeasuresReport> checks = new TreeMap<>();
+    List<FileReport> slowestFiles;
+  }
+
+  static class MeasuresReport {
+    long count;
+    long wallTimeNanos;
+    long cpuTimeNanos;
+    long allocatedBytes;
+  }
+
+  static class FileReport extends MeasuresReport {
+    String file;
+
+    FileReport(String file, MeasuresReport measures) {
+      this.file = file;
+      this.count = measures.count;
+      this.wallTimeNanos = measures.wallTimeNanos;
+      this.cpuTimeNanos = measures.cpuTimeNanos;
+      this.allocatedBytes = measures.allocatedBytes;
+    }
+  }
+
+}
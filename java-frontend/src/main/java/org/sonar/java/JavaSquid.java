@@ -49,6 +49,8 @@ public class JavaSquid {
 
   private final JavaAstScanner astScanner;
   private final JavaAstScanner astScannerForTests;
+  @Nullable
+  private final SonarComponents sonarComponents;
 
   public JavaSquid(JavaVersion javaVersion,
     @Nullable SonarComponents sonarComponents, @Nullable Measurer measurer,
@@ -60,6 +62,7 @@ public class JavaSquid {
                    @Nullable SonarComponents sonarComponents, @Nullable Measurer measurer,
                    JavaResourceLocator javaResourceLocator, @Nullable SonarJavaIssueFilter postAnalysisIssueFilter, JavaCheck... visitors) {
 
+    this.sonarComponents = sonarComponents;
     List<JavaCheck> commonVisitors = Lists.newArrayList(javaResourceLocator);
     if (postAnalysisIssueFilter != null) {
       commonVisitors.add(postAnalysisIssueFilter);
@@ -109,6 +112,10 @@ public class JavaSquid {
   public void scan(Collection<File> sourceFiles, Collection<File> testFiles) {
     scanSources(sourceFiles);
     scanTests(testFiles);
+    if (sonarComponents != null) {
+      sonarComponents.saveInstrumentationReport();
+      sonarComponents.reportSymbolicExecution();
+    }
   }
 
   private void scanSources(Collection<File> sourceFiles) {
@@ -21,22 +21,32 @@ package org.sonar.java;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import com.google.gson.Gson;
 import com.sonar.sslr.api.RecognitionException;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Scanner;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.sonar.api.SonarProduct;
 import org.sonar.api.batch.ScannerSide;
@@ -56,6 +66,12 @@ import org.sonar.api.measures.Metric;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
+import org.sonar.java.collections.PCollections;
+import org.sonar.java.se.SymbolicExecutionBudget;
+import org.sonar.java.se.SymbolicExecutionOptions;
+import org.sonar.java.se.SymbolicExecutionStatistics;
+import org.sonar.java.se.WorkList;
+import org.sonar.java.se.xproc.MethodBehaviorStore;
 import org.sonar.plugins.java.api.CheckRegistrar;
 import org.sonar.plugins.java.api.JavaCheck;
 import org.sonarsource.api.sonarlint.SonarLintSide;
@@ -72,6 +88,26 @@ public class SonarComponents {
   public static final Metric<String> FEEDBACK_METRIC = new Metric.Builder("sonarjava_feedback", "SonarJava feedback", Metric.ValueType.DATA).setHidden(true).create();
   public static final String COLLECT_ANALYSIS_ERRORS_KEY = "sonar.java.collectAnalysisErrors";
   public static final String FAIL_ON_EXCEPTION_KEY = "sonar.java.failOnException";
+  public static final String ANALYSIS_THREADS_KEY = "sonar.java.analysis.threads";
+  public static final String ANALYSIS_CACHE_ENABLED_KEY = "sonar.java.analysisCache.enabled";
+  public static final String ANALYSIS_CACHE_PATH_KEY = "sonar.java.analysisCache.path";
+  public static final String BEHAVIOR_STORE_ENABLED_KEY = "sonar.java.behaviorStore.enabled";
+  public static final String BEHAVIOR_STORE_PATH_KEY = "sonar.java.behaviorStore.path";
+  public static final String INSTRUMENTATION_ENABLED_KEY = "sonar.java.instrumentation.enabled";
+  public static final String INSTRUMENTATION_SLOWEST_FILES_KEY = "sonar.java.instrumentation.slowestFiles";
+  public static final String SE_STATE_MERGING_KEY = "sonar.java.se.stateMerging";
+  public static final String SE_WORKLIST_STRATEGY_KEY = "sonar.java.se.worklistStrategy";
+  public static final String SE_MAX_STEPS_KEY = "sonar.java.se.maxSteps";
+  public static final String SE_METHOD_TIMEOUT_KEY = "sonar.java.se.methodTimeout";
+  public static final String SE_FILE_TIMEOUT_KEY = "sonar.java.se.fileTimeout";
+  public static final String SE_ANALYSIS_TIMEOUT_KEY = "sonar.java.se.analysisTimeout";
+  public static final String SE_METHOD_MEMORY_KEY = "sonar.java.se.methodMemory";
+  public static final String SE_FILE_MEMORY_KEY = "sonar.java.se.fileMemory";
+  public static final String SE_ANALYSIS_MEMORY_KEY = "sonar.java.se.analysisMemory";
+  public static final String SE_STATISTICS_ENABLED_KEY = "sonar.java.se.statistics.enabled";
+  public static final String SE_COLLECTIONS_KEY = "sonar.java.se.collections";
+  private static final String JAVA_SOURCE_KEY = "sonar.java.source";
+  private static final String CROSS_FILE_KEY = "sonar.java.xfile";
   /**
    * Approximate limit of feedback of 200ko to roughly 100_000 characters of useful feedback.
    * This does not take into account eventual overhead of serialization.
@@ -93,6 +129,18 @@ public class SonarComponents {
   @VisibleForTesting
   public List<AnalysisError> analysisErrors;
   private int errorsSize = 0;
+  private boolean analysisCacheInitialized = false;
+  @Nullable
+  private AnalysisCache analysisCache;
+  private boolean instrumentationInitialized = false;
+  @Nullable
+  private AnalysisInstrumentation instrumentation;
+  @Nullable
+  private SymbolicExecutionOptions symbolicExecutionOptions;
+  private final Map<File, SourceSnapshot> sources = new ConcurrentHashMap<>();
+  private final Map<JavaCheck, RuleKey> ruleKeys = new ConcurrentHashMap<>();
+  @Nullable
+  private volatile ResolvedInputPath lastInputPath;
 
   public SonarComponents(FileLinesContextFactory fileLinesContextFactory, FileSystem fs,
                          JavaClasspath javaClasspath, JavaTestClasspath javaTestClasspath,
@@ -162,11 +210,30 @@ public class SonarComponents {
     return inputFromIOFile(file).lines();
   }
 
+  /**
+   * Issues are reported file after file, so the input path of the last reported issue is kept to spare a lookup in the
+   * file system for each issue.
+   */
+  @CheckForNull
   private InputPath inputPathFromIOFile(File file) {
-    if (file.isDirectory()) {
-      return fs.inputDir(file);
-    } else {
-      return inputFromIOFile(file);
+    ResolvedInputPath resolved = lastInputPath;
+    if (resolved != null && resolved.file.equals(file)) {
+      return resolved.inputPath;
+    }
+    InputPath inputPath = file.isDirectory() ? fs.inputDir(file) : inputFromIOFile(file);
+    if (inputPath != null) {
+      lastInputPath = new ResolvedInputPath(file, inputPath);
+    }
+    return inputPath;
+  }
+
+  private static class ResolvedInputPath {
+    private final File file;
+    private final InputPath inputPath;
+
+    ResolvedInputPath(File file, InputPath inputPath) {
+      this.file = file;
+      this.inputPath = inputPath;
     }
   }
 
@@ -198,6 +265,7 @@ public class SonarComponents {
     Checks<JavaCheck> createdChecks = checkFactory.<JavaCheck>create(repositoryKey).addAnnotatedChecks(checkClasses);
     checks.add(createdChecks);
     allChecks.add(createdChecks);
+    ruleKeys.clear();
   }
 
   public JavaCheck[] checkClasses() {
@@ -212,6 +280,7 @@ public class SonarComponents {
     Checks<JavaCheck> createdChecks = checkFactory.<JavaCheck>create(repositoryKey).addAnnotatedChecks(checkClasses);
     testChecks.add(createdChecks);
     allChecks.add(createdChecks);
+    ruleKeys.clear();
   }
 
   public Collection<JavaCheck> testCheckClasses() {
@@ -230,9 +299,14 @@ public class SonarComponents {
   }
 
   public RuleKey getRuleKey(JavaCheck check) {
+    RuleKey cachedRuleKey = ruleKeys.get(check);
+    if (cachedRuleKey != null) {
+      return cachedRuleKey;
+    }
     for (Checks<JavaCheck> sonarChecks : checks()) {
       RuleKey ruleKey = sonarChecks.ruleKey(check);
       if (ruleKey != null) {
+        ruleKeys.put(check, ruleKey);
         return ruleKey;
       }
     }
@@ -257,9 +331,264 @@ public class SonarComponents {
       return;
     }
     Double cost = analyzerMessage.getCost();
+    if (analysisCache != null) {
+      analysisCache.record(key.toString(), analyzerMessage);
+    }
     reportIssue(analyzerMessage, key, inputPath, cost);
   }
 
+  /**
+   * Report the issues cached for the current content of the file, if any.
+   *
+   * @return true if issues were replayed from the cache, meaning that checks do not have to be executed on this file.
+   */
+  public boolean replayCachedIssues(File file) {
+    AnalysisCache cache = analysisCache();
+    if (cache == null) {
+      return false;
+    }
+    List<AnalysisCache.CachedIssue> cachedIssues = cache.cachedIssues(file, fileContent(file));
+    if (cachedIssues == null) {
+      return false;
+    }
+    InputPath inputPath = inputPathFromIOFile(file);
+    for (AnalysisCache.CachedIssue cachedIssue : cachedIssues) {
+      AnalyzerMessage analyzerMessage = cachedIssue.toAnalyzerMessage(file);
+      reportIssue(analyzerMessage, RuleKey.parse(cachedIssue.ruleKey()), inputPath, analyzerMessage.getCost());
+    }
+    return true;
+  }
+
+  public void startRecordingIssues(File file) {
+    AnalysisCache cache = analysisCache();
+    if (cache != null) {
+      cache.startRecording(file, fileContent(file));
+    }
+  }
+
+  public void stopRecordingIssues(boolean analysisSucceeded) {
+    AnalysisCache cache = analysisCache();
+    if (cache != null) {
+      cache.stopRecording(analysisSucceeded);
+    }
+  }
+
+  @CheckForNull
+  private AnalysisCache analysisCache() {
+    if (!analysisCacheInitialized && context != null) {
+      analysisCacheInitialized = true;
+      if (!isSonarLintContext() && context.config().getBoolean(ANALYSIS_CACHE_ENABLED_KEY).orElse(false) && isAnalysisCacheable()) {
+        // the working directory is cleaned between analyses: the cache has to be kept in a directory given by the user
+        Optional<String> baseDirectory = context.config().get(ANALYSIS_CACHE_PATH_KEY);
+        if (baseDirectory.isPresent()) {
+          createAnalysisCache(new File(baseDirectory.get()));
+        } else {
+          LOG.warn("Analysis cache is disabled: " + ANALYSIS_CACHE_PATH_KEY + " is not set");
+        }
+      }
+    }
+    return analysisCache;
+  }
+
+  private void createAnalysisCache(File baseDirectory) {
+    try {
+      analysisCache = new AnalysisCache(baseDirectory, AnalysisCache.fingerprint(analysisFingerprint()));
+    } catch (IOException e) {
+      LOG.warn("Analysis cache is disabled: unable to read the compiled classes of the classpath", e);
+    }
+  }
+
+  /**
+   * Issues can not be replayed when they depend on other files than the analyzed one, or when the symbolic execution may
+   * have been interrupted by a timeout or by the memory consumed by other methods, as a later analysis of the same file could
+   * raise other issues.
+   */
+  private boolean isAnalysisCacheable() {
+    if (context.config().getBoolean(CROSS_FILE_KEY).orElse(false)) {
+      LOG.info("Analysis cache is disabled: issues of cross-file symbolic execution depend on other files");
+      return false;
+    }
+    SymbolicExecutionBudget budget = symbolicExecutionOptions().budget();
+    if (budget.isTimeBounded()) {
+      LOG.info("Analysis cache is disabled: symbolic execution results depend on the configured timeouts");
+      return false;
+    }
+    if (budget.isSharedMemoryBounded()) {
+      LOG.info("Analysis cache is disabled: symbolic execution results depend on the configured file and analysis memory");
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Everything, apart from the content of a file, which can change the issues raised on it.
+   */
+  private List<String> analysisFingerprint() throws IOException {
+    List<String> parts = new ArrayList<>();
+    parts.add("version:" + SonarComponents.class.getPackage().getImplementationVersion());
+    parts.add("javaVersion:" + context.config().get(JAVA_SOURCE_KEY).map(String::trim).orElse(""));
+    SymbolicExecutionOptions options = symbolicExecutionOptions();
+    parts.add("se:" + options.stateMerging() + ":" + options.workListStrategy() + ":" + options.budget().maxSteps() + ":"
+      + options.budget().maxMethodRetainedBytes());
+    for (Checks<JavaCheck> sonarChecks : checks()) {
+      for (JavaCheck check : sonarChecks.all()) {
+        RuleKey ruleKey = sonarChecks.ruleKey(check);
+        ActiveRule activeRule = ruleKey == null ? null : context.activeRules().find(ruleKey);
+        parts.add("rule:" + ruleKey + (activeRule == null ? "" : new TreeMap<>(activeRule.params()).toString()));
+      }
+    }
+    parts.addAll(classpathFingerprint());
+    return parts;
+  }
+
+  /**
+   * Libraries are identified by their path, size and last modification. Directories of compiled classes are rebuilt by each
+   * build of the project: they are identified by the names, sizes and digests of their class files, so that issues raised on
+   * a file are not replayed once classes it depends on have been modified, while a rebuild producing the same classes keeps
+   * the cache valid.
+   *
+   * @throws IOException if the class files of a directory can not be read
+   */
+  private List<String> classpathFingerprint() throws IOException {
+    List<String> parts = new ArrayList<>();
+    for (File file : Iterables.concat(getJavaClasspath(), getJavaTestClasspath())) {
+      if (file.isFile()) {
+        parts.add("library:" + file.getAbsolutePath() + ":" + file.length() + ":" + file.lastModified());
+      } else if (file.isDirectory()) {
+        parts.add("directory:" + file.getAbsolutePath() + ":" + classFilesDigest(file.toPath()));
+      } else {
+        parts.add("missing:" + file.getAbsolutePath());
+      }
+    }
+    return parts;
+  }
+
+  private static String classFilesDigest(Path directory) throws IOException {
+    List<Path> classFiles;
+    try (Stream<Path> paths = Files.walk(directory)) {
+      classFiles = paths
+        .filter(path -> path.getFileName().toString().endsWith(".class") && Files.isRegularFile(path))
+        .sorted()
+        .collect(Collectors.toList());
+    }
+    Hasher hasher = Hashing.sha256().newHasher();
+    for (Path classFile : classFiles) {
+      hasher.putString(directory.relativize(classFile).toString(), StandardCharsets.UTF_8)
+        .putLong(Files.size(classFile))
+        .putBytes(com.google.common.io.Files.asByteSource(classFile.toFile()).hash(Hashing.sha256()).asBytes());
+    }
+    return hasher.hash().toString();
+  }
+
+  /**
+   * @return store of the method behaviors computed from bytecode of the libraries loaded by the given class loader, bound to
+   * the version of the analyzer, to the limits of the symbolic execution and to the libraries of the classpath, or null if
+   * it is not enabled. As for the analysis
+   * cache, the store is not used when the symbolic execution may be interrupted by a timeout.
+   */
+  @CheckForNull
+  public MethodBehaviorStore methodBehaviorStore(boolean crossFileEnabled, ClassLoader classLoader, List<File> classpath) {
+    if (context == null || isSonarLintContext() || !context.config().getBoolean(BEHAVIOR_STORE_ENABLED_KEY).orElse(false)) {
+      return null;
+    }
+    // the working directory is cleaned between analyses: the store has to be kept in a directory given by the user
+    Optional<String> directory = context.config().get(BEHAVIOR_STORE_PATH_KEY);
+    if (!directory.isPresent()) {
+      LOG.warn("Method behavior store is disabled: " + BEHAVIOR_STORE_PATH_KEY + " is not set");
+      return null;
+    }
+    SymbolicExecutionBudget budget = symbolicExecutionOptions().budget();
+    if (budget.isTimeBounded()) {
+      LOG.info("Method behavior store is disabled: symbolic execution results depend on the configured timeouts");
+      return null;
+    }
+    if (budget.isSharedMemoryBounded()) {
+      LOG.info("Method behavior store is disabled: symbolic execution results depend on the configured file and analysis memory");
+      return null;
+    }
+    List<String> parts = new ArrayList<>();
+    parts.add("version:" + SonarComponents.class.getPackage().getImplementationVersion());
+    parts.add("crossFile:" + crossFileEnabled);
+    parts.add("se:" + budget.maxSteps() + ":" + budget.maxMethodRetainedBytes());
+    return MethodBehaviorStore.load(new File(directory.get()), AnalysisCache.fingerprint(parts), classLoader, classpath);
+  }
+
+  /**
+   * @return collector of timings and allocations of the analysis, or null if instrumentation is not enabled.
+   */
+  @CheckForNull
+  public AnalysisInstrumentation instrumentation() {
+    if (!instrumentationInitialized && context != null) {
+      instrumentationInitialized = true;
+      if (context.config().getBoolean(INSTRUMENTATION_ENABLED_KEY).orElse(false)) {
+        instrumentation = new AnalysisInstrumentation(context.config().getInt(INSTRUMENTATION_SLOWEST_FILES_KEY).orElse(20));
+      }
+    }
+    return instrumentation;
+  }
+
+  /**
+   * @return options of the symbolic execution of methods, defaults being used when not configured. Their budget is shared by
+   * the whole analysis: timeouts are in milliseconds, memory in estimated bytes retained by exploded graphs, 0 meaning no limit.
+   */
+  public SymbolicExecutionOptions symbolicExecutionOptions() {
+    if (context == null) {
+      return SymbolicExecutionOptions.defaults();
+    }
+    if (symbolicExecutionOptions == null) {
+      SymbolicExecutionBudget budget = new SymbolicExecutionBudget(
+        context.config().getInt(SE_MAX_STEPS_KEY).orElse(SymbolicExecutionBudget.DEFAULT_MAX_STEPS),
+        context.config().getLong(SE_METHOD_TIMEOUT_KEY).orElse(0L),
+        context.config().getLong(SE_FILE_TIMEOUT_KEY).orElse(0L),
+        context.config().getLong(SE_ANALYSIS_TIMEOUT_KEY).orElse(0L),
+        context.config().getLong(SE_METHOD_MEMORY_KEY).orElse(0L),
+        context.config().getLong(SE_FILE_MEMORY_KEY).orElse(0L),
+        context.config().getLong(SE_ANALYSIS_MEMORY_KEY).orElse(0L));
+      symbolicExecutionOptions = SymbolicExecutionOptions.defaults()
+        .withStateMerging(context.config().getBoolean(SE_STATE_MERGING_KEY).orElse(false))
+        .withWorkListStrategy(context.config().get(SE_WORKLIST_STRATEGY_KEY)
+          .map(strategy -> enumValue(SE_WORKLIST_STRATEGY_KEY, strategy, WorkList.Strategy.class, WorkList.Strategy.DEPTH_FIRST))
+          .orElse(WorkList.Strategy.DEPTH_FIRST))
+        .withBudget(budget)
+        .withStatistics(context.config().getBoolean(SE_STATISTICS_ENABLED_KEY).orElse(false) ? new SymbolicExecutionStatistics() : null)
+        .withCollections(context.config().get(SE_COLLECTIONS_KEY)
+          .map(implementation -> enumValue(SE_COLLECTIONS_KEY, implementation, PCollections.Implementation.class, PCollections.Implementation.AVL_TREE))
+          .orElse(PCollections.Implementation.AVL_TREE));
+    }
+    return symbolicExecutionOptions;
+  }
+
+  private static <E extends Enum<E>> E enumValue(String key, String value, Class<E> type, E defaultValue) {
+    try {
+      return Enum.valueOf(type, value.trim().toUpperCase(Locale.ENGLISH));
+    } catch (IllegalArgumentException e) {
+      LOG.warn("Invalid value '{}' of {}, {} is used instead", value, key, defaultValue);
+      return defaultValue;
+    }
+  }
+
+  /**
+   * Log the methods whose symbolic execution has been interrupted or skipped because of its budget, and save statistics of
+   * the explored methods if they are collected.
+   */
+  public void reportSymbolicExecution() {
+    if (symbolicExecutionOptions == null) {
+      return;
+    }
+    symbolicExecutionOptions.budget().logSummary();
+    SymbolicExecutionStatistics statistics = symbolicExecutionOptions.statistics();
+    if (statistics != null) {
+      statistics.logSummary();
+      statistics.writeReport(new File(workDir(), "java-symbolic-execution-statistics.json"));
+    }
+  }
+
+  public void saveInstrumentationReport() {
+    if (instrumentation != null) {
+      instrumentation.writeReport(new File(workDir(), "java-analysis-instrumentation.json"));
+    }
+  }
+
   @VisibleForTesting
   void reportIssue(AnalyzerMessage analyzerMessage, RuleKey key, InputPath inputPath, Double cost) {
     Preconditions.checkNotNull(context);
@@ -274,7 +603,8 @@ public class SonarComponents {
       }
       issue.setPrimaryLocation((InputFile) inputPath, analyzerMessage.getMessage(), textSpan.startLine, textSpan.startCharacter, textSpan.endLine, textSpan.endCharacter);
     }
-    issue.addFlow(inputFromIOFile(analyzerMessage.getFile()), analyzerMessage.flows).save();
+    InputFile flowsFile = inputPath instanceof InputFile ? (InputFile) inputPath : inputFromIOFile(analyzerMessage.getFile());
+    issue.addFlow(flowsFile, analyzerMessage.flows).save();
   }
 
   public boolean reportAnalysisError(RecognitionException re, File file) {
@@ -294,31 +624,34 @@ public class SonarComponents {
   }
 
   public String fileContent(File file) {
-    try {
-      return inputFromIOFile(file).contents();
-    } catch (IOException e) {
-      throw new AnalysisException("Unable to read file "+file, e);
-    }
+    return source(file).content();
   }
 
   public List<String> fileLines(File file) {
-    List<String> lines = new ArrayList<>();
-    try(Scanner scanner = new Scanner(getInputStream(file), getCharset(file).name())) {
-      while (scanner.hasNextLine()) {
-        lines.add(scanner.nextLine());
-      }
+    return source(file).lines();
+  }
+
+  /**
+   * Content of the file, decoded on first access and then shared until the file is released by {@link #releaseSource(File)}.
+   */
+  public SourceSnapshot source(File file) {
+    return sources.computeIfAbsent(file, this::readSource);
+  }
+
+  private SourceSnapshot readSource(File file) {
+    try {
+      return new SourceSnapshot(inputFromIOFile(file).contents());
     } catch (IOException e) {
       throw new AnalysisException("Unable to read file "+file, e);
     }
-    return lines;
   }
 
-  private InputStream getInputStream(File file) throws IOException {
-    return inputFromIOFile(file).inputStream();
+  public void releaseSource(File file) {
+    sources.remove(file);
   }
 
-  private Charset getCharset(File file) {
-    return inputFromIOFile(file).charset();
+  public void releaseSources() {
+    sources.clear();
   }
 
   public boolean analysisCancelled() {
@@ -344,6 +677,13 @@ public class SonarComponents {
     return context.config().getBoolean(FAIL_ON_EXCEPTION_KEY).orElse(false);
   }
 
+  /**
+   * Number of threads used to parse files and compute their semantic models. Checks are always executed on a single thread.
+   */
+  public int analysisThreads() {
+    return context.config().getInt(ANALYSIS_THREADS_KEY).orElse(1);
+  }
+
   private boolean shouldCollectAnalysisErrors() {
     return context.config().getBoolean(COLLECT_ANALYSIS_ERRORS_KEY).orElse(false);
   }
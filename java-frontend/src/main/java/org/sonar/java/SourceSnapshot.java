@@ -0,0 +1,125 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Content of a source file, decoded once and shared by the parser, the checks and the reporting of issues.
+ * Lines are split on "\n", "\r\n" and "\r", as done by the parser, and their texts are only created when accessed.
+ */
+public final class SourceSnapshot {
+
+  private final String content;
+  private final int[] lineStarts;
+  private final int[] lineEnds;
+  private final List<String> lines;
+
+  public SourceSnapshot(String content) {
+    this.content = content;
+    int lineCount = countLines(content);
+    this.lineStarts = new int[lineCount];
+    this.lineEnds = new int[lineCount];
+    int line = 0;
+    int start = 0;
+    int length = content.length();
+    for (int i = 0; i < length && line < lineCount; i++) {
+      char c = content.charAt(i);
+      if (c == '\n' || c == '\r') {
+        lineStarts[line] = start;
+        lineEnds[line] = i;
+        line++;
+        if (c == '\r' && i + 1 < length && content.charAt(i + 1) == '\n') {
+          i++;
+        }
+        start = i + 1;
+      }
+    }
+    if (line < lineCount) {
+      lineStarts[line] = start;
+      lineEnds[line] = length;
+    }
+    this.lines = new Lines();
+  }
+
+  private static int countLines(String content) {
+    int count = 0;
+    int length = content.length();
+    for (int i = 0; i < length; i++) {
+      char c = content.charAt(i);
+      if (c == '\n' || (c == '\r' && (i + 1 == length || content.charAt(i + 1) != '\n'))) {
+        count++;
+      }
+    }
+    if (length > 0) {
+      char last = content.charAt(length - 1);
+      if (last != '\n' && last != '\r') {
+        // last line without terminator
+        count++;
+      }
+    }
+    return count;
+  }
+
+  public String content() {
+    return content;
+  }
+
+  public int lineCount() {
+    return lineStarts.length;
+  }
+
+  /**
+   * @param line 1-based line number
+   * @return offset in the content of the first character of the line
+   */
+  public int lineOffset(int line) {
+    return lineStarts[line - 1];
+  }
+
+  /**
+   * @return unmodifiable lines of the file, without their terminators
+   */
+  public List<String> lines() {
+    return lines;
+  }
+
+  private class Lines extends AbstractList<String> implements RandomAccess {
+    private final String[] texts = new String[lineStarts.length];
+
+    @Override
+    public String get(int index) {
+      String text = texts[index];
+      if (text == null) {
+        text = content.substring(lineStarts[index], lineEnds[index]);
+        // racing threads create equal strings, any of them can be kept
+        texts[index] = text;
+      }
+      return text;
+    }
+
+    @Override
+    public int size() {
+      return texts.length;
+    }
+  }
+}
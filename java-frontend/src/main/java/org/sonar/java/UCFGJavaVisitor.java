@@ -35,6 +35,7 @@ import javax.annotation.Nullable;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.java.cfg.CFG;
+import org.sonar.java.cfg.CFGProvider;
 import org.sonar.java.cfg.VariableReadExtractor;
 import org.sonar.java.model.ExpressionUtils;
 import org.sonar.java.model.LiteralUtils;
@@ -89,6 +90,7 @@ public class UCFGJavaVisitor extends BaseTreeVisitor implements JavaFileScanner
   private static final Logger LOG = Loggers.get(JavaSquid.class);
   private final File protobufDirectory;
   String javaFileKey;
+  private CFGProvider cfgProvider = new CFGProvider();
   private int index = 0;
 
   public UCFGJavaVisitor(File workdir) {
@@ -104,6 +106,7 @@ public class UCFGJavaVisitor extends BaseTreeVisitor implements JavaFileScanner
   @Override
   public void scanFile(JavaFileScannerContext context) {
     this.javaFileKey = context.getFileKey();
+    this.cfgProvider = CFGProvider.of(context);
     if (context.getSemanticModel() == null) {
       return;
     }
@@ -119,7 +122,7 @@ public class UCFGJavaVisitor extends BaseTreeVisitor implements JavaFileScanner
       types.add(methodSymbol.returnType().type());
     }
     if (tree.block() != null && types.stream().noneMatch(Type::isUnknown)) {
-      CFG cfg = CFG.build(tree);
+      CFG cfg = cfgProvider.cfg(tree);
       serializeUCFG(tree, cfg);
     }
   }
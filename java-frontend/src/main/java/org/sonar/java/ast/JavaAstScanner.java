@@ -25,14 +25,22 @@ import com.sonar.sslr.api.RecognitionException;
 import com.sonar.sslr.api.typed.ActionParser;
 import java.io.File;
 import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.java.AnalysisException;
+import org.sonar.java.AnalysisInstrumentation;
 import org.sonar.java.SonarComponents;
 import org.sonar.java.ast.parser.JavaParser;
 import org.sonar.java.model.JavaVersionImpl;
@@ -43,10 +51,14 @@ import org.sonar.squidbridge.ProgressReport;
 
 public class JavaAstScanner {
   private static final Logger LOG = Loggers.get(JavaAstScanner.class);
+  private static final int PENDING_FILES_PER_THREAD = 2;
+  private static final long WORKER_TERMINATION_SECONDS_PER_FILE = 10;
 
   private final ActionParser<Tree> parser;
   private final SonarComponents sonarComponents;
   private VisitorsBridge visitor;
+  @Nullable
+  private AnalysisInstrumentation instrumentation;
 
   public JavaAstScanner(ActionParser<Tree> parser, @Nullable SonarComponents sonarComponents) {
     this.parser = parser;
@@ -58,15 +70,14 @@ public class JavaAstScanner {
     progressReport.start(files.stream().map(File::getAbsolutePath).collect(Collectors.toList()));
 
     boolean successfullyCompleted = false;
-    boolean cancelled = false;
+    boolean cancelled;
+    instrumentation = sonarComponents == null ? null : sonarComponents.instrumentation();
     try {
-      for (File file : files) {
-        if (analysisCancelled()) {
-          cancelled = true;
-          break;
-        }
-        simpleScan(file);
-        progressReport.nextFile();
+      int threads = analysisThreads();
+      if (threads > 1 && files.size() > 1) {
+        cancelled = parallelScan(files, threads, progressReport);
+      } else {
+        cancelled = sequentialScan(files, progressReport);
       }
       successfullyCompleted = !cancelled;
     } finally {
@@ -75,25 +86,115 @@ public class JavaAstScanner {
       } else {
         progressReport.cancel();
       }
+      if (sonarComponents != null) {
+        // sources of files parsed by workers but never scanned because the analysis has been interrupted
+        sonarComponents.releaseSources();
+      }
       visitor.endOfAnalysis();
     }
   }
 
+  private boolean sequentialScan(Collection<File> files, ProgressReport progressReport) {
+    for (File file : files) {
+      if (analysisCancelled()) {
+        return true;
+      }
+      simpleScan(file);
+      progressReport.nextFile();
+    }
+    return false;
+  }
+
+  /**
+   * Parsing and creation of semantic models are done by a pool of workers, each of them owning its own parser.
+   * Checks are still executed on the calling thread, one file after the other and in the order of the given files,
+   * so that they don't have to be thread-safe and so that issues are reported deterministically.
+   */
+  private boolean parallelScan(Collection<File> files, int threads, ProgressReport progressReport) {
+    ExecutorService executor = Executors.newFixedThreadPool(threads, JavaAstScanner::newWorkerThread);
+    ThreadLocal<ActionParser<Tree>> parsers = ThreadLocal.withInitial(JavaParser::createParser);
+    Deque<Future<ParsedFile>> pendingFiles = new ArrayDeque<>();
+    Iterator<File> filesToSubmit = files.iterator();
+    try {
+      while (filesToSubmit.hasNext() || !pendingFiles.isEmpty()) {
+        while (filesToSubmit.hasNext() && pendingFiles.size() < threads * PENDING_FILES_PER_THREAD) {
+          File file = filesToSubmit.next();
+          pendingFiles.add(executor.submit(() -> parseAndAnalyze(parsers.get(), file)));
+        }
+        if (analysisCancelled()) {
+          return true;
+        }
+        ParsedFile parsedFile = awaitParsedFile(pendingFiles.removeFirst());
+        scan(parsedFile.file, () -> {
+          parsedFile.rethrowFailure();
+          visitor.visitFile(parsedFile.tree, parsedFile.semanticAnalysis);
+        });
+        progressReport.nextFile();
+      }
+      return false;
+    } finally {
+      executor.shutdownNow();
+      awaitWorkersTermination(executor, pendingFiles.size());
+    }
+  }
+
+  /**
+   * Workers are not interrupted in the middle of a file: at most the files submitted ahead of the scanned one are still
+   * being parsed, and their sources must not be released nor the end of analysis notified before they are done.
+   */
+  private static void awaitWorkersTermination(ExecutorService executor, int pendingFiles) {
+    try {
+      long timeout = Math.max(1, pendingFiles) * WORKER_TERMINATION_SECONDS_PER_FILE;
+      if (!executor.awaitTermination(timeout, TimeUnit.SECONDS)) {
+        LOG.warn("Analysis workers still running after {} seconds", timeout);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static Thread newWorkerThread(Runnable runnable) {
+    Thread thread = new Thread(runnable, "sonar-java-analysis-worker");
+    thread.setDaemon(true);
+    return thread;
+  }
+
+  private ParsedFile parseAndAnalyze(ActionParser<Tree> workerParser, File file) {
+    try {
+      Tree ast = parse(workerParser, file);
+      return new ParsedFile(file, ast, visitor.semanticAnalysis(file, ast), null);
+    } catch (RuntimeException | StackOverflowError e) {
+      return new ParsedFile(file, null, null, e);
+    }
+  }
+
+  private static ParsedFile awaitParsedFile(Future<ParsedFile> pendingFile) {
+    try {
+      return pendingFile.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new AnalysisException("Analysis cancelled", e);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+
   private boolean analysisCancelled() {
     return sonarComponents != null && sonarComponents.analysisCancelled();
   }
 
+  private int analysisThreads() {
+    return sonarComponents == null ? 1 : sonarComponents.analysisThreads();
+  }
+
   private void simpleScan(File file) {
+    scan(file, () -> visitor.visitFile(parse(parser, file)));
+  }
+
+  private void scan(File file, Runnable fileAnalysis) {
     visitor.setCurrentFile(file);
     try {
-      String fileContent = getFileContent(file);
-      Tree ast;
-      if(fileContent.isEmpty()) {
-        ast = parser.parse(file);
-      } else {
-        ast = parser.parse(fileContent);
-      }
-      visitor.visitFile(ast);
+      fileAnalysis.run();
     } catch (RecognitionException e) {
       checkInterrupted(e);
       LOG.error("Unable to parse source file : " + file.getAbsolutePath());
@@ -106,9 +207,33 @@ public class JavaAstScanner {
     } catch (StackOverflowError error) {
       LOG.error("A stack overflow error occured while analyzing file: " + file.getAbsolutePath());
       throw error;
+    } finally {
+      if (sonarComponents != null) {
+        sonarComponents.releaseSource(file);
+      }
+    }
+  }
+
+  private Tree parse(ActionParser<Tree> actionParser, File file) {
+    if (instrumentation == null) {
+      return parseContent(actionParser, file);
+    }
+    AnalysisInstrumentation.Sample start = instrumentation.start();
+    try {
+      return parseContent(actionParser, file);
+    } finally {
+      instrumentation.recordPhase(AnalysisInstrumentation.Phase.PARSING, file, start);
     }
   }
 
+  private Tree parseContent(ActionParser<Tree> actionParser, File file) {
+    String fileContent = getFileContent(file);
+    if (fileContent.isEmpty()) {
+      return actionParser.parse(file);
+    }
+    return actionParser.parse(fileContent);
+  }
+
   private String getFileContent(File file) {
     if(sonarComponents == null) {
       return "";
@@ -156,4 +281,33 @@ public class JavaAstScanner {
     astScanner.scan(Collections.singleton(file));
   }
 
+  private static class ParsedFile {
+    private final File file;
+    @Nullable
+    private final Tree tree;
+    @Nullable
+    private final VisitorsBridge.SemanticAnalysis semanticAnalysis;
+    @Nullable
+    private final Throwable failure;
+
+    ParsedFile(File file, @Nullable Tree tree, @Nullable VisitorsBridge.SemanticAnalysis semanticAnalysis, @Nullable Throwable failure) {
+      this.file = file;
+      this.tree = tree;
+      this.semanticAnalysis = semanticAnalysis;
+      this.failure = failure;
+    }
+
+    /**
+     * Rethrow on the analysis thread what was thrown by the worker, so that it is handled as in a sequential scan.
+     */
+    void rethrowFailure() {
+      if (failure instanceof RuntimeException) {
+        throw (RuntimeException) failure;
+      }
+      if (failure instanceof Error) {
+        throw (Error) failure;
+      }
+    }
+  }
+
 }
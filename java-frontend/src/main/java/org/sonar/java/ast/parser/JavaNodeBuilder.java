@@ -19,7 +19,6 @@
  */
 package org.sonar.java.ast.parser;
 
-import com.google.common.collect.Lists;
 import com.sonar.sslr.api.GenericTokenType;
 import com.sonar.sslr.api.Rule;
 import com.sonar.sslr.api.Token;
@@ -33,10 +32,23 @@ import org.sonar.java.model.InternalSyntaxTrivia;
 import org.sonar.plugins.java.api.tree.SyntaxTrivia;
 import org.sonar.sslr.grammar.GrammarRuleKey;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import javax.annotation.Nullable;
 
 public class JavaNodeBuilder implements NodeBuilder {
 
+  @Nullable
+  private TokenValues tokenValues;
+
+  /**
+   * Release the source and the token texts of the parsed file, the builder living as long as its parser.
+   */
+  void endOfParse() {
+    tokenValues = null;
+  }
+
   @Override
   public Object createNonTerminal(GrammarRuleKey ruleKey, Rule rule, List<Object> children, int startIndex, int endIndex) {
     for (Object child : children) {
@@ -58,7 +70,10 @@ public class JavaNodeBuilder implements NodeBuilder {
   }
 
   private static List<SyntaxTrivia> createTrivias(List<Trivia> trivias) {
-    List<SyntaxTrivia> result = Lists.newArrayList();
+    if (trivias.isEmpty()) {
+      return Collections.emptyList();
+    }
+    List<SyntaxTrivia> result = new ArrayList<>(trivias.size());
     for (Trivia trivia : trivias) {
       Token trivialToken = trivia.getToken();
       result.add(InternalSyntaxTrivia.create(trivialToken.getValue(), trivialToken.getLine(), trivialToken.getColumn()));
@@ -66,12 +81,20 @@ public class JavaNodeBuilder implements NodeBuilder {
     return result;
   }
 
-  private static LineColumnValue tokenPosition(Input input, int startIndex, int endIndex) {
+  private LineColumnValue tokenPosition(Input input, int startIndex, int endIndex) {
     int[] lineAndColumn = input.lineAndColumnAt(startIndex);
-    String value = input.substring(startIndex, endIndex);
+    String value = tokenValues(input).value(startIndex, endIndex);
     return new LineColumnValue(lineAndColumn[0], lineAndColumn[1] - 1, value);
   }
 
+  private TokenValues tokenValues(Input input) {
+    char[] chars = input.input();
+    if (tokenValues == null || !tokenValues.isFor(chars)) {
+      tokenValues = new TokenValues(chars);
+    }
+    return tokenValues;
+  }
+
   private static class LineColumnValue {
     final int line;
     final int column;
@@ -0,0 +1,107 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.ast.parser;
+
+/**
+ * Texts of the tokens of one source file. Tokens having the same text share a single string, which is looked up
+ * directly in the characters of the file, so that a string is only created for the first occurrence of a text.
+ */
+final class TokenValues {
+
+  private static final int INITIAL_CAPACITY = 1024;
+
+  private final char[] source;
+  private String[] table = new String[INITIAL_CAPACITY];
+  private int size;
+
+  TokenValues(char[] source) {
+    this.source = source;
+  }
+
+  boolean isFor(char[] chars) {
+    return source == chars;
+  }
+
+  String value(int startIndex, int endIndex) {
+    int mask = table.length - 1;
+    int index = hash(startIndex, endIndex) & mask;
+    String value = table[index];
+    while (value != null) {
+      if (matches(value, startIndex, endIndex)) {
+        return value;
+      }
+      index = (index + 1) & mask;
+      value = table[index];
+    }
+    value = new String(source, startIndex, endIndex - startIndex);
+    table[index] = value;
+    size++;
+    if (2 * size > table.length) {
+      grow();
+    }
+    return value;
+  }
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * Same hash as {@link String#hashCode()} of the text, so that strings of the table can be relocated without reading the source again.
+   */
+  private int hash(int startIndex, int endIndex) {
+    int hash = 0;
+    for (int i = startIndex; i < endIndex; i++) {
+      hash = 31 * hash + source[i];
+    }
+    return spread(hash);
+  }
+
+  private static int spread(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+
+  private boolean matches(String value, int startIndex, int endIndex) {
+    if (value.length() != endIndex - startIndex) {
+      return false;
+    }
+    for (int i = 0; i < value.length(); i++) {
+      if (value.charAt(i) != source[startIndex + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void grow() {
+    String[] oldTable = table;
+    table = new String[oldTable.length * 2];
+    int mask = table.length - 1;
+    for (String value : oldTable) {
+      if (value != null) {
+        int index = spread(value.hashCode()) & mask;
+        while (table[index] != null) {
+          index = (index + 1) & mask;
+        }
+        table[index] = value;
+      }
+    }
+  }
+}
@@ -29,6 +29,7 @@ import org.sonar.plugins.java.api.tree.Tree;
 
 import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 public abstract class SubscriptionVisitor implements JavaFileScanner {
 
@@ -65,6 +66,21 @@ public abstract class SubscriptionVisitor implements JavaFileScanner {
   }
 
   protected void scanTree(Tree tree) {
+    subscribedKinds();
+    visitToken = isVisitingTokens();
+    visitTrivia = isVisitingTrivia();
+    visit(tree);
+  }
+
+  /**
+   * Prepare this visitor for a file which is walked by a {@link SubscriptionVisitorsDispatcher} instead of {@link #scanTree(Tree)}.
+   */
+  void setContext(JavaFileScannerContext context) {
+    this.context = context;
+    semanticModel = (SemanticModel) context.getSemanticModel();
+  }
+
+  Set<Tree.Kind> subscribedKinds() {
     if(nodesToVisit == null) {
       List<Tree.Kind> kinds = nodesToVisit();
       if(kinds.isEmpty()) {
@@ -73,9 +89,7 @@ public abstract class SubscriptionVisitor implements JavaFileScanner {
         nodesToVisit = EnumSet.copyOf(kinds);
       }
     }
-    visitToken = isVisitingTokens();
-    visitTrivia = isVisitingTrivia();
-    visit(tree);
+    return nodesToVisit;
   }
 
   private void visit(Tree tree) {
@@ -0,0 +1,189 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.ast.visitors;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import org.sonar.java.model.JavaTree;
+import org.sonar.plugins.java.api.JavaFileScanner;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+import org.sonar.plugins.java.api.tree.SyntaxToken;
+import org.sonar.plugins.java.api.tree.SyntaxTrivia;
+import org.sonar.plugins.java.api.tree.Tree;
+
+/**
+ * Walk the tree of a file only once for many {@link SubscriptionVisitor}s, calling each of them only on the kinds of node
+ * it subscribed to. Each visitor receives exactly the same sequence of calls as if its own {@link SubscriptionVisitor#scanTree(Tree)}
+ * was used.
+ *
+ * A visitor throwing an exception is not called anymore for the rest of the file, and the exception is given to the
+ * exception handler, which may rethrow it to stop the analysis.
+ */
+public class SubscriptionVisitorsDispatcher implements JavaFileScanner {
+
+  private static final int[] NO_SUBSCRIBERS = new int[0];
+
+  private final SubscriptionVisitor[] visitors;
+  private final BiConsumer<JavaFileScanner, RuntimeException> exceptionHandler;
+  private final Map<Tree.Kind, int[]> nodeSubscribers = new EnumMap<>(Tree.Kind.class);
+  private final int[] tokenAndTriviaSubscribers;
+  private final boolean[] visitingTokens;
+  private final boolean[] visitingTrivia;
+  private final boolean[] failed;
+
+  public SubscriptionVisitorsDispatcher(List<SubscriptionVisitor> visitors, BiConsumer<JavaFileScanner, RuntimeException> exceptionHandler) {
+    this.visitors = visitors.toArray(new SubscriptionVisitor[0]);
+    this.exceptionHandler = exceptionHandler;
+    this.visitingTokens = new boolean[this.visitors.length];
+    this.visitingTrivia = new boolean[this.visitors.length];
+    this.failed = new boolean[this.visitors.length];
+    Map<Tree.Kind, List<Integer>> subscribers = new EnumMap<>(Tree.Kind.class);
+    List<Integer> syntaxTokenSubscribers = new ArrayList<>();
+    for (int i = 0; i < this.visitors.length; i++) {
+      Set<Tree.Kind> kinds = this.visitors[i].subscribedKinds();
+      visitingTokens[i] = kinds.contains(Tree.Kind.TOKEN);
+      visitingTrivia[i] = kinds.contains(Tree.Kind.TRIVIA);
+      if (visitingTokens[i] || visitingTrivia[i]) {
+        syntaxTokenSubscribers.add(i);
+      }
+      for (Tree.Kind kind : kinds) {
+        if (kind != Tree.Kind.TOKEN && kind != Tree.Kind.TRIVIA) {
+          subscribers.computeIfAbsent(kind, k -> new ArrayList<>()).add(i);
+        }
+      }
+    }
+    subscribers.forEach((kind, indexes) -> nodeSubscribers.put(kind, toArray(indexes)));
+    tokenAndTriviaSubscribers = toArray(syntaxTokenSubscribers);
+  }
+
+  private static int[] toArray(List<Integer> indexes) {
+    return indexes.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  /**
+   * Visitors redefining how a file is scanned have to be executed on their own.
+   */
+  public static boolean canBeDispatched(JavaFileScanner scanner) {
+    if (!(scanner instanceof SubscriptionVisitor)) {
+      return false;
+    }
+    Class<?> visitorClass = scanner.getClass();
+    while (visitorClass != SubscriptionVisitor.class) {
+      if (declaresMethod(visitorClass, "scanFile", JavaFileScannerContext.class) || declaresMethod(visitorClass, "scanTree", Tree.class)) {
+        return false;
+      }
+      visitorClass = visitorClass.getSuperclass();
+    }
+    return true;
+  }
+
+  private static boolean declaresMethod(Class<?> type, String name, Class<?> parameterType) {
+    for (Method method : type.getDeclaredMethods()) {
+      if (method.getName().equals(name) && Arrays.equals(method.getParameterTypes(), new Class<?>[] {parameterType})) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public void scanFile(JavaFileScannerContext context) {
+    Arrays.fill(failed, false);
+    for (SubscriptionVisitor visitor : visitors) {
+      visitor.setContext(context);
+    }
+    visit(context.getTree());
+  }
+
+  private void visit(Tree tree) {
+    if (tree.is(Tree.Kind.TOKEN)) {
+      visitSyntaxToken((SyntaxToken) tree);
+      return;
+    }
+    int[] subscribers = nodeSubscribers.getOrDefault(tree.kind(), NO_SUBSCRIBERS);
+    for (int i : subscribers) {
+      if (!failed[i]) {
+        visitNode(i, tree);
+      }
+    }
+    JavaTree javaTree = (JavaTree) tree;
+    if (!javaTree.isLeaf()) {
+      for (Tree next : javaTree.getChildren()) {
+        if (next != null) {
+          visit(next);
+        }
+      }
+    }
+    for (int i : subscribers) {
+      if (!failed[i]) {
+        leaveNode(i, tree);
+      }
+    }
+  }
+
+  private void visitNode(int index, Tree tree) {
+    try {
+      visitors[index].visitNode(tree);
+    } catch (RuntimeException e) {
+      fail(index, e);
+    }
+  }
+
+  private void leaveNode(int index, Tree tree) {
+    try {
+      visitors[index].leaveNode(tree);
+    } catch (RuntimeException e) {
+      fail(index, e);
+    }
+  }
+
+  private void visitSyntaxToken(SyntaxToken syntaxToken) {
+    for (int i : tokenAndTriviaSubscribers) {
+      if (failed[i]) {
+        continue;
+      }
+      SubscriptionVisitor visitor = visitors[i];
+      try {
+        if (visitingTokens[i]) {
+          visitor.visitToken(syntaxToken);
+        }
+        if (visitingTrivia[i]) {
+          for (SyntaxTrivia syntaxTrivia : syntaxToken.trivias()) {
+            visitor.visitTrivia(syntaxTrivia);
+          }
+        }
+      } catch (RuntimeException e) {
+        fail(i, e);
+      }
+    }
+  }
+
+  private void fail(int index, RuntimeException e) {
+    failed[index] = true;
+    exceptionHandler.accept(visitors[index], e);
+  }
+
+}
@@ -0,0 +1,178 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.bytecode.loader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Process-wide cache of the bytes of the entries read from jar files, shared by all the {@link SquidClassLoader}s of the
+ * analyzer: main and test code, as well as consecutive modules analyzed in the same JVM, read the same libraries.
+ *
+ * Jars are identified by their path, last modification date and size. Only the most recently read entries are kept, up to
+ * {@value #MAX_RETAINED_BYTES} bytes for the whole process, so that the cache does not retain every class read by loaders
+ * which stay open for the whole analysis. Bytes are shared rather than decoded classes: decoded classes are several times
+ * larger than their bytes and depend on the way they are read (with or without code), they are only kept per analysis by
+ * {@link org.sonar.java.resolve.ClassFileCache}, which is itself bounded.
+ */
+final class BytecodeCache {
+
+  static final long MAX_RETAINED_BYTES = 16L * 1024 * 1024;
+
+  private static final BytecodeCache INSTANCE = new BytecodeCache(MAX_RETAINED_BYTES);
+
+  private final long maxRetainedBytes;
+  private final Map<EntryKey, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long retainedBytes = 0;
+
+  BytecodeCache(long maxRetainedBytes) {
+    this.maxRetainedBytes = maxRetainedBytes;
+  }
+
+  static BytecodeCache instance() {
+    return INSTANCE;
+  }
+
+  CachedJar jar(File jar) {
+    return new CachedJar(this, new JarKey(jar));
+  }
+
+  private byte[] bytes(EntryKey key, BytesReader reader) throws IOException {
+    byte[] bytes = cached(key);
+    if (bytes == null) {
+      // read outside of the lock: concurrent reads of the same entry are harmless, while they would block other entries
+      bytes = reader.read();
+      bytes = put(key, bytes);
+    }
+    return bytes;
+  }
+
+  private synchronized byte[] cached(EntryKey key) {
+    return entries.get(key);
+  }
+
+  private synchronized byte[] put(EntryKey key, byte[] bytes) {
+    byte[] previous = entries.get(key);
+    if (previous != null) {
+      return previous;
+    }
+    if (bytes.length > maxRetainedBytes) {
+      return bytes;
+    }
+    entries.put(key, bytes);
+    retainedBytes += bytes.length;
+    Iterator<byte[]> leastRecentlyUsed = entries.values().iterator();
+    while (retainedBytes > maxRetainedBytes) {
+      retainedBytes -= leastRecentlyUsed.next().length;
+      leastRecentlyUsed.remove();
+    }
+    return bytes;
+  }
+
+  synchronized int size() {
+    return entries.size();
+  }
+
+  synchronized long retainedBytes() {
+    return retainedBytes;
+  }
+
+  @FunctionalInterface
+  interface BytesReader {
+    byte[] read() throws IOException;
+  }
+
+  static final class CachedJar {
+    private final BytecodeCache cache;
+    private final JarKey key;
+
+    private CachedJar(BytecodeCache cache, JarKey key) {
+      this.cache = cache;
+      this.key = key;
+    }
+
+    /**
+     * The returned array is shared by all the readers of the entry and must not be modified.
+     */
+    byte[] bytes(String entryName, BytesReader reader) throws IOException {
+      return cache.bytes(new EntryKey(key, entryName), reader);
+    }
+  }
+
+  private static final class JarKey {
+    private final String path;
+    private final long lastModified;
+    private final long length;
+
+    JarKey(File jar) {
+      this.path = jar.getAbsolutePath();
+      this.lastModified = jar.lastModified();
+      this.length = jar.length();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      JarKey jarKey = (JarKey) o;
+      return lastModified == jarKey.lastModified && length == jarKey.length && path.equals(jarKey.path);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(path, lastModified, length);
+    }
+  }
+
+  private static final class EntryKey {
+    private final JarKey jar;
+    private final String name;
+
+    EntryKey(JarKey jar, String name) {
+      this.jar = jar;
+      this.name = name;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      EntryKey entryKey = (EntryKey) o;
+      return name.equals(entryKey.name) && jar.equals(entryKey.jar);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(jar, name);
+    }
+  }
+}
@@ -19,17 +19,27 @@
  */
 package org.sonar.java.bytecode.loader;
 
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.file.FileVisitOption;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
 
 class FileSystemLoader implements Loader {
 
+  private static final Logger LOG = Loggers.get(FileSystemLoader.class);
+
   private Path baseDirPath;
 
   public FileSystemLoader(@Nullable File baseDir) {
@@ -72,6 +82,24 @@ class FileSystemLoader implements Loader {
     }
   }
 
+  @CheckForNull
+  @Override
+  public Set<String> packages() {
+    if (baseDirPath == null) {
+      throw new IllegalStateException("Loader closed");
+    }
+    // links are followed, as they are when resources are looked up
+    try (Stream<Path> files = Files.walk(baseDirPath, FileVisitOption.FOLLOW_LINKS)) {
+      return files
+        .filter(Files::isRegularFile)
+        .map(file -> SquidClassLoader.packageName(baseDirPath.relativize(file).toString().replace(File.separatorChar, '/')))
+        .collect(Collectors.toSet());
+    } catch (IOException | UncheckedIOException e) {
+      LOG.debug("Unable to list files of " + baseDirPath + ", all packages are looked up in it", e);
+      return null;
+    }
+  }
+
   @Override
   public void close() {
     baseDirPath = null;
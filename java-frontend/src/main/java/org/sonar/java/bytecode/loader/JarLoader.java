@@ -19,9 +19,12 @@
  */
 package org.sonar.java.bytecode.loader;
 
+import com.google.common.io.ByteStreams;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 
-import java.io.ByteArrayOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -29,6 +32,10 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.net.URLStreamHandler;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.zip.ZipEntry;
 
@@ -36,6 +43,8 @@ class JarLoader implements Loader {
 
   private final JarFile jarFile;
   private final URL jarUrl;
+  @Nullable
+  private BytecodeCache.CachedJar cachedJar;
 
   /**
    * @throws IllegalStateException if an I/O error has occurred
@@ -50,6 +59,7 @@ class JarLoader implements Loader {
     } catch (IOException e) {
       throw new IllegalStateException("Unable to open " + file.getAbsolutePath(), e);
     }
+    cachedJar = BytecodeCache.instance().jar(file);
   }
 
   @Override
@@ -65,6 +75,9 @@ class JarLoader implements Loader {
     return null;
   }
 
+  /**
+   * The returned array is shared with other loaders of the same jar and must not be modified.
+   */
   @Override
   public byte[] loadBytes(String name) {
     try {
@@ -72,16 +85,7 @@ class JarLoader implements Loader {
       if (entry == null) {
         return new byte[0];
       }
-
-      try (InputStream is = jarFile.getInputStream(entry)) {
-        byte[] buffer = new byte[8192];
-        ByteArrayOutputStream array = new ByteArrayOutputStream((int) entry.getSize());
-        int i;
-        while ((i = is.read(buffer)) >= 0) {
-          array.write(buffer, 0, i);
-        }
-        return array.toByteArray();
-      }
+      return bytes(entry);
     } catch (IOException e) {
       // TODO Godin: not sure that we should silently ignore exception here,
       // e.g. it can be thrown if file corrupted
@@ -89,8 +93,62 @@ class JarLoader implements Loader {
     }
   }
 
+  private byte[] bytes(ZipEntry entry) throws IOException {
+    BytecodeCache.CachedJar cache = cachedJar;
+    if (cache == null) {
+      return readBytes(entry);
+    }
+    return cache.bytes(entry.getName(), () -> readBytes(entry));
+  }
+
+  /**
+   * When the size of the entry is known from the central directory of the jar, entry is inflated straight into an array of
+   * the exact size, without intermediate buffer. As this size is not checked against the content of the entry, it is read again
+   * through a buffer when it turns out to be wrong.
+   */
+  private byte[] readBytes(ZipEntry entry) throws IOException {
+    long size = entry.getSize();
+    if (size >= 0 && size <= Integer.MAX_VALUE) {
+      byte[] bytes = readBytes(entry, (int) size);
+      if (bytes != null) {
+        return bytes;
+      }
+    }
+    try (InputStream is = jarFile.getInputStream(entry)) {
+      return ByteStreams.toByteArray(is);
+    }
+  }
+
+  /**
+   * @return content of the entry, or null if it does not have the given size
+   */
+  @CheckForNull
+  private byte[] readBytes(ZipEntry entry, int size) throws IOException {
+    try (InputStream is = jarFile.getInputStream(entry)) {
+      byte[] bytes = new byte[size];
+      ByteStreams.readFully(is, bytes);
+      return is.read() == -1 ? bytes : null;
+    } catch (EOFException e) {
+      return null;
+    }
+  }
+
+  @Override
+  public Set<String> packages() {
+    Set<String> packages = new HashSet<>();
+    Enumeration<JarEntry> entries = jarFile.entries();
+    while (entries.hasMoreElements()) {
+      JarEntry entry = entries.nextElement();
+      if (!entry.isDirectory()) {
+        packages.add(SquidClassLoader.packageName(entry.getName()));
+      }
+    }
+    return packages;
+  }
+
   @Override
   public void close() {
+    cachedJar = null;
     try {
       jarFile.close();
     } catch (IOException e) {
@@ -121,10 +179,28 @@ class JarLoader implements Loader {
 
         @Override
         public InputStream getInputStream() throws IOException {
-          return jarFile.getInputStream(entry);
+          return new EntryInputStream(bytes(entry));
         }
       };
     }
   }
 
+  /**
+   * Gives access to the bytes of the entry without copying them, see {@link SquidClassLoader#getBytesForClass(String)}.
+   */
+  static class EntryInputStream extends ByteArrayInputStream {
+
+    EntryInputStream(byte[] bytes) {
+      super(bytes);
+    }
+
+    /**
+     * @return bytes of the entry, which must not be modified, or null if the stream has already been read
+     */
+    @CheckForNull
+    byte[] unreadBytes() {
+      return pos == 0 && count == buf.length ? buf : null;
+    }
+  }
+
 }
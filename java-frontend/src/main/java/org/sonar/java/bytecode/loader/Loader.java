@@ -20,6 +20,8 @@
 package org.sonar.java.bytecode.loader;
 
 import java.net.URL;
+import java.util.Set;
+import javax.annotation.CheckForNull;
 
 /**
  * Specifies resource loading behavior.
@@ -46,6 +48,15 @@ interface Loader {
    */
   byte[] loadBytes(String name);
 
+  /**
+   * Lists the packages in which this loader can find resources, so that it can be skipped when looking for resources of other packages.
+   *
+   * @return names of the packages, using '/' as separator, the default package being the empty string, or null if they can
+   *         not be listed, the loader being then queried for resources of any package
+   */
+  @CheckForNull
+  Set<String> packages();
+
   /**
    * Closes this loader, so that it can no longer be used to load new resources.
    * If loader is already closed, then invoking this method has no effect.
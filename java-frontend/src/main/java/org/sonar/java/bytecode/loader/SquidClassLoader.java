@@ -28,8 +28,13 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 import javax.annotation.CheckForNull;
 import org.apache.commons.lang.ArrayUtils;
 import org.sonar.api.utils.log.Logger;
@@ -44,6 +49,9 @@ public class SquidClassLoader extends ClassLoader implements Closeable {
   private static final Logger LOG = Loggers.get(SquidClassLoader.class);
 
   private final List<Loader> loaders;
+  private final Map<String, List<Loader>> loadersByPackage = new HashMap<>();
+  // loaders whose packages can not be listed
+  private final List<Loader> loadersOfAnyPackage = new ArrayList<>();
 
   /**
    * @param files ordered list of files and directories from which to load classes and resources
@@ -62,12 +70,45 @@ public class SquidClassLoader extends ClassLoader implements Closeable {
         }
       }
     }
+    for (Loader loader : loaders) {
+      Set<String> packages = loader.packages();
+      if (packages == null) {
+        loadersOfAnyPackage.add(loader);
+        continue;
+      }
+      for (String packageName : packages) {
+        loadersByPackage.computeIfAbsent(packageName, k -> new ArrayList<>()).add(loader);
+      }
+    }
+  }
+
+  /**
+   * @param resourceName name of a resource, using '/' as separator
+   * @return the package of the resource, the default package being the empty string
+   */
+  static String packageName(String resourceName) {
+    int lastSlash = resourceName.lastIndexOf('/');
+    return lastSlash < 0 ? "" : resourceName.substring(0, lastSlash);
+  }
+
+  /**
+   * Only loaders owning the package of a resource can find it: others are not queried.
+   */
+  private List<Loader> loadersFor(String resourceName) {
+    List<Loader> packageLoaders = loadersByPackage.getOrDefault(packageName(resourceName), Collections.emptyList());
+    if (loadersOfAnyPackage.isEmpty()) {
+      return packageLoaders;
+    }
+    // loaders are queried in the order of the classpath
+    return loaders.stream()
+      .filter(loader -> packageLoaders.contains(loader) || loadersOfAnyPackage.contains(loader))
+      .collect(Collectors.toList());
   }
 
   @Override
   protected Class findClass(String name) throws ClassNotFoundException {
     String resourceName = name.replace('.', '/') + ".class";
-    for (Loader loader : loaders) {
+    for (Loader loader : loadersFor(resourceName)) {
       byte[] classBytes = loader.loadBytes(resourceName);
       if (ArrayUtils.isNotEmpty(classBytes)) {
         // TODO Godin: definePackage ?
@@ -79,7 +120,7 @@ public class SquidClassLoader extends ClassLoader implements Closeable {
 
   @Override
   public URL findResource(String name) {
-    for (Loader loader : loaders) {
+    for (Loader loader : loadersFor(name)) {
       URL url = loader.findResource(name);
       if (url != null) {
         return url;
@@ -91,7 +132,7 @@ public class SquidClassLoader extends ClassLoader implements Closeable {
   @Override
   protected Enumeration<URL> findResources(String name) throws IOException {
     List<URL> result = new ArrayList<>();
-    for (Loader loader : loaders) {
+    for (Loader loader : loadersFor(name)) {
       URL url = loader.findResource(name);
       if (url != null) {
         result.add(url);
@@ -105,7 +146,7 @@ public class SquidClassLoader extends ClassLoader implements Closeable {
    * returned array without issues.
    *
    * @param className canonical name of the class (e.g. org.acme.Foo )
-   * @return bytes or null if class is not found
+   * @return bytes or null if class is not found. Bytes read from jars are shared and must not be modified.
    */
   @CheckForNull
   public byte[] getBytesForClass(String className) {
@@ -114,6 +155,12 @@ public class SquidClassLoader extends ClassLoader implements Closeable {
         LOG.debug(".class not found for {}", className);
         return null;
       }
+      if (is instanceof JarLoader.EntryInputStream) {
+        byte[] bytes = ((JarLoader.EntryInputStream) is).unreadBytes();
+        if (bytes != null) {
+          return bytes;
+        }
+      }
       return ByteStreams.toByteArray(is);
     } catch (IOException e) {
       throw Throwables.propagate(e);
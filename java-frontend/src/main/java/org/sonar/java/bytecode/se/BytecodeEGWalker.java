@@ -48,6 +48,7 @@ import org.sonar.java.se.ExplodedGraphWalker;
 import org.sonar.java.se.Pair;
 import org.sonar.java.se.ProgramPoint;
 import org.sonar.java.se.ProgramState;
+import org.sonar.java.se.SymbolicExecutionBudget;
 import org.sonar.java.se.checks.DivisionByZeroCheck;
 import org.sonar.java.se.constraint.BooleanConstraint;
 import org.sonar.java.se.constraint.Constraint;
@@ -221,7 +222,6 @@ public class BytecodeEGWalker {
 
   private static final Logger LOG = Loggers.get(BytecodeEGWalker.class);
   private static final int MAX_EXEC_PROGRAM_POINT = 2;
-  private static final int MAX_STEPS = 16_000;
 
   private final BehaviorCache behaviorCache;
   private final SemanticModel semanticModel;
@@ -263,6 +263,7 @@ public class BytecodeEGWalker {
   ProgramPoint programPosition;
   ProgramState programState;
   int steps;
+  long retainedBytes;
   private Set<ExplodedGraph.Node> endOfExecutionPath;
   private ConstraintManager constraintManager;
   MethodBehavior methodBehavior;
@@ -297,6 +298,8 @@ public class BytecodeEGWalker {
         LOG.debug("Dataflow analysis is incomplete for method {} : {}", signature, e.getMessage());
       } catch (Exception e) {
         throw new BytecodeAnalysisException("Failed dataflow analysis for " + signature, e);
+      } finally {
+        behaviorCache.budget().consume(retainedBytes);
       }
     }
     return methodBehavior;
@@ -308,7 +311,7 @@ public class BytecodeEGWalker {
 
   @VisibleForTesting
   int maxSteps() {
-    return MAX_STEPS;
+    return behaviorCache.budget().maxSteps();
   }
 
   private void execute(String signature, SquidClassLoader classLoader) {
@@ -326,6 +329,9 @@ public class BytecodeEGWalker {
     }
     exitBlock = bytecodeCFG.exitBlock();
     steps = 0;
+    retainedBytes = 0;
+    SymbolicExecutionBudget budget = behaviorCache.budget();
+    long deadline = budget.methodDeadline();
     for (ProgramState startingState : startingStates(signature, ProgramState.EMPTY_STATE, lookup.isStatic)) {
       enqueue(new ProgramPoint(bytecodeCFG.entry()), startingState);
     }
@@ -334,6 +340,14 @@ public class BytecodeEGWalker {
       if (steps > maxSteps()) {
         throw new ExplodedGraphWalker.MaximumStepsReachedException("Too many steps resolving "+methodBehavior.signature());
       }
+      SymbolicExecutionBudget.Reason memoryReason = budget.memoryReason(retainedBytes);
+      if (memoryReason != null) {
+        throw new ExplodedGraphWalker.BudgetExhaustedException("Exhausted " + memoryReason + " budget resolving " + methodBehavior.signature(), memoryReason);
+      }
+      if ((steps & 0xFF) == 0 && SymbolicExecutionBudget.hasDeadline(deadline) && System.nanoTime() >= deadline) {
+        SymbolicExecutionBudget.Reason reason = budget.timeoutReason();
+        throw new ExplodedGraphWalker.BudgetExhaustedException("Exhausted " + reason + " budget resolving " + methodBehavior.signature(), reason);
+      }
       // LIFO:
       setNode(workList.removeFirst());
       if (programPosition.block.successors().isEmpty()) {
@@ -983,6 +997,7 @@ public class BytecodeEGWalker {
     ExplodedGraph.Node cachedNode = explodedGraph.node(pp, ps);
     cachedNode.addParent(node, null);
     if (cachedNode.isNew()) {
+      retainedBytes += SymbolicExecutionBudget.estimatedRetainedBytes(ps);
       workList.addFirst(cachedNode);
     }
   }
@@ -0,0 +1,63 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.cfg;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import org.sonar.java.model.DefaultJavaFileScannerContext;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+import org.sonar.plugins.java.api.tree.MethodTree;
+
+/**
+ * Builds the control flow graph of each method of a file at most once, as well as the analyses derived from it, and shares
+ * them between all the visitors of the file. Graphs and live variables are never modified once computed.
+ */
+public class CFGProvider {
+
+  private final Map<MethodTree, CFG> cfgs = new IdentityHashMap<>();
+  private final Map<MethodTree, LiveVariables> liveVariables = new IdentityHashMap<>();
+  private final Map<MethodTree, LiveVariables> liveVariablesWithFields = new IdentityHashMap<>();
+
+  /**
+   * @return the provider shared by the visitors of the file, or a new one when the context does not come from the analyzer.
+   */
+  public static CFGProvider of(JavaFileScannerContext context) {
+    if (context instanceof DefaultJavaFileScannerContext) {
+      return ((DefaultJavaFileScannerContext) context).cfgProvider();
+    }
+    return new CFGProvider();
+  }
+
+  /**
+   * @param tree method with a body
+   */
+  public CFG cfg(MethodTree tree) {
+    return cfgs.computeIfAbsent(tree, CFG::build);
+  }
+
+  public LiveVariables liveVariables(MethodTree tree) {
+    return liveVariables.computeIfAbsent(tree, t -> LiveVariables.analyze(cfg(t)));
+  }
+
+  public LiveVariables liveVariablesWithFields(MethodTree tree) {
+    return liveVariablesWithFields.computeIfAbsent(tree, t -> LiveVariables.analyzeWithFields(cfg(t)));
+  }
+
+}
@@ -47,7 +47,7 @@ abstract class AVLTree<K, V> implements PMap<K, V>, PSet<K> {
   @SuppressWarnings("unchecked")
   @Override
   public AVLTree<K, V> add(K e) {
-    return put(e, e, this);
+    return put(e, e, false, this);
   }
 
   @Override
@@ -60,7 +60,15 @@ abstract class AVLTree<K, V> implements PMap<K, V>, PSet<K> {
   public AVLTree<K, V> put(K key, V value) {
     Preconditions.checkNotNull(key);
     Preconditions.checkNotNull(value);
-    return put(key, value, this);
+    return put(key, value, false, this);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public AVLTree<K, V> putInstance(K key, V value) {
+    Preconditions.checkNotNull(key);
+    Preconditions.checkNotNull(value);
+    return put(key, value, true, this);
   }
 
   @SuppressWarnings("unchecked")
@@ -140,7 +148,7 @@ abstract class AVLTree<K, V> implements PMap<K, V>, PSet<K> {
 
   protected abstract int height();
 
-  private static AVLTree put(Object key, Object value, AVLTree t) {
+  private static AVLTree put(Object key, Object value, boolean sameInstance, AVLTree t) {
     if (t.isEmpty()) {
       return createNode(t, key, value, null, t);
     }
@@ -149,24 +157,24 @@ abstract class AVLTree<K, V> implements PMap<K, V>, PSet<K> {
     if (h == c) {
       final AVLTree nextInBucket = t.nextInBucket();
       if (key.equals(t.key())) {
-        if (value.equals(t.value())) {
+        if (sameValue(value, t.value(), sameInstance)) {
           return t;
         }
         return createNode(t.left(), key, value, nextInBucket, t.right());
       }
       final AVLTree nodeToReplace = searchInBucket(key, nextInBucket);
-      if (nodeToReplace != null && value.equals(nodeToReplace.value())) {
+      if (nodeToReplace != null && sameValue(value, nodeToReplace.value(), sameInstance)) {
         return t;
       }
       return createNode(t.left(), key, value, createBucket(t.key(), t.value(), removeFromBucket(nextInBucket, nodeToReplace)), t.right());
     } else if (h < c) {
-      AVLTree left = put(key, value, t.left());
+      AVLTree left = put(key, value, sameInstance, t.left());
       if (left == t.left()) {
         return t;
       }
       return balance(left, t, t.right());
     } else {
-      AVLTree right = put(key, value, t.right());
+      AVLTree right = put(key, value, sameInstance, t.right());
       if (right == t.right()) {
         return t;
       }
@@ -174,6 +182,10 @@ abstract class AVLTree<K, V> implements PMap<K, V>, PSet<K> {
     }
   }
 
+  private static boolean sameValue(Object value, Object existing, boolean sameInstance) {
+    return sameInstance ? (value == existing) : value.equals(existing);
+  }
+
   private static AVLTree remove(Object key, AVLTree t) {
     if (t.isEmpty()) {
       return t;
@@ -0,0 +1,455 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.collections;
+
+import com.google.common.base.Preconditions;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
+
+/**
+ * Hash Array Mapped Trie.
+ *
+ * https://en.wikipedia.org/wiki/Hash_array_mapped_trie
+ *
+ * The shape of the trie only depends on its entries: nodes holding a single entry are always inlined in their parent.
+ * Equality can then be checked node by node, and shared or differently hashed subtrees are compared in constant time.
+ */
+final class HashArrayMappedTrie<K, V> implements PMap<K, V>, PSet<K> {
+
+  private static final int BITS = 5;
+  private static final int MASK = (1 << BITS) - 1;
+
+  private static final Node[] NO_CHILDREN = new Node[0];
+  private static final HashArrayMappedTrie EMPTY = new HashArrayMappedTrie(new Bitmap(0, NO_CHILDREN));
+
+  private final Bitmap root;
+
+  private HashArrayMappedTrie(Bitmap root) {
+    this.root = root;
+  }
+
+  /**
+   * @return empty trie
+   */
+  @SuppressWarnings("unchecked")
+  static <K, V> HashArrayMappedTrie<K, V> create() {
+    return EMPTY;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public HashArrayMappedTrie<K, V> add(K e) {
+    Preconditions.checkNotNull(e);
+    return put(new Leaf(e, e), false);
+  }
+
+  @Override
+  public boolean contains(K k) {
+    return get(k) != null;
+  }
+
+  @Override
+  public HashArrayMappedTrie<K, V> put(K key, V value) {
+    Preconditions.checkNotNull(key);
+    Preconditions.checkNotNull(value);
+    return put(new Leaf(key, value), false);
+  }
+
+  @Override
+  public HashArrayMappedTrie<K, V> putInstance(K key, V value) {
+    Preconditions.checkNotNull(key);
+    Preconditions.checkNotNull(value);
+    return put(new Leaf(key, value), true);
+  }
+
+  private HashArrayMappedTrie<K, V> put(Leaf leaf, boolean sameInstance) {
+    Bitmap newRoot = root.put(leaf, 0, sameInstance);
+    return newRoot == root ? this : new HashArrayMappedTrie<>(newRoot);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public HashArrayMappedTrie<K, V> remove(K key) {
+    Preconditions.checkNotNull(key);
+    Bitmap newRoot = root.remove(key, key.hashCode(), 0);
+    if (newRoot == root) {
+      return this;
+    }
+    return newRoot.children.length == 0 ? EMPTY : new HashArrayMappedTrie<>(newRoot);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Nullable
+  @Override
+  public V get(K key) {
+    Preconditions.checkNotNull(key);
+    Leaf leaf = root.find(key, key.hashCode(), 0);
+    return leaf == null ? null : (V) leaf.value;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public void forEach(Consumer<K> action) {
+    root.forEach(leaf -> action.accept((K) leaf.key));
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public void forEach(BiConsumer<K, V> action) {
+    root.forEach(leaf -> action.accept((K) leaf.key, (V) leaf.value));
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return root.children.length == 0;
+  }
+
+  @Override
+  public int hashCode() {
+    return root.hash;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return this == obj || (obj instanceof HashArrayMappedTrie && root.sameAs(((HashArrayMappedTrie) obj).root));
+  }
+
+  @Override
+  public String toString() {
+    List<Leaf> leaves = new ArrayList<>();
+    root.forEach(leaves::add);
+    leaves.sort(Comparator.comparingInt(leaf -> leaf.keyHash));
+    StringBuilder sb = new StringBuilder();
+    leaves.forEach(leaf -> sb.append(' ').append(leaf.key).append("->").append(leaf.value));
+    return sb.toString();
+  }
+
+  private static int bit(int keyHash, int shift) {
+    return 1 << ((keyHash >>> shift) & MASK);
+  }
+
+  /**
+   * @return trie of the given nodes, which do not have the same key hash
+   */
+  private static boolean sameValue(Object value, Object existing, boolean sameInstance) {
+    return sameInstance ? (value == existing) : value.equals(existing);
+  }
+
+  private static Node merge(KeyedNode a, KeyedNode b, int shift) {
+    int bitA = bit(a.keyHash, shift);
+    int bitB = bit(b.keyHash, shift);
+    if (bitA == bitB) {
+      return new Bitmap(bitA, new Node[] {merge(a, b, shift + BITS)});
+    }
+    // children are ordered by their bit
+    Node[] children = Integer.compareUnsigned(bitA, bitB) < 0 ? new Node[] {a, b} : new Node[] {b, a};
+    return new Bitmap(bitA | bitB, children);
+  }
+
+  private abstract static class Node {
+    final int hash;
+
+    Node(int hash) {
+      this.hash = hash;
+    }
+
+    /**
+     * @param sameInstance whether an existing value is kept only if it is the very instance of the new one, rather than an equal one
+     */
+    abstract Node put(Leaf leaf, int shift, boolean sameInstance);
+
+    /**
+     * @return node without the given key, or null if nothing remains
+     */
+    @Nullable
+    abstract Node remove(Object key, int keyHash, int shift);
+
+    @Nullable
+    abstract Leaf find(Object key, int keyHash, int shift);
+
+    abstract void forEach(Consumer<Leaf> action);
+
+    /**
+     * Tries are canonical: nodes of equal tries have the same kind and the same position.
+     */
+    final boolean sameAs(Node other) {
+      return this == other || (hash == other.hash && getClass() == other.getClass() && sameContentAs(other));
+    }
+
+    abstract boolean sameContentAs(Node other);
+  }
+
+  /**
+   * Node for which all entries have the same key hash.
+   */
+  private abstract static class KeyedNode extends Node {
+    final int keyHash;
+
+    KeyedNode(int hash, int keyHash) {
+      super(hash);
+      this.keyHash = keyHash;
+    }
+  }
+
+  private static final class Leaf extends KeyedNode {
+    final Object key;
+    final Object value;
+
+    Leaf(Object key, Object value) {
+      this(key, value, key.hashCode());
+    }
+
+    private Leaf(Object key, Object value, int keyHash) {
+      // the key is multiplied by 31 to avoid K ^ V == 0 when K == V in case of set
+      super((31 * keyHash) ^ value.hashCode(), keyHash);
+      this.key = key;
+      this.value = value;
+    }
+
+    @Override
+    Node put(Leaf leaf, int shift, boolean sameInstance) {
+      if (keyHash != leaf.keyHash) {
+        return merge(this, leaf, shift);
+      }
+      if (key.equals(leaf.key)) {
+        return sameValue(leaf.value, value, sameInstance) ? this : leaf;
+      }
+      return new Collision(keyHash, new Leaf[] {this, leaf});
+    }
+
+    @Nullable
+    @Override
+    Node remove(Object key, int keyHash, int shift) {
+      return this.keyHash == keyHash && this.key.equals(key) ? null : this;
+    }
+
+    @Nullable
+    @Override
+    Leaf find(Object key, int keyHash, int shift) {
+      return this.keyHash == keyHash && this.key.equals(key) ? this : null;
+    }
+
+    @Override
+    void forEach(Consumer<Leaf> action) {
+      action.accept(this);
+    }
+
+    @Override
+    boolean sameContentAs(Node other) {
+      Leaf leaf = (Leaf) other;
+      return key.equals(leaf.key) && value.equals(leaf.value);
+    }
+  }
+
+  private static final class Collision extends KeyedNode {
+    final Leaf[] leaves;
+
+    Collision(int keyHash, Leaf[] leaves) {
+      super(hashOf(leaves), keyHash);
+      this.leaves = leaves;
+    }
+
+    @Override
+    Node put(Leaf leaf, int shift, boolean sameInstance) {
+      if (keyHash != leaf.keyHash) {
+        return merge(this, leaf, shift);
+      }
+      int index = indexOf(leaf.key);
+      if (index < 0) {
+        Leaf[] newLeaves = new Leaf[leaves.length + 1];
+        System.arraycopy(leaves, 0, newLeaves, 0, leaves.length);
+        newLeaves[leaves.length] = leaf;
+        return new Collision(keyHash, newLeaves);
+      }
+      if (sameValue(leaf.value, leaves[index].value, sameInstance)) {
+        return this;
+      }
+      Leaf[] newLeaves = leaves.clone();
+      newLeaves[index] = leaf;
+      return new Collision(keyHash, newLeaves);
+    }
+
+    @Override
+    Node remove(Object key, int keyHash, int shift) {
+      int index = this.keyHash == keyHash ? indexOf(key) : -1;
+      if (index < 0) {
+        return this;
+      }
+      if (leaves.length == 2) {
+        return leaves[1 - index];
+      }
+      Leaf[] newLeaves = new Leaf[leaves.length - 1];
+      System.arraycopy(leaves, 0, newLeaves, 0, index);
+      System.arraycopy(leaves, index + 1, newLeaves, index, newLeaves.length - index);
+      return new Collision(keyHash, newLeaves);
+    }
+
+    @Nullable
+    @Override
+    Leaf find(Object key, int keyHash, int shift) {
+      int index = this.keyHash == keyHash ? indexOf(key) : -1;
+      return index < 0 ? null : leaves[index];
+    }
+
+    private int indexOf(Object key) {
+      for (int i = 0; i < leaves.length; i++) {
+        if (leaves[i].key.equals(key)) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    @Override
+    void forEach(Consumer<Leaf> action) {
+      for (Leaf leaf : leaves) {
+        action.accept(leaf);
+      }
+    }
+
+    @Override
+    boolean sameContentAs(Node other) {
+      Collision collision = (Collision) other;
+      if (leaves.length != collision.leaves.length) {
+        return false;
+      }
+      // order of leaves depends on the order of insertion
+      for (Leaf leaf : leaves) {
+        Leaf otherLeaf = collision.find(leaf.key, keyHash, 0);
+        if (otherLeaf == null || !leaf.value.equals(otherLeaf.value)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  private static final class Bitmap extends Node {
+    final int bitmap;
+    final Node[] children;
+
+    Bitmap(int bitmap, Node[] children) {
+      super(hashOf(children));
+      this.bitmap = bitmap;
+      this.children = children;
+    }
+
+    private int index(int bit) {
+      return Integer.bitCount(bitmap & (bit - 1));
+    }
+
+    @Override
+    Bitmap put(Leaf leaf, int shift, boolean sameInstance) {
+      int bit = bit(leaf.keyHash, shift);
+      int index = index(bit);
+      if ((bitmap & bit) == 0) {
+        Node[] newChildren = new Node[children.length + 1];
+        System.arraycopy(children, 0, newChildren, 0, index);
+        newChildren[index] = leaf;
+        System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+        return new Bitmap(bitmap | bit, newChildren);
+      }
+      Node child = children[index];
+      Node newChild = child.put(leaf, shift + BITS, sameInstance);
+      return newChild == child ? this : withChild(index, newChild);
+    }
+
+    /**
+     * @return node without the given key, which is never null but can be empty in the case of the root
+     */
+    @Override
+    Bitmap remove(Object key, int keyHash, int shift) {
+      int bit = bit(keyHash, shift);
+      if ((bitmap & bit) == 0) {
+        return this;
+      }
+      int index = index(bit);
+      Node child = children[index];
+      Node newChild = child.remove(key, keyHash, shift + BITS);
+      if (newChild == child) {
+        return this;
+      }
+      if (newChild == null) {
+        Node[] newChildren = new Node[children.length - 1];
+        System.arraycopy(children, 0, newChildren, 0, index);
+        System.arraycopy(children, index + 1, newChildren, index, newChildren.length - index);
+        return new Bitmap(bitmap & ~bit, newChildren);
+      }
+      if (newChild instanceof Bitmap) {
+        Bitmap newBitmap = (Bitmap) newChild;
+        if (newBitmap.children.length == 1 && !(newBitmap.children[0] instanceof Bitmap)) {
+          // a single entry is always stored as high as possible
+          newChild = newBitmap.children[0];
+        }
+      }
+      return withChild(index, newChild);
+    }
+
+    private Bitmap withChild(int index, Node newChild) {
+      Node[] newChildren = children.clone();
+      newChildren[index] = newChild;
+      return new Bitmap(bitmap, newChildren);
+    }
+
+    @Nullable
+    @Override
+    Leaf find(Object key, int keyHash, int shift) {
+      int bit = bit(keyHash, shift);
+      if ((bitmap & bit) == 0) {
+        return null;
+      }
+      return children[index(bit)].find(key, keyHash, shift + BITS);
+    }
+
+    @Override
+    void forEach(Consumer<Leaf> action) {
+      for (Node child : children) {
+        child.forEach(action);
+      }
+    }
+
+    @Override
+    boolean sameContentAs(Node other) {
+      Bitmap otherBitmap = (Bitmap) other;
+      if (bitmap != otherBitmap.bitmap) {
+        return false;
+      }
+      for (int i = 0; i < children.length; i++) {
+        if (!children[i].sameAs(otherBitmap.children[i])) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  private static int hashOf(Node[] nodes) {
+    int hash = 0;
+    for (Node node : nodes) {
+      hash += node.hash;
+    }
+    return hash;
+  }
+
+}
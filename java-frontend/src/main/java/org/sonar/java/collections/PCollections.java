@@ -21,17 +21,46 @@ package org.sonar.java.collections;
 
 public final class PCollections {
 
+  public enum Implementation {
+    AVL_TREE, HAMT
+  }
+
   private PCollections() {
   }
 
+  /**
+   * @return empty set of the default implementation, {@link Implementation#AVL_TREE}
+   */
   public static <E> PSet<E> emptySet() {
     return AVLTree.create();
   }
 
+  public static <E> PSet<E> emptySet(Implementation implementation) {
+    return implementation == Implementation.HAMT ? HashArrayMappedTrie.create() : AVLTree.create();
+  }
+
+  /**
+   * @return empty map of the default implementation, {@link Implementation#AVL_TREE}
+   */
   public static <E, V> PMap<E, V> emptyMap() {
     return AVLTree.create();
   }
 
+  /**
+   * Maps and sets of different implementations are never equal: a program has to use a single implementation for the
+   * collections it compares.
+   */
+  public static <E, V> PMap<E, V> emptyMap(Implementation implementation) {
+    return implementation == Implementation.HAMT ? HashArrayMappedTrie.create() : AVLTree.create();
+  }
+
+  /**
+   * @return empty map of the implementation of the given map
+   */
+  public static <E, V> PMap<E, V> emptyMapLike(PMap<?, ?> map) {
+    return map instanceof HashArrayMappedTrie ? HashArrayMappedTrie.create() : AVLTree.create();
+  }
+
   public static <E> PStack<E> emptyStack() {
     return SinglyLinkedList.EMPTY;
   }
@@ -36,6 +36,13 @@ public interface PMap<K, V> {
    */
   PMap<K, V> put(K key, V value);
 
+  /**
+   * Unlike {@link #put(Object, Object)}, replaces a value equal to the given one when it is another instance.
+   *
+   * @return new map with added key-value pair, or this if map already associates given key with this very value instance
+   */
+  PMap<K, V> putInstance(K key, V value);
+
   /**
    * @return new map with removed key, or this if map does not contain given key
    */
@@ -34,6 +34,7 @@ import org.sonar.plugins.java.api.tree.MethodTree;
 import org.sonar.plugins.java.api.tree.NewClassTree;
 import org.sonar.plugins.java.api.tree.Tree;
 
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 
 public class MethodMatcher {
@@ -41,6 +42,8 @@ public class MethodMatcher {
   private TypeCriteria typeDefinition;
   private TypeCriteria callSite;
   private NameCriteria methodName;
+  @Nullable
+  private String exactName;
 
   private ParametersCriteria parameters;
   private List<TypeCriteria> parameterTypes;
@@ -54,6 +57,7 @@ public class MethodMatcher {
     copy.typeDefinition = typeDefinition;
     copy.callSite = callSite;
     copy.methodName = methodName;
+    copy.exactName = exactName;
     copy.parameterTypes = parameterTypes == null ? null : new ArrayList<>(parameterTypes);
     copy.parameters = parameterTypes == null ? null : ParametersCriteria.of(copy.parameterTypes);
     return copy;
@@ -62,6 +66,7 @@ public class MethodMatcher {
   public MethodMatcher name(String methodName) {
     Preconditions.checkState(this.methodName == null);
     this.methodName = NameCriteria.is(methodName);
+    this.exactName = methodName;
     return this;
   }
 
@@ -135,6 +140,14 @@ public class MethodMatcher {
     return this;
   }
 
+  /**
+   * @return the name of the matched methods, when given as an exact name
+   */
+  @CheckForNull
+  String exactName() {
+    return exactName;
+  }
+
   public boolean matches(NewClassTree newClassTree) {
     return matches(newClassTree.constructorSymbol(), null);
   }
@@ -170,14 +183,10 @@ public class MethodMatcher {
   }
 
   private boolean isSearchedMethod(MethodSymbol symbol, @Nullable Type callSiteType) {
-    boolean result = nameAcceptable(symbol) && parametersAcceptable(symbol);
-    if (typeDefinition != null) {
-      result &= typeDefinition.test(symbol.owner().type());
-    }
-    if (callSite != null) {
-      result &= callSiteType != null && callSite.test(callSiteType);
-    }
-    return result;
+    // type criteria are only evaluated once the cheaper name and parameters criteria accepted the method
+    return nameAcceptable(symbol) && parametersAcceptable(symbol)
+      && (typeDefinition == null || typeDefinition.test(symbol.owner().type()))
+      && (callSite == null || (callSiteType != null && callSite.test(callSiteType)));
   }
 
   private boolean nameAcceptable(MethodSymbol symbol) {
@@ -190,7 +199,7 @@ public class MethodMatcher {
     return parameters.test(methodSymbol.parameterTypes());
   }
 
-  private static IdentifierTree getIdentifier(MethodInvocationTree mit) {
+  static IdentifierTree getIdentifier(MethodInvocationTree mit) {
     // methodSelect can only be Tree.Kind.IDENTIFIER or Tree.Kind.MEMBER_SELECT
     if (mit.methodSelect().is(Tree.Kind.IDENTIFIER)) {
       return (IdentifierTree) mit.methodSelect();
@@ -19,20 +19,27 @@
  */
 package org.sonar.java.matcher;
 
-import com.google.common.collect.Lists;
-
 import org.sonar.plugins.java.api.semantic.Symbol;
 import org.sonar.plugins.java.api.tree.MethodInvocationTree;
 import org.sonar.plugins.java.api.tree.MethodTree;
 import org.sonar.plugins.java.api.tree.NewClassTree;
 
+import javax.annotation.Nullable;
+
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 public class MethodMatcherCollection {
 
-  private List<MethodMatcher> matchers = Lists.newLinkedList();
+  private List<MethodMatcher> matchers = new ArrayList<>();
+  @Nullable
+  private Index index;
 
   private MethodMatcherCollection() {
   }
@@ -45,11 +52,13 @@ public class MethodMatcherCollection {
 
   public MethodMatcherCollection add(MethodMatcher matcher) {
     this.matchers.add(matcher);
+    index = null;
     return this;
   }
 
   public MethodMatcherCollection addAll(Collection<MethodMatcher> matchers) {
     this.matchers.addAll(matchers);
+    index = null;
     return this;
   }
 
@@ -58,38 +67,60 @@ public class MethodMatcherCollection {
       // prevent looping on all the matchers for no reason
       return false;
     }
-    for (MethodMatcher matcher : matchers) {
-      if (matcher.matches(symbol)) {
-        return true;
-      }
-    }
-    return false;
+    return anyMatch(() -> symbol, matcher -> matcher.matches(symbol));
   }
 
   public boolean anyMatch(MethodInvocationTree mit) {
-    for (MethodMatcher matcher : matchers) {
-      if (matcher.matches(mit)) {
+    return anyMatch(() -> MethodMatcher.getIdentifier(mit).symbol(), matcher -> matcher.matches(mit));
+  }
+
+  public boolean anyMatch(final MethodTree method) {
+    return anyMatch(method::symbol, matcher -> matcher.matches(method));
+  }
+
+  public boolean anyMatch(NewClassTree newClassTree) {
+    return anyMatch(newClassTree::constructorSymbol, matcher -> matcher.matches(newClassTree));
+  }
+
+  /**
+   * Only matchers expecting the name of the method, or not expecting an exact name, are tested.
+   * The method symbol is only looked up when some matchers expect an exact name.
+   */
+  private boolean anyMatch(Supplier<Symbol> methodSymbol, Predicate<MethodMatcher> matches) {
+    if (index == null) {
+      index = new Index(matchers);
+    }
+    if (!index.matchersByName.isEmpty()) {
+      List<MethodMatcher> namedMatchers = index.matchersByName.get(methodSymbol.get().name());
+      if (namedMatchers != null && anyMatch(namedMatchers, matches)) {
         return true;
       }
     }
-    return false;
+    return anyMatch(index.otherMatchers, matches);
   }
 
-  public boolean anyMatch(final MethodTree method) {
+  private static boolean anyMatch(List<MethodMatcher> matchers, Predicate<MethodMatcher> matches) {
     for (MethodMatcher matcher : matchers) {
-      if (matcher.matches(method)) {
+      if (matches.test(matcher)) {
         return true;
       }
     }
     return false;
   }
 
-  public boolean anyMatch(NewClassTree newClassTree) {
-    for (MethodMatcher matcher : matchers) {
-      if (matcher.matches(newClassTree)) {
-        return true;
+  private static class Index {
+    private final Map<String, List<MethodMatcher>> matchersByName = new HashMap<>();
+    private final List<MethodMatcher> otherMatchers = new ArrayList<>();
+
+    Index(List<MethodMatcher> matchers) {
+      for (MethodMatcher matcher : matchers) {
+        String name = matcher.exactName();
+        if (name == null) {
+          otherMatchers.add(matcher);
+        } else {
+          matchersByName.computeIfAbsent(name, k -> new ArrayList<>()).add(matcher);
+        }
       }
     }
-    return false;
   }
 }
@@ -31,6 +31,7 @@ import org.sonar.java.AnalyzerMessage;
 import org.sonar.java.EndOfAnalysisCheck;
 import org.sonar.java.SonarComponents;
 import org.sonar.java.ast.visitors.ComplexityVisitor;
+import org.sonar.java.cfg.CFGProvider;
 import org.sonar.java.resolve.SemanticModel;
 import org.sonar.plugins.java.api.JavaCheck;
 import org.sonar.plugins.java.api.JavaFileScannerContext;
@@ -49,6 +50,7 @@ public class DefaultJavaFileScannerContext implements JavaFileScannerContext {
   private final File file;
   private final JavaVersion javaVersion;
   private final boolean fileParsed;
+  private final CFGProvider cfgProvider = new CFGProvider();
 
   public DefaultJavaFileScannerContext(CompilationUnitTree tree, File file, SemanticModel semanticModel,
                                        @Nullable SonarComponents sonarComponents, JavaVersion javaVersion, boolean fileParsed) {
@@ -97,6 +99,13 @@ public class DefaultJavaFileScannerContext implements JavaFileScannerContext {
     return fileParsed;
   }
 
+  /**
+   * Control flow graphs of the methods of the file, shared by all the visitors of the file.
+   */
+  public CFGProvider cfgProvider() {
+    return cfgProvider;
+  }
+
   @Override
   public String getFileKey() {
     return file.getAbsolutePath();
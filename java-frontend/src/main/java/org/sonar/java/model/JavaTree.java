@@ -130,13 +130,16 @@ public abstract class JavaTree implements Tree {
 
   public List<Tree> getChildren() {
     if(children == null) {
-      children = new ArrayList<>();
+      ArrayList<Tree> result = new ArrayList<>();
       children().forEach(child -> {
         // null children are ignored
         if (child != null) {
-          children.add(child);
+          result.add(child);
         }
       });
+      // children are kept as long as the tree: do not retain unused capacity
+      result.trimToSize();
+      children = result.isEmpty() ? Collections.emptyList() : result;
     }
     return children;
   }
@@ -31,24 +31,31 @@ import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.stream.Collectors;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.sonar.api.utils.AnnotationUtils;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.check.Rule;
 import org.sonar.java.AnalysisError;
+import org.sonar.java.AnalysisInstrumentation;
 import org.sonar.java.EndOfAnalysisCheck;
 import org.sonar.java.ExceptionHandler;
 import org.sonar.java.IllegalRuleParameterException;
 import org.sonar.java.JavaVersionAwareVisitor;
 import org.sonar.java.SonarComponents;
 import org.sonar.java.ast.visitors.SonarSymbolTableVisitor;
+import org.sonar.java.ast.visitors.SubscriptionVisitor;
+import org.sonar.java.ast.visitors.SubscriptionVisitorsDispatcher;
 import org.sonar.java.bytecode.ClassLoaderBuilder;
 import org.sonar.java.bytecode.loader.SquidClassLoader;
+import org.sonar.java.resolve.ClassFileCache;
 import org.sonar.java.resolve.SemanticModel;
 import org.sonar.java.se.SymbolicExecutionMode;
+import org.sonar.java.se.SymbolicExecutionOptions;
 import org.sonar.java.se.SymbolicExecutionVisitor;
 import org.sonar.java.se.xproc.BehaviorCache;
+import org.sonar.java.se.xproc.MethodBehaviorStore;
 import org.sonar.plugins.java.api.JavaFileScanner;
 import org.sonar.plugins.java.api.JavaFileScannerContext;
 import org.sonar.plugins.java.api.JavaVersion;
@@ -61,13 +68,20 @@ public class VisitorsBridge {
 
   private final BehaviorCache behaviorCache;
   private List<JavaFileScanner> executableScanners;
+  private List<JavaFileScanner> fileScanners;
+  private List<JavaFileScanner> scannersForCachedFiles;
+  private boolean fileAnalysisFailed;
   private final SonarComponents sonarComponents;
+  @Nullable
+  private final AnalysisInstrumentation instrumentation;
   private final boolean symbolicExecutionEnabled;
+  private final SymbolicExecutionOptions symbolicExecutionOptions;
   private SemanticModel semanticModel;
   protected File currentFile;
   protected JavaVersion javaVersion;
   private Set<String> classesNotFound = new TreeSet<>();
   private final SquidClassLoader classLoader;
+  private final ClassFileCache classFiles;
 
   @VisibleForTesting
   public VisitorsBridge(JavaFileScanner visitor) {
@@ -88,72 +102,197 @@ public class VisitorsBridge {
     }
     this.executableScanners = scannersBuilder.build();
     this.sonarComponents = sonarComponents;
+    this.instrumentation = sonarComponents == null ? null : sonarComponents.instrumentation();
+    updateFileScanners();
     this.classLoader = ClassLoaderBuilder.create(projectClasspath);
+    this.classFiles = new ClassFileCache(classLoader);
     this.symbolicExecutionEnabled = symbolicExecutionMode.isEnabled();
-    this.behaviorCache = new BehaviorCache(classLoader, symbolicExecutionMode.isCrossFileEnabled());
+    this.symbolicExecutionOptions = symbolicExecutionOptions(sonarComponents);
+    this.behaviorCache = new BehaviorCache(classLoader, symbolicExecutionMode.isCrossFileEnabled(), methodBehaviorStore(symbolicExecutionMode, projectClasspath));
+    behaviorCache.setBudget(symbolicExecutionOptions.budget());
+  }
+
+  @CheckForNull
+  private MethodBehaviorStore methodBehaviorStore(SymbolicExecutionMode symbolicExecutionMode, List<File> projectClasspath) {
+    if (sonarComponents == null || !symbolicExecutionMode.isEnabled()) {
+      return null;
+    }
+    return sonarComponents.methodBehaviorStore(symbolicExecutionMode.isCrossFileEnabled(), classLoader, projectClasspath);
+  }
+
+  private static SymbolicExecutionOptions symbolicExecutionOptions(@Nullable SonarComponents sonarComponents) {
+    SymbolicExecutionOptions options = sonarComponents == null ? null : sonarComponents.symbolicExecutionOptions();
+    return options == null ? SymbolicExecutionOptions.defaults() : options;
   }
 
   public void setJavaVersion(JavaVersion javaVersion) {
     this.javaVersion = javaVersion;
     this.executableScanners = executableScanners(executableScanners, javaVersion);
+    updateFileScanners();
+  }
+
+  /**
+   * When the analysis is instrumented, subscription visitors are not dispatched so that each of them is measured on its own.
+   */
+  private void updateFileScanners() {
+    if (instrumentation != null) {
+      this.fileScanners = executableScanners;
+      this.scannersForCachedFiles = executableScanners.stream().filter(scanner -> !hasCacheableIssues(scanner)).collect(Collectors.toList());
+      return;
+    }
+    this.fileScanners = dispatchSubscriptionVisitors(executableScanners);
+    this.scannersForCachedFiles = dispatchSubscriptionVisitors(executableScanners.stream()
+      .filter(scanner -> !hasCacheableIssues(scanner))
+      .collect(Collectors.toList()));
+  }
+
+  /**
+   * Checks which do not keep state between files only raise issues depending on the content of the file: they don't
+   * have to be executed when these issues are replayed from the analysis cache.
+   */
+  private boolean hasCacheableIssues(JavaFileScanner scanner) {
+    return sonarComponents != null && !(scanner instanceof EndOfAnalysisCheck) && sonarComponents.getRuleKey(scanner) != null;
   }
 
   public void visitFile(@Nullable Tree parsedTree) {
+    visitFile(parsedTree, null);
+  }
+
+  /**
+   * Visit a file whose semantic model may already have been computed by {@link #semanticAnalysis(File, Tree)}.
+   * When no semantic analysis is provided, it is computed on the calling thread.
+   */
+  public void visitFile(@Nullable Tree parsedTree, @Nullable SemanticAnalysis precomputedSemanticAnalysis) {
     semanticModel = null;
     CompilationUnitTree tree = new JavaTree.CompilationUnitTreeImpl(null, new ArrayList<>(), new ArrayList<>(), null, null);
     boolean fileParsed = parsedTree != null;
     if (fileParsed && parsedTree.is(Tree.Kind.COMPILATION_UNIT)) {
       tree = (CompilationUnitTree) parsedTree;
-      if (isNotJavaLangOrSerializable(PackageUtils.packageName(tree.packageDeclaration(), "/"))) {
-        try {
-          semanticModel = SemanticModel.createFor(tree, classLoader);
-        } catch (Exception e) {
-          LOG.error("Unable to create symbol table for : " + currentFile.getAbsolutePath(), e);
-          addAnalysisError(e, currentFile.getPath(), AnalysisError.Kind.SEMANTIC_ERROR);
-          sonarComponents.reportAnalysisError(currentFile, e.getMessage());
+      if (isNotJavaLangOrSerializable(currentFile, PackageUtils.packageName(tree.packageDeclaration(), "/"))) {
+        SemanticAnalysis semanticAnalysis = precomputedSemanticAnalysis;
+        if (semanticAnalysis == null) {
+          semanticAnalysis = createSemanticAnalysis(currentFile, tree);
+        }
+        Exception failure = semanticAnalysis.failure;
+        if (failure != null) {
+          LOG.error("Unable to create symbol table for : " + currentFile.getAbsolutePath(), failure);
+          addAnalysisError(failure, currentFile.getPath(), AnalysisError.Kind.SEMANTIC_ERROR);
+          sonarComponents.reportAnalysisError(currentFile, failure.getMessage());
           return;
         }
+        semanticModel = semanticAnalysis.semanticModel;
         createSonarSymbolTable(tree);
       } else {
         SemanticModel.handleMissingTypes(tree);
       }
     }
     JavaFileScannerContext javaFileScannerContext = createScannerContext(tree, semanticModel, sonarComponents, fileParsed);
+    boolean useAnalysisCache = fileParsed && sonarComponents != null;
+    boolean issuesReplayed = useAnalysisCache && sonarComponents.replayCachedIssues(currentFile);
+    if (useAnalysisCache && !issuesReplayed) {
+      sonarComponents.startRecordingIssues(currentFile);
+    }
+    fileAnalysisFailed = false;
     // Symbolic execution checks
-    if (symbolicExecutionEnabled && isNotJavaLangOrSerializable(PackageUtils.packageName(tree.packageDeclaration(), "/"))) {
-      runScanner(javaFileScannerContext, new SymbolicExecutionVisitor(executableScanners, behaviorCache), AnalysisError.Kind.SE_ERROR);
+    if (symbolicExecutionEnabled && !issuesReplayed && isNotJavaLangOrSerializable(currentFile, PackageUtils.packageName(tree.packageDeclaration(), "/"))) {
+      runScanner(javaFileScannerContext, new SymbolicExecutionVisitor(executableScanners, behaviorCache, symbolicExecutionOptions), AnalysisError.Kind.SE_ERROR);
       behaviorCache.cleanup();
     }
-    executableScanners.forEach(scanner -> runScanner(javaFileScannerContext, scanner, AnalysisError.Kind.CHECK_ERROR));
+    List<JavaFileScanner> scanners = issuesReplayed ? scannersForCachedFiles : fileScanners;
+    scanners.forEach(scanner -> runScanner(javaFileScannerContext, scanner, AnalysisError.Kind.CHECK_ERROR));
+    if (useAnalysisCache && !issuesReplayed) {
+      sonarComponents.stopRecordingIssues(!fileAnalysisFailed);
+    }
     if (semanticModel != null) {
       classesNotFound.addAll(semanticModel.classesNotFound());
     }
   }
 
+  /**
+   * Compute the semantic model of a parsed file without modifying the state of this bridge, so that it can be
+   * called from any analysis thread before {@link #visitFile(Tree, SemanticAnalysis)} is called for the same file.
+   *
+   * @return null when no semantic model has to be computed for this file
+   */
+  @CheckForNull
+  public SemanticAnalysis semanticAnalysis(File file, @Nullable Tree parsedTree) {
+    if (parsedTree == null || !parsedTree.is(Tree.Kind.COMPILATION_UNIT)) {
+      return null;
+    }
+    CompilationUnitTree tree = (CompilationUnitTree) parsedTree;
+    if (!isNotJavaLangOrSerializable(file, PackageUtils.packageName(tree.packageDeclaration(), "/"))) {
+      return null;
+    }
+    return createSemanticAnalysis(file, tree);
+  }
+
+  private SemanticAnalysis createSemanticAnalysis(File file, CompilationUnitTree tree) {
+    if (instrumentation == null) {
+      return createSemanticAnalysis(tree);
+    }
+    AnalysisInstrumentation.Sample start = instrumentation.start();
+    try {
+      return createSemanticAnalysis(tree);
+    } finally {
+      instrumentation.recordPhase(AnalysisInstrumentation.Phase.SEMANTIC, file, start);
+    }
+  }
+
+  private SemanticAnalysis createSemanticAnalysis(CompilationUnitTree tree) {
+    try {
+      return new SemanticAnalysis(SemanticModel.createFor(tree, classFiles), null);
+    } catch (Exception e) {
+      return new SemanticAnalysis(null, e);
+    }
+  }
+
   private void runScanner(JavaFileScannerContext javaFileScannerContext, JavaFileScanner scanner, AnalysisError.Kind kind) {
+    if (instrumentation == null) {
+      scanFile(javaFileScannerContext, scanner, kind);
+      return;
+    }
+    AnalysisInstrumentation.Sample start = instrumentation.start();
+    try {
+      scanFile(javaFileScannerContext, scanner, kind);
+    } finally {
+      if (kind == AnalysisError.Kind.SE_ERROR) {
+        instrumentation.recordPhase(AnalysisInstrumentation.Phase.SYMBOLIC_EXECUTION, currentFile, start);
+      } else {
+        instrumentation.recordCheck(scanner, currentFile, start);
+      }
+    }
+  }
+
+  private void scanFile(JavaFileScannerContext javaFileScannerContext, JavaFileScanner scanner, AnalysisError.Kind kind) {
     try {
       scanner.scanFile(javaFileScannerContext);
-    } catch (IllegalRuleParameterException e) {
+    } catch (RuntimeException e) {
+      handleScannerException(scanner, e, kind);
+    }
+  }
+
+  private void handleScannerException(JavaFileScanner scanner, RuntimeException e, AnalysisError.Kind kind) {
+    if (e instanceof IllegalRuleParameterException) {
       // bad configuration of a rule parameter, we want to fail analysis fast.
       throw e;
-    } catch (Exception e) {
-      if (sonarComponents != null && sonarComponents.shouldFailAnalysisOnException()) {
-        throw e;
-      }
-      Throwable rootCause = Throwables.getRootCause(e);
-      if (rootCause instanceof InterruptedIOException || rootCause instanceof InterruptedException) {
-        throw e;
-      }
-      Rule annotation = AnnotationUtils.getAnnotation(scanner.getClass(), Rule.class);
-      String key = "";
-      if (annotation != null) {
-        key = annotation.key();
-      }
-      LOG.error(
-        String.format("Unable to run check %s - %s on file %s, To help improve SonarJava, please report this problem to SonarSource : see https://www.sonarqube.org/community/",
-          scanner.getClass(), key, currentFile.getPath()), e);
-      addAnalysisError(e, currentFile.getPath(), kind);
     }
+    if (sonarComponents != null && sonarComponents.shouldFailAnalysisOnException()) {
+      throw e;
+    }
+    Throwable rootCause = Throwables.getRootCause(e);
+    if (rootCause instanceof InterruptedIOException || rootCause instanceof InterruptedException) {
+      throw e;
+    }
+    Rule annotation = AnnotationUtils.getAnnotation(scanner.getClass(), Rule.class);
+    String key = "";
+    if (annotation != null) {
+      key = annotation.key();
+    }
+    LOG.error(
+      String.format("Unable to run check %s - %s on file %s, To help improve SonarJava, please report this problem to SonarSource : see https://www.sonarqube.org/community/",
+        scanner.getClass(), key, currentFile.getPath()), e);
+    addAnalysisError(e, currentFile.getPath(), kind);
+    fileAnalysisFailed = true;
   }
 
   private void addAnalysisError(Exception e, String path, AnalysisError.Kind checkError) {
@@ -172,6 +311,33 @@ public class VisitorsBridge {
     return results.build();
   }
 
+  /**
+   * Subscription visitors which do not redefine how files are scanned share a single walk of the tree, done where the first
+   * of them was scheduled. Other scanners are kept in their original order.
+   */
+  private List<JavaFileScanner> dispatchSubscriptionVisitors(List<JavaFileScanner> scanners) {
+    List<SubscriptionVisitor> dispatchedVisitors = scanners.stream()
+      .filter(SubscriptionVisitorsDispatcher::canBeDispatched)
+      .map(SubscriptionVisitor.class::cast)
+      .collect(Collectors.toList());
+    if (dispatchedVisitors.size() < 2) {
+      return scanners;
+    }
+    SubscriptionVisitorsDispatcher dispatcher = new SubscriptionVisitorsDispatcher(dispatchedVisitors,
+      (scanner, e) -> handleScannerException(scanner, e, AnalysisError.Kind.CHECK_ERROR));
+    List<JavaFileScanner> results = new ArrayList<>();
+    boolean dispatcherAdded = false;
+    for (JavaFileScanner scanner : scanners) {
+      if (!SubscriptionVisitorsDispatcher.canBeDispatched(scanner)) {
+        results.add(scanner);
+      } else if (!dispatcherAdded) {
+        results.add(dispatcher);
+        dispatcherAdded = true;
+      }
+    }
+    return results;
+  }
+
   protected JavaFileScannerContext createScannerContext(
     CompilationUnitTree tree, SemanticModel semanticModel, SonarComponents sonarComponents, boolean fileParsed) {
     return new DefaultJavaFileScannerContext(
@@ -183,8 +349,8 @@ public class VisitorsBridge {
       fileParsed);
   }
 
-  private boolean isNotJavaLangOrSerializable(String packageName) {
-    String name = currentFile.getName();
+  private static boolean isNotJavaLangOrSerializable(File file, String packageName) {
+    String name = file.getName();
     return !(inJavaLang(packageName) || isAnnotation(packageName, name) || isSerializable(packageName, name));
   }
 
@@ -234,6 +400,23 @@ public class VisitorsBridge {
       .filter(s -> s instanceof EndOfAnalysisCheck)
       .map(EndOfAnalysisCheck.class::cast)
       .forEach(EndOfAnalysisCheck::endOfAnalysis);
+    behaviorCache.endOfAnalysis();
+    classFiles.clear();
     classLoader.close();
   }
+
+  /**
+   * Outcome of the creation of the semantic model of a file: either the model or the exception which prevented its creation.
+   */
+  public static final class SemanticAnalysis {
+    @Nullable
+    private final SemanticModel semanticModel;
+    @Nullable
+    private final Exception failure;
+
+    private SemanticAnalysis(@Nullable SemanticModel semanticModel, @Nullable Exception failure) {
+      this.semanticModel = semanticModel;
+      this.failure = failure;
+    }
+  }
 }
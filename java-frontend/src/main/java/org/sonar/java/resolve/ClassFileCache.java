@@ -0,0 +1,118 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.resolve;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import javax.annotation.CheckForNull;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.tree.ClassNode;
+import org.sonar.java.bytecode.loader.SquidClassLoader;
+
+/**
+ * Class files of the classpath, decoded once and shared by the {@link BytecodeCompleter} of every file.
+ * Symbols are still created per file by replaying the decoded classes, as they are linked to the symbols of the sources.
+ * Only the most recently used classes are kept, the bytes of the others staying available from the class loader: the
+ * classes of the JDK and of the libraries used by most files are then decoded once, without retaining every class of the
+ * classpath for the whole analysis. Decoded classes are never modified, so the cache can be used concurrently.
+ */
+public class ClassFileCache {
+
+  private static final int MAX_CLASS_NODES = 1_000;
+  private static final int MAX_CLASS_FILE_LOOKUPS = 10_000;
+
+  private final SquidClassLoader classLoader;
+  private final Map<String, Boolean> existingClassFiles;
+  private final Map<String, Optional<ClassNode>> classNodes;
+
+  public ClassFileCache(SquidClassLoader classLoader) {
+    this(classLoader, MAX_CLASS_NODES);
+  }
+
+  ClassFileCache(SquidClassLoader classLoader, int maxClassNodes) {
+    this.classLoader = classLoader;
+    this.existingClassFiles = leastRecentlyUsed(MAX_CLASS_FILE_LOOKUPS);
+    this.classNodes = leastRecentlyUsed(maxClassNodes);
+  }
+
+  private static <V> Map<String, V> leastRecentlyUsed(int maxSize) {
+    return Collections.synchronizedMap(new LinkedHashMap<String, V>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+        return size() > maxSize;
+      }
+    });
+  }
+
+  /**
+   * @param flatName flat name of the class (e.g. org.acme.Foo$Bar)
+   */
+  boolean exists(String flatName) {
+    Boolean exists = existingClassFiles.get(flatName);
+    if (exists == null) {
+      exists = classLoader.getResource(Convert.bytecodeName(flatName) + ".class") != null;
+      existingClassFiles.put(flatName, exists);
+    }
+    return exists;
+  }
+
+  /**
+   * @param className name of the class, as expected by {@link SquidClassLoader#getBytesForClass(String)}
+   * @return the class file without code, frames nor debug information, or null if it is not in the classpath
+   */
+  @CheckForNull
+  ClassNode classNode(String className) {
+    Optional<ClassNode> classNode = classNodes.get(className);
+    if (classNode == null) {
+      // decoded outside of the map: concurrent decoding of the same class is harmless, while it would block other classes of the map
+      classNode = Optional.ofNullable(decode(className));
+      Optional<ClassNode> previous = classNodes.putIfAbsent(className, classNode);
+      if (previous != null) {
+        classNode = previous;
+      }
+    }
+    return classNode.orElse(null);
+  }
+
+  @CheckForNull
+  private ClassNode decode(String className) {
+    byte[] bytes = classLoader.getBytesForClass(className);
+    if (bytes == null) {
+      return null;
+    }
+    ClassNode classNode = new ClassNode();
+    new ClassReader(bytes).accept(classNode, ClassReader.SKIP_CODE | ClassReader.SKIP_FRAMES | ClassReader.SKIP_DEBUG);
+    return classNode;
+  }
+
+  /**
+   * Release the decoded classes once the files using this cache have been analyzed.
+   */
+  public void clear() {
+    existingClassFiles.clear();
+    classNodes.clear();
+  }
+
+  int size() {
+    return classNodes.size();
+  }
+}
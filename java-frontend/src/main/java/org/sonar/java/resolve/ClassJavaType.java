@@ -73,8 +73,13 @@ public class ClassJavaType extends JavaType {
   }
 
   private boolean superTypeIsSubTypeOf(ClassJavaType superClassType) {
-    for (ClassJavaType classType : symbol.directSuperTypes()) {
-      if (classType.isSubtypeOf(superClassType)) {
+    // direct super types are visited in place, without building their set at each level of the hierarchy
+    ClassJavaType superClass = (ClassJavaType) symbol.getSuperclass();
+    if (superClass != null && superClass.isSubtypeOf(superClassType)) {
+      return true;
+    }
+    for (JavaType interfaceType : symbol.getInterfaces()) {
+      if (((ClassJavaType) interfaceType).isSubtypeOf(superClassType)) {
         return true;
       }
     }
@@ -82,12 +87,7 @@ public class ClassJavaType extends JavaType {
   }
 
   private boolean superTypeContains(String fullyQualifiedName) {
-    for (ClassJavaType classType : symbol.superTypes()) {
-      if (classType.is(fullyQualifiedName)) {
-        return true;
-      }
-    }
-    return false;
+    return symbol.hasSuperTypeNamed(fullyQualifiedName);
   }
 
   @Override
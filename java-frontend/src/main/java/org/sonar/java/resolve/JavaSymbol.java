@@ -322,6 +322,7 @@ public class JavaSymbol implements Symbol {
     private final Multiset<String> internalNames = HashMultiset.create();
     private Set<ClassJavaType> superTypes;
     private Set<ClassJavaType> interfaces;
+    private Set<String> superTypeNames;
 
     public TypeJavaSymbol(int flags, String name, JavaSymbol owner) {
       super(TYP, flags, name, owner);
@@ -432,6 +433,21 @@ public class JavaSymbol implements Symbol {
       return superTypes;
     }
 
+    /**
+     * Index of the fully qualified names of {@link #superTypes()}, so that subtype checks by name do not iterate over the hierarchy.
+     * A bottom type among the super types matches any name, as {@link ClassJavaType#is(String)} does.
+     */
+    boolean hasSuperTypeNamed(String fullyQualifiedName) {
+      if (superTypeNames == null) {
+        Set<ClassJavaType> types = superTypes();
+        if (types.stream().anyMatch(type -> type.isTagged(JavaType.BOT))) {
+          return true;
+        }
+        superTypeNames = types.stream().map(type -> type.symbol.getFullyQualifiedName()).collect(Collectors.toSet());
+      }
+      return superTypeNames.contains(fullyQualifiedName);
+    }
+
     private Set<ClassJavaType> interfacesOfType() {
       if (interfaces == null) {
         ImmutableSet.Builder<ClassJavaType> builder = ImmutableSet.builder();
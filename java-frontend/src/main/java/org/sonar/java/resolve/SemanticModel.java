@@ -55,8 +55,15 @@ public class SemanticModel {
   }
 
   public static SemanticModel createFor(CompilationUnitTree tree, SquidClassLoader classLoader) {
+    return createFor(tree, new ClassFileCache(classLoader));
+  }
+
+  /**
+   * @param classFiles class files of the classpath, which can be shared by the semantic models of several files
+   */
+  public static SemanticModel createFor(CompilationUnitTree tree, ClassFileCache classFiles) {
     ParametrizedTypeCache parametrizedTypeCache = new ParametrizedTypeCache();
-    BytecodeCompleter bytecodeCompleter = new BytecodeCompleter(classLoader, parametrizedTypeCache);
+    BytecodeCompleter bytecodeCompleter = new BytecodeCompleter(classFiles, parametrizedTypeCache);
     Symbols symbols = new Symbols(bytecodeCompleter);
     SemanticModel semanticModel = new SemanticModel(bytecodeCompleter);
     try {
@@ -0,0 +1,150 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.sonar.plugins.java.api.semantic.Symbol;
+import org.sonar.plugins.java.api.tree.BaseTreeVisitor;
+import org.sonar.plugins.java.api.tree.MethodInvocationTree;
+import org.sonar.plugins.java.api.tree.MethodTree;
+import org.sonar.plugins.java.api.tree.NewClassTree;
+import org.sonar.plugins.java.api.tree.Tree;
+
+/**
+ * Call graph between the methods of a file, restricted to calls of methods whose behavior is used by their callers
+ * (see {@link SymbolicExecutionVisitor#methodCanNotBeOverriden(Symbol.MethodSymbol)}). It only orders the sequential
+ * exploration of the methods of a file.
+ */
+final class CallGraph {
+
+  private final Map<MethodTree, Integer> positions = new IdentityHashMap<>();
+  private final Map<MethodTree, Set<MethodTree>> callees = new IdentityHashMap<>();
+
+  private CallGraph(List<MethodTree> methods) {
+    for (MethodTree method : methods) {
+      positions.put(method, positions.size());
+    }
+    for (MethodTree method : methods) {
+      CalleesCollector collector = new CalleesCollector();
+      method.accept(collector);
+      callees.put(method, collector.callees);
+    }
+  }
+
+  /**
+   * Orders methods so that callees are explored before their callers, and their behavior is already known when the caller
+   * needs it. Mutually recursive methods are kept in the order of the file: the first of them to be explored still triggers
+   * the exploration of the others on demand.
+   */
+  static List<MethodTree> bottomUpOrder(List<MethodTree> methods) {
+    return new CallGraph(methods).bottomUpOrder();
+  }
+
+  private List<MethodTree> bottomUpOrder() {
+    List<MethodTree> result = new ArrayList<>(positions.size());
+    new StronglyConnectedComponents(result).visitAll();
+    return result;
+  }
+
+  private class CalleesCollector extends BaseTreeVisitor {
+    private final Set<MethodTree> callees = new LinkedHashSet<>();
+
+    @Override
+    public void visitMethodInvocation(MethodInvocationTree tree) {
+      addCallee(tree.symbol());
+      super.visitMethodInvocation(tree);
+    }
+
+    @Override
+    public void visitNewClass(NewClassTree tree) {
+      addCallee(tree.constructorSymbol());
+      super.visitNewClass(tree);
+    }
+
+    private void addCallee(Symbol symbol) {
+      if (!symbol.isMethodSymbol() || !SymbolicExecutionVisitor.methodCanNotBeOverriden((Symbol.MethodSymbol) symbol)) {
+        return;
+      }
+      Tree declaration = symbol.declaration();
+      if (declaration != null && positions.containsKey(declaration)) {
+        callees.add((MethodTree) declaration);
+      }
+    }
+  }
+
+  /**
+   * Tarjan's algorithm, which completes strongly connected components in reverse topological order: callees first.
+   */
+  private class StronglyConnectedComponents {
+    private final List<MethodTree> result;
+    private final Map<MethodTree, Integer> indexes = new IdentityHashMap<>();
+    private final Map<MethodTree, Integer> lowLinks = new IdentityHashMap<>();
+    private final Deque<MethodTree> stack = new ArrayDeque<>();
+    private final Set<MethodTree> onStack = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    StronglyConnectedComponents(List<MethodTree> result) {
+      this.result = result;
+    }
+
+    void visitAll() {
+      positions.keySet().stream()
+        .sorted(Comparator.comparing(positions::get))
+        .filter(method -> !indexes.containsKey(method))
+        .forEach(this::visit);
+    }
+
+    private void visit(MethodTree method) {
+      int index = indexes.size();
+      indexes.put(method, index);
+      lowLinks.put(method, index);
+      stack.push(method);
+      onStack.add(method);
+      for (MethodTree callee : callees.get(method)) {
+        if (!indexes.containsKey(callee)) {
+          visit(callee);
+          lowLinks.put(method, Math.min(lowLinks.get(method), lowLinks.get(callee)));
+        } else if (onStack.contains(callee)) {
+          lowLinks.put(method, Math.min(lowLinks.get(method), indexes.get(callee)));
+        }
+      }
+      if (lowLinks.get(method) == index) {
+        List<MethodTree> component = new ArrayList<>();
+        MethodTree member;
+        do {
+          member = stack.pop();
+          onStack.remove(member);
+          component.add(member);
+        } while (member != method);
+        component.sort(Comparator.comparing(positions::get));
+        result.addAll(component);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * Work list backed by a growable circular array.
+ */
+final class DequeWorkList implements WorkList {
+
+  private final boolean lastInFirstOut;
+  private ExplodedGraph.Node[] elements = new ExplodedGraph.Node[16];
+  private int head;
+  private int size;
+
+  DequeWorkList(boolean lastInFirstOut) {
+    this.lastInFirstOut = lastInFirstOut;
+  }
+
+  @Override
+  public void add(ExplodedGraph.Node node) {
+    if (size == elements.length) {
+      grow();
+    }
+    if (lastInFirstOut) {
+      head = (head - 1) & (elements.length - 1);
+      elements[head] = node;
+    } else {
+      elements[(head + size) & (elements.length - 1)] = node;
+    }
+    size++;
+  }
+
+  private void grow() {
+    ExplodedGraph.Node[] grown = new ExplodedGraph.Node[elements.length * 2];
+    for (int i = 0; i < size; i++) {
+      grown[i] = elements[(head + i) & (elements.length - 1)];
+    }
+    elements = grown;
+    head = 0;
+  }
+
+  @Override
+  public ExplodedGraph.Node remove() {
+    if (size == 0) {
+      throw new IllegalStateException("Work list is empty");
+    }
+    ExplodedGraph.Node node = elements[head];
+    elements[head] = null;
+    head = (head + 1) & (elements.length - 1);
+    size--;
+    return node;
+  }
+
+  @CheckForNull
+  @Override
+  public ExplodedGraph.Node peek() {
+    return elements[head];
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+}
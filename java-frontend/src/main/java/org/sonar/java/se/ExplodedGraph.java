@@ -21,8 +21,8 @@ package org.sonar.java.se;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.LinkedListMultimap;
+import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Multimap;
 
 import org.sonar.java.se.xproc.MethodYield;
 import org.sonar.plugins.java.api.tree.Tree;
@@ -32,6 +32,7 @@ import javax.annotation.Nullable;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
@@ -39,19 +40,23 @@ import java.util.Set;
 public class ExplodedGraph {
 
   private final Map<Node, Node> nodes = Maps.newHashMap();
-  private final Multimap<ProgramPoint, Node> nodesByProgramPoint = LinkedListMultimap.create();
+  private final ListMultimap<ProgramPoint, Node> nodesByProgramPoint = LinkedListMultimap.create();
+  private final StateInterner stateInterner = new StateInterner();
+  private final FlowComputation.Cache flowCache = new FlowComputation.Cache();
 
   /**
    * Returns node associated with given (programPoint,programState) pair. If no node for this pair exists, it is created.
+   * The state of a new node shares its content with equal states of the graph.
    */
   public Node node(ProgramPoint programPoint, @Nullable ProgramState programState) {
-    Node result = new Node(programPoint, programState, this);
-    Node cached = nodes.get(result);
+    Node cached = nodes.get(new Node(programPoint, programState, this));
     if (cached != null) {
       cached.isNew = false;
       return cached;
     }
+    Node result = new Node(programPoint, programState == null ? null : stateInterner.intern(programState), this);
     result.isNew = true;
+    flowCache.graphChanged();
     nodes.put(result, result);
     nodesByProgramPoint.put(programPoint, result);
     return result;
@@ -61,6 +66,13 @@ public class ExplodedGraph {
     return nodes;
   }
 
+  /**
+   * @return nodes of the program point, in their order of creation
+   */
+  List<Node> nodes(ProgramPoint programPoint) {
+    return nodesByProgramPoint.get(programPoint);
+  }
+
   public static final class Node {
 
     public final ProgramPoint programPoint;
@@ -86,13 +98,27 @@ public class ExplodedGraph {
       if (parent == null) {
         return;
       }
-      Edge edge = edges.computeIfAbsent(parent, p -> new Edge(this, p));
+      Edge edge = edges.get(parent);
+      if (edge == null) {
+        edge = new Edge(this, parent);
+        edges.put(parent, edge);
+        explodedGraph.flowCache.graphChanged();
+      }
       if (methodYield != null) {
         Preconditions.checkState(parent.programPoint.syntaxTree().is(Tree.Kind.METHOD_INVOCATION), "Yield on edge where parent is not MIT");
-        edge.yields.add(methodYield);
+        if (edge.yields.add(methodYield)) {
+          explodedGraph.flowCache.graphChanged();
+        }
       }
     }
 
+    /**
+     * @return the flows already computed on the exploded graph of this node
+     */
+    FlowComputation.Cache flowCache() {
+      return explodedGraph.flowCache;
+    }
+
     public Collection<Node> siblings() {
       Collection<Node> collection = explodedGraph.nodesByProgramPoint.get(programPoint);
       collection.remove(this);
@@ -28,11 +28,9 @@ import com.google.common.collect.Lists;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Deque;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -45,6 +43,7 @@ import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.java.DebugCheck;
 import org.sonar.java.cfg.CFG;
+import org.sonar.java.cfg.CFGProvider;
 import org.sonar.java.cfg.LiveVariables;
 import org.sonar.java.matcher.MethodMatcher;
 import org.sonar.java.matcher.MethodMatcherCollection;
@@ -106,15 +105,15 @@ import static org.sonar.java.se.NullableAnnotationUtils.isGloballyAnnotatedParam
 
 public class ExplodedGraphWalker {
 
-  /**
-   * Arbitrary number to limit symbolic execution.
-   */
-  private static final int MAX_STEPS = 16_000;
   public static final int MAX_NESTED_BOOLEAN_STATES = 10_000;
   private static final Logger LOG = Loggers.get(ExplodedGraphWalker.class);
   private static final Set<String> THIS_SUPER = ImmutableSet.of("this", "super");
 
   private static final boolean DEBUG_MODE_ACTIVATED = false;
+  /**
+   * Time budget is checked every 256 steps, to keep the cost of reading the clock negligible.
+   */
+  private static final int DEADLINE_CHECK_MASK = 0xFF;
   @VisibleForTesting
   static final int MAX_EXEC_PROGRAM_POINT = 2;
 
@@ -134,7 +133,7 @@ public class ExplodedGraphWalker {
   private ExplodedGraph explodedGraph;
 
   @VisibleForTesting
-  Deque<ExplodedGraph.Node> workList;
+  WorkList workList;
   ExplodedGraph.Node node;
   ProgramPoint programPosition;
   ProgramState programState;
@@ -153,6 +152,11 @@ public class ExplodedGraphWalker {
   @Nullable
   MethodBehavior methodBehavior;
   private Set<ExplodedGraph.Node> endOfExecutionPath;
+  private CFGProvider cfgProvider = new CFGProvider();
+  private SymbolicExecutionOptions options = SymbolicExecutionOptions.defaults();
+  private long deadline;
+  private long retainedBytes;
+  int peakWorkListSize;
 
   public static class ExplodedGraphTooBigException extends RuntimeException {
 
@@ -171,6 +175,19 @@ public class ExplodedGraphWalker {
     }
 
   }
+  public static class BudgetExhaustedException extends MaximumStepsReachedException {
+
+    private final SymbolicExecutionBudget.Reason reason;
+
+    public BudgetExhaustedException(String s, SymbolicExecutionBudget.Reason reason) {
+      super(s);
+      this.reason = reason;
+    }
+
+    public SymbolicExecutionBudget.Reason reason() {
+      return reason;
+    }
+  }
   public static class TooManyNestedBooleanStatesException extends RuntimeException {
 
   }
@@ -198,6 +215,17 @@ public class ExplodedGraphWalker {
     this.semanticModel = semanticModel;
   }
 
+  /**
+   * Share the control flow graphs of the methods with the other visitors of the file.
+   */
+  public void setCFGProvider(CFGProvider cfgProvider) {
+    this.cfgProvider = cfgProvider;
+  }
+
+  public void setOptions(SymbolicExecutionOptions options) {
+    this.options = options;
+  }
+
   public MethodBehavior visitMethod(MethodTree tree) {
     return visitMethod(tree, null);
   }
@@ -213,21 +241,24 @@ public class ExplodedGraphWalker {
   }
 
   private void execute(MethodTree tree) {
-    CFG cfg = CFG.build(tree);
+    CFG cfg = cfgProvider.cfg(tree);
     exitBlock = cfg.exitBlock();
     checkerDispatcher.init(tree, cfg);
-    liveVariables = LiveVariables.analyze(cfg);
+    liveVariables = cfgProvider.liveVariables(tree);
     explodedGraph = new ExplodedGraph();
     methodTree = tree;
     constraintManager = new ConstraintManager();
-    workList = new LinkedList<>();
+    workList = options.workListStrategy().create(cfg);
     // Linked hashSet is required to guarantee order of yields to be generated
     endOfExecutionPath = new LinkedHashSet<>();
     if(DEBUG_MODE_ACTIVATED) {
       LOG.debug("Exploring Exploded Graph for method " + tree.simpleName().name() + " at line " + ((JavaTree) tree).getLine());
     }
-    programState = ProgramState.EMPTY_STATE;
+    programState = ProgramState.emptyState(options.collections());
     steps = 0;
+    deadline = options.budget().methodDeadline();
+    retainedBytes = 0;
+    peakWorkListSize = 0;
     for (ProgramState startingState : startingStates(tree, programState)) {
       enqueue(new ProgramPoint(cfg.entry()), startingState);
     }
@@ -236,8 +267,9 @@ public class ExplodedGraphWalker {
       if (steps > maxSteps()) {
         throwMaxSteps(tree);
       }
-      // LIFO:
-      setNode(workList.removeFirst());
+      checkBudget(tree);
+      peakWorkListSize = Math.max(peakWorkListSize, workList.size());
+      setNode(workList.remove());
       CFG.Block block = (CFG.Block) programPosition.block;
       if (block.successors().isEmpty()) {
         endOfExecutionPath.add(node);
@@ -300,6 +332,33 @@ public class ExplodedGraphWalker {
     throw cause;
   }
 
+  int explodedGraphSize() {
+    return explodedGraph == null ? 0 : explodedGraph.nodes().size();
+  }
+
+  long retainedBytes() {
+    return retainedBytes;
+  }
+
+  private void checkBudget(MethodTree tree) {
+    SymbolicExecutionBudget budget = options.budget();
+    SymbolicExecutionBudget.Reason memoryReason = budget.memoryReason(retainedBytes);
+    if (memoryReason != null) {
+      throwBudgetExhausted(tree, memoryReason);
+    }
+    if ((steps & DEADLINE_CHECK_MASK) == 0 && SymbolicExecutionBudget.hasDeadline(deadline) && System.nanoTime() >= deadline) {
+      throwBudgetExhausted(tree, budget.timeoutReason());
+    }
+  }
+
+  private void throwBudgetExhausted(MethodTree tree, SymbolicExecutionBudget.Reason reason) {
+    String message = String.format("exhausted %s budget after %d steps for method %s#%d in class %s",
+      reason, steps, tree.simpleName().name(), tree.simpleName().firstToken().line(), tree.symbol().owner().name());
+    BudgetExhaustedException cause = new BudgetExhaustedException(message, reason);
+    interrupted(cause);
+    throw cause;
+  }
+
   private void interrupted(Exception cause) {
     handleEndOfExecutionPath(true);
     checkerDispatcher.interruptedExecution(cause);
@@ -1101,15 +1160,40 @@ public class ExplodedGraphWalker {
     }
     checkExplodedGraphTooBig(programState);
     ProgramState ps = programState.visitedPoint(programPoint, nbOfExecution + 1);
+    if (options.stateMerging() && isMergePoint(programPoint)) {
+      ps = mergeWithExploredStates(programPoint, ps);
+    }
     ExplodedGraph.Node cachedNode = explodedGraph.node(programPoint, ps);
     if (!cachedNode.isNew() && exitPath == cachedNode.exitPath) {
       // has been enqueued earlier
       cachedNode.addParent(node, methodYield);
       return;
     }
+    if (cachedNode.isNew()) {
+      retainedBytes += SymbolicExecutionBudget.estimatedRetainedBytes(ps);
+    }
     cachedNode.exitPath = exitPath;
     cachedNode.addParent(node, methodYield);
-    workList.addFirst(cachedNode);
+    workList.add(cachedNode);
+  }
+
+  private static boolean isMergePoint(ProgramPoint programPoint) {
+    return programPoint.i == 0 && ((CFG.Block) programPoint.block).predecessors().size() > 1;
+  }
+
+  /**
+   * Join the state with the most recent state explored at the program point it can be joined with.
+   */
+  private ProgramState mergeWithExploredStates(ProgramPoint programPoint, ProgramState ps) {
+    List<ExplodedGraph.Node> exploredNodes = explodedGraph.nodes(programPoint);
+    for (int i = exploredNodes.size() - 1; i >= 0; i--) {
+      ProgramState exploredState = exploredNodes.get(i).programState;
+      ProgramState joined = exploredState == null ? null : StateMerger.join(exploredState, ps);
+      if (joined != null) {
+        return joined;
+      }
+    }
+    return ps;
   }
 
   private static boolean isRestartingForEachLoop(ProgramPoint programPoint) {
@@ -1127,7 +1211,7 @@ public class ExplodedGraphWalker {
 
   @VisibleForTesting
   protected int maxSteps() {
-    return MAX_STEPS;
+    return options.budget().maxSteps();
   }
 
   AlwaysTrueOrFalseExpressionCollector alwaysTrueOrFalseExpressionCollector() {
@@ -1143,8 +1227,14 @@ public class ExplodedGraphWalker {
 
     @VisibleForTesting
     final List<SECheck> seChecks = new ArrayList<>();
+    private final SymbolicExecutionOptions options;
 
     public ExplodedGraphWalkerFactory(List<JavaFileScanner> scanners) {
+      this(scanners, SymbolicExecutionOptions.defaults());
+    }
+
+    public ExplodedGraphWalkerFactory(List<JavaFileScanner> scanners, SymbolicExecutionOptions options) {
+      this.options = options;
       List<SECheck> debugChecks = new ArrayList<>();
       List<SECheck> checks = new ArrayList<>();
       for (JavaFileScanner scanner : scanners) {
@@ -1175,7 +1265,9 @@ public class ExplodedGraphWalker {
     }
 
     public ExplodedGraphWalker createWalker(BehaviorCache behaviorCache, SemanticModel semanticModel) {
-      return new ExplodedGraphWalker(seChecks, behaviorCache, semanticModel);
+      ExplodedGraphWalker walker = new ExplodedGraphWalker(seChecks, behaviorCache, semanticModel);
+      walker.setOptions(options);
+      return walker;
     }
 
     @SuppressWarnings("unchecked")
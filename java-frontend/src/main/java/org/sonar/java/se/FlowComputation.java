@@ -23,9 +23,11 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -83,6 +85,7 @@ public class FlowComputation {
   private final Set<SymbolicValue> symbolicValues;
   private final List<Class<? extends Constraint>> domains;
   private final boolean skipExceptionMessages;
+  private final Map<ExplodedGraph.Edge, EdgeFlow> edgeFlows = new HashMap<>();
 
   private FlowComputation(Set<SymbolicValue> symbolicValues, Predicate<Constraint> addToFlow,
                           Predicate<Constraint> terminateTraversal, List<Class<? extends Constraint>> domains, boolean skipExceptionMessages) {
@@ -93,16 +96,6 @@ public class FlowComputation {
     this.skipExceptionMessages = skipExceptionMessages;
   }
 
-  private static Set<SymbolicValue> computedFrom(@Nullable SymbolicValue symbolicValue) {
-    if (symbolicValue == null) {
-      return Collections.emptySet();
-    }
-    Set<SymbolicValue> result = new HashSet<>();
-    result.add(symbolicValue);
-    symbolicValue.computedFrom().forEach(sv -> result.addAll(computedFrom(sv)));
-    return result;
-  }
-
   // FIXME It is assumed that this will always return set with at least one element, which could be empty, because result is consumed in other places and messages are
   // added to returned flows. This design should be improved.
   public static Set<Flow> flow(ExplodedGraph.Node currentNode, Set<SymbolicValue> symbolicValues, Predicate<Constraint> addToFlow, Predicate<Constraint> terminateTraversal,
@@ -130,25 +123,37 @@ public class FlowComputation {
 
   private static Set<Flow> flow(ExplodedGraph.Node currentNode, Set<SymbolicValue> symbolicValues, Predicate<Constraint> addToFlow,
     Predicate<Constraint> terminateTraversal, List<Class<? extends Constraint>> domains, Set<Symbol> symbols, boolean skipExceptionMessages) {
-    Set<SymbolicValue> allSymbolicValues = symbolicValues.stream()
-      .map(FlowComputation::computedFrom)
+    Cache cache = currentNode.flowCache();
+    FlowRequest request = new FlowRequest(currentNode, symbolicValues, addToFlow, terminateTraversal, domains, symbols, skipExceptionMessages);
+    Set<Flow> flows = cache.flows.get(request);
+    if (flows == null) {
+      flows = computeFlow(cache, request);
+      cache.flows.put(request, flows);
+    }
+    return new HashSet<>(flows);
+  }
+
+  private static Set<Flow> computeFlow(Cache cache, FlowRequest request) {
+    Set<SymbolicValue> allSymbolicValues = request.symbolicValues.stream()
+      .map(cache::computedFrom)
       .flatMap(Set::stream)
       .collect(Collectors.toSet());
 
     PSet<Symbol> trackedSymbols = PCollections.emptySet();
-    for (Symbol symbol: symbols) {
+    for (Symbol symbol: request.symbols) {
       trackedSymbols = trackedSymbols.add(symbol);
     }
 
-    if (symbols.isEmpty()) {
-      for (SymbolicValue symbolicValue : symbolicValues) {
+    if (request.symbols.isEmpty()) {
+      for (SymbolicValue symbolicValue : request.symbolicValues) {
         for (Symbol symbol : symbolicValue.computedFromSymbols()) {
           trackedSymbols = trackedSymbols.add(symbol);
         }
       }
     }
-    FlowComputation flowComputation = new FlowComputation(allSymbolicValues, addToFlow, terminateTraversal, domains, skipExceptionMessages);
-    return flowComputation.run(currentNode, trackedSymbols);
+    FlowComputation flowComputation = new FlowComputation(allSymbolicValues, request.addToFlow, request.terminateTraversal, request.domains,
+      request.skipExceptionMessages);
+    return flowComputation.run(request.node, trackedSymbols);
   }
 
   private static <T> Set<T> setFromNullable(@Nullable T val) {
@@ -299,29 +304,23 @@ public class FlowComputation {
       PSet<Symbol> newTrackSymbols = newTrackedSymbols(edge);
       SameConstraints newSameConstraints = newTrackSymbols == trackedSymbols ? sameConstraints : new SameConstraints(sameConstraints, newTrackSymbols);
 
-      if (!skipExceptionMessages) {
-        flowFromThrownException(edge).ifPresent(loc -> {
-          flowBuilder.setAsExceptional();
-          flowBuilder.add(loc);
-        });
-        flowFromCaughtException(edge).ifPresent(loc -> {
-          flowBuilder.setAsExceptional();
-          flowBuilder.add(loc);
-        });
+      EdgeFlow edgeFlow = edgeFlows.computeIfAbsent(edge, this::edgeFlow);
+      if (!edgeFlow.exceptionLocations.isEmpty()) {
+        flowBuilder.setAsExceptional();
+        edgeFlow.exceptionLocations.forEach(flowBuilder::add);
       }
 
-      Set<LearnedConstraint> learnedConstraints = learnedConstraints(edge);
-      Flow lcFlow = flowFromLearnedConstraints(edge, filterRedundantObjectDomain(learnedConstraints));
+      Flow lcFlow = flowFromLearnedConstraints(edge, edgeFlow.reportedConstraints);
       flowBuilder.addAll(lcFlow);
 
-      boolean endOfPath = visitedAllParents(edge) || shouldTerminate(learnedConstraints);
+      boolean endOfPath = edgeFlow.terminatesTraversal || visitedAllParents(edge);
 
       if (endOfPath) {
         flowBuilder.addAll(flowForNullableMethodParameters(edge.parent));
       }
 
       Flow currentFlow = flowBuilder.build();
-      Set<Flow> yieldsFlows = flowFromYields(edge);
+      Set<Flow> yieldsFlows = edgeFlow.yieldsFlows;
       if (yieldsFlows.isEmpty()) {
         return Stream.of(new ExecutionPath(edge, visited.add(edge), newTrackSymbols, newSameConstraints, Flow.of(currentFlow), endOfPath));
       }
@@ -330,6 +329,19 @@ public class FlowComputation {
         .map(f -> new ExecutionPath(edge, visited.add(edge), newTrackSymbols, newSameConstraints, f, endOfPath));
     }
 
+    /**
+     * Part of the flow of an edge which does not depend on the path reaching it: computed once per edge and flow computation.
+     */
+    private EdgeFlow edgeFlow(ExplodedGraph.Edge edge) {
+      List<JavaFileScannerContext.Location> exceptionLocations = new ArrayList<>();
+      if (!skipExceptionMessages) {
+        flowFromThrownException(edge).ifPresent(exceptionLocations::add);
+        flowFromCaughtException(edge).ifPresent(exceptionLocations::add);
+      }
+      Set<LearnedConstraint> learnedConstraints = learnedConstraints(edge);
+      return new EdgeFlow(exceptionLocations, filterRedundantObjectDomain(learnedConstraints), shouldTerminate(learnedConstraints), flowFromYields(edge));
+    }
+
     private Optional<JavaFileScannerContext.Location> flowFromThrownException(ExplodedGraph.Edge edge) {
       SymbolicValue peekValue = edge.child.programState.peekValue();
       if (peekValue instanceof SymbolicValue.ExceptionalSymbolicValue
@@ -758,6 +770,105 @@ public class FlowComputation {
     }
   }
 
+  private static class EdgeFlow {
+    final List<JavaFileScannerContext.Location> exceptionLocations;
+    final Set<LearnedConstraint> reportedConstraints;
+    final boolean terminatesTraversal;
+    final Set<Flow> yieldsFlows;
+
+    EdgeFlow(List<JavaFileScannerContext.Location> exceptionLocations, Set<LearnedConstraint> reportedConstraints, boolean terminatesTraversal,
+      Set<Flow> yieldsFlows) {
+      this.exceptionLocations = exceptionLocations;
+      this.reportedConstraints = reportedConstraints;
+      this.terminatesTraversal = terminatesTraversal;
+      this.yieldsFlows = yieldsFlows;
+    }
+  }
+
+  private static class FlowRequest {
+    private final ExplodedGraph.Node node;
+    private final Set<SymbolicValue> symbolicValues;
+    private final Predicate<Constraint> addToFlow;
+    private final Predicate<Constraint> terminateTraversal;
+    private final List<Class<? extends Constraint>> domains;
+    private final Set<Symbol> symbols;
+    private final boolean skipExceptionMessages;
+    private final int hashcode;
+
+    FlowRequest(ExplodedGraph.Node node, Set<SymbolicValue> symbolicValues, Predicate<Constraint> addToFlow, Predicate<Constraint> terminateTraversal,
+      List<Class<? extends Constraint>> domains, Set<Symbol> symbols, boolean skipExceptionMessages) {
+      this.node = node;
+      this.symbolicValues = symbolicValues;
+      this.addToFlow = addToFlow;
+      this.terminateTraversal = terminateTraversal;
+      this.domains = domains;
+      this.symbols = symbols;
+      this.skipExceptionMessages = skipExceptionMessages;
+      hashcode = Objects.hash(node, symbolicValues, addToFlow, terminateTraversal, domains, symbols, skipExceptionMessages);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      FlowRequest that = (FlowRequest) o;
+      // predicates are compared by identity: non-capturing lambdas of a call site are the same instance
+      return skipExceptionMessages == that.skipExceptionMessages
+        && addToFlow == that.addToFlow
+        && terminateTraversal == that.terminateTraversal
+        && node.equals(that.node)
+        && symbolicValues.equals(that.symbolicValues)
+        && domains.equals(that.domains)
+        && symbols.equals(that.symbols);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashcode;
+    }
+  }
+
+  /**
+   * Flow computations of an exploded graph. Symbolic values never change the values they are computed from, so their closure is kept for
+   * the whole graph, while computed flows are dropped as soon as the graph gets new nodes or edges.
+   */
+  static final class Cache {
+    private final Map<SymbolicValue, Set<SymbolicValue>> computedFrom = new HashMap<>();
+    private final Map<FlowRequest, Set<Flow>> flows = new HashMap<>();
+
+    /**
+     * @return the symbolic value and all the values it is transitively computed from
+     */
+    Set<SymbolicValue> computedFrom(SymbolicValue symbolicValue) {
+      Set<SymbolicValue> result = computedFrom.get(symbolicValue);
+      if (result != null) {
+        return result;
+      }
+      result = new HashSet<>();
+      Deque<SymbolicValue> workList = new ArrayDeque<>();
+      workList.push(symbolicValue);
+      while (!workList.isEmpty()) {
+        SymbolicValue sv = workList.pop();
+        Set<SymbolicValue> known = computedFrom.get(sv);
+        if (known != null) {
+          result.addAll(known);
+        } else if (result.add(sv)) {
+          sv.computedFrom().forEach(workList::push);
+        }
+      }
+      computedFrom.put(symbolicValue, result);
+      return result;
+    }
+
+    void graphChanged() {
+      flows.clear();
+    }
+  }
+
   public static Flow flowsForPassedArguments(List<Integer> argumentIndices, MethodInvocationTree mit) {
     String methodName = mit.symbol().name();
     Flow.Builder flowBuilder = Flow.builder();
@@ -0,0 +1,129 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se;
+
+import java.util.Arrays;
+import java.util.function.ToLongFunction;
+import javax.annotation.CheckForNull;
+
+/**
+ * Work list backed by a binary heap ordered by an increasing priority of nodes. Nodes of equal priority are explored last
+ * enqueued first.
+ */
+final class PriorityWorkList implements WorkList {
+
+  private final ToLongFunction<ExplodedGraph.Node> priority;
+  private ExplodedGraph.Node[] nodes = new ExplodedGraph.Node[16];
+  private long[] priorities = new long[16];
+  private long[] sequences = new long[16];
+  private long sequence;
+  private int size;
+
+  PriorityWorkList(ToLongFunction<ExplodedGraph.Node> priority) {
+    this.priority = priority;
+  }
+
+  @Override
+  public void add(ExplodedGraph.Node node) {
+    if (size == nodes.length) {
+      nodes = Arrays.copyOf(nodes, size * 2);
+      priorities = Arrays.copyOf(priorities, size * 2);
+      sequences = Arrays.copyOf(sequences, size * 2);
+    }
+    set(size, node, priority.applyAsLong(node), sequence);
+    sequence++;
+    size++;
+    siftUp(size - 1);
+  }
+
+  @Override
+  public ExplodedGraph.Node remove() {
+    if (size == 0) {
+      throw new IllegalStateException("Work list is empty");
+    }
+    ExplodedGraph.Node node = nodes[0];
+    size--;
+    set(0, nodes[size], priorities[size], sequences[size]);
+    nodes[size] = null;
+    siftDown(0);
+    return node;
+  }
+
+  @CheckForNull
+  @Override
+  public ExplodedGraph.Node peek() {
+    return nodes[0];
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  private void siftUp(int index) {
+    int child = index;
+    while (child > 0) {
+      int parent = (child - 1) >>> 1;
+      if (!before(child, parent)) {
+        return;
+      }
+      swap(child, parent);
+      child = parent;
+    }
+  }
+
+  private void siftDown(int index) {
+    int parent = index;
+    while (true) {
+      int first = parent;
+      int left = 2 * parent + 1;
+      int right = left + 1;
+      if (left < size && before(left, first)) {
+        first = left;
+      }
+      if (right < size && before(right, first)) {
+        first = right;
+      }
+      if (first == parent) {
+        return;
+      }
+      swap(parent, first);
+      parent = first;
+    }
+  }
+
+  private boolean before(int i, int j) {
+    return priorities[i] < priorities[j] || (priorities[i] == priorities[j] && sequences[i] > sequences[j]);
+  }
+
+  private void swap(int i, int j) {
+    ExplodedGraph.Node node = nodes[i];
+    long nodePriority = priorities[i];
+    long nodeSequence = sequences[i];
+    set(i, nodes[j], priorities[j], sequences[j]);
+    set(j, node, nodePriority, nodeSequence);
+  }
+
+  private void set(int index, ExplodedGraph.Node node, long nodePriority, long nodeSequence) {
+    nodes[index] = node;
+    priorities[index] = nodePriority;
+    sequences[index] = nodeSequence;
+  }
+}
@@ -122,16 +122,8 @@ public class ProgramState {
   private int hashCode;
 
   private final int constraintSize;
-  public static final ProgramState EMPTY_STATE = new ProgramState(
-    PCollections.emptyMap(),
-    PCollections.emptyMap(),
-    PCollections.<SymbolicValue, ConstraintsByDomain>emptyMap()
-      .put(SymbolicValue.NULL_LITERAL, ConstraintsByDomain.empty().put(ObjectConstraint.NULL))
-      .put(SymbolicValue.TRUE_LITERAL, ConstraintsByDomain.empty().put(BooleanConstraint.TRUE).put(ObjectConstraint.NOT_NULL))
-      .put(SymbolicValue.FALSE_LITERAL, ConstraintsByDomain.empty().put(BooleanConstraint.FALSE).put(ObjectConstraint.NOT_NULL)),
-        PCollections.emptyMap(),
-    PCollections.emptyStack(),
-    null);
+  public static final ProgramState EMPTY_STATE = newEmptyState(PCollections.Implementation.AVL_TREE);
+  private static final ProgramState HAMT_EMPTY_STATE = newEmptyState(PCollections.Implementation.HAMT);
 
   private final PMap<ProgramPoint, Integer> visitedPoints;
   private final PStack<SymbolicValueSymbol> stack;
@@ -141,6 +133,27 @@ public class ProgramState {
   final PMap<Integer, SymbolicValue> valuesByIndex;
   final PMap<SymbolicValue, ConstraintsByDomain> constraints;
 
+  private static ProgramState newEmptyState(PCollections.Implementation implementation) {
+    return new ProgramState(
+      PCollections.emptyMap(implementation),
+      PCollections.emptyMap(implementation),
+      PCollections.<SymbolicValue, ConstraintsByDomain>emptyMap(implementation)
+        .put(SymbolicValue.NULL_LITERAL, ConstraintsByDomain.empty().put(ObjectConstraint.NULL))
+        .put(SymbolicValue.TRUE_LITERAL, ConstraintsByDomain.empty().put(BooleanConstraint.TRUE).put(ObjectConstraint.NOT_NULL))
+        .put(SymbolicValue.FALSE_LITERAL, ConstraintsByDomain.empty().put(BooleanConstraint.FALSE).put(ObjectConstraint.NOT_NULL)),
+      PCollections.emptyMap(implementation),
+      PCollections.emptyStack(),
+      null);
+  }
+
+  /**
+   * @return initial state of an exploration whose maps are of the given implementation, states of different implementations
+   * being never equal
+   */
+  public static ProgramState emptyState(PCollections.Implementation implementation) {
+    return implementation == PCollections.Implementation.HAMT ? HAMT_EMPTY_STATE : EMPTY_STATE;
+  }
+
   private ProgramState(PMap<Symbol, SymbolicValue> values,PMap<Integer, SymbolicValue> valuesByIndex, PMap<SymbolicValue, Integer> references,
                        PMap<SymbolicValue, ConstraintsByDomain> constraints, PMap<ProgramPoint, Integer> visitedPoints,
                        PStack<SymbolicValueSymbol> stack, SymbolicValue exitSymbolicValue) {
@@ -158,7 +171,7 @@ public class ProgramState {
                        PMap<SymbolicValue, ConstraintsByDomain> constraints, PMap<ProgramPoint, Integer> visitedPoints,
                        PStack<SymbolicValueSymbol> stack, SymbolicValue exitSymbolicValue) {
     this.values = values;
-    this.valuesByIndex = PCollections.emptyMap();
+    this.valuesByIndex = PCollections.emptyMapLike(values);
     this.references = references;
     this.constraints = constraints;
     this.visitedPoints = visitedPoints;
@@ -189,6 +202,53 @@ public class ProgramState {
     this.stack = ps.stack;
   }
 
+  private ProgramState(ProgramState ps, PMap<Symbol, SymbolicValue> newValues, PMap<SymbolicValue, ConstraintsByDomain> newConstraints) {
+    values = newValues;
+    valuesByIndex = ps.valuesByIndex;
+    references = ps.references;
+    constraints = newConstraints;
+    constraintSize = ps.constraintSize;
+    visitedPoints = ps.visitedPoints;
+    exitSymbolicValue = ps.exitSymbolicValue;
+    stack = ps.stack;
+    hashCode = ps.hashCode;
+    knownRelations = ps.knownRelations;
+  }
+
+  /**
+   * @return copy of this state using the given maps, which are equal to the ones of this state
+   */
+  ProgramState withMaps(PMap<Symbol, SymbolicValue> equalValues, PMap<SymbolicValue, ConstraintsByDomain> equalConstraints) {
+    if (equalValues == values && equalConstraints == constraints) {
+      return this;
+    }
+    return new ProgramState(this, equalValues, equalConstraints);
+  }
+
+  boolean hasSameStackAndExitValue(ProgramState other) {
+    return Objects.equals(stack, other.stack) && Objects.equals(exitSymbolicValue, other.exitSymbolicValue);
+  }
+
+  private ProgramState(ProgramState explored, PMap<SymbolicValue, ConstraintsByDomain> joinedConstraints, ProgramState incoming) {
+    values = explored.values;
+    valuesByIndex = explored.valuesByIndex;
+    references = explored.references;
+    constraints = joinedConstraints;
+    // a joined state stands for the longest of the paths it joins
+    constraintSize = Math.max(explored.constraintSize, incoming.constraintSize);
+    visitedPoints = incoming.visitedPoints;
+    exitSymbolicValue = explored.exitSymbolicValue;
+    stack = explored.stack;
+  }
+
+  /**
+   * @return copy of this state using the given constraints, visited points being the ones of the given state, and the size
+   * of constraints being the largest of both states
+   */
+  ProgramState withConstraints(PMap<SymbolicValue, ConstraintsByDomain> newConstraints, ProgramState incoming) {
+    return new ProgramState(this, newConstraints, incoming);
+  }
+
   public ProgramState stackValue(SymbolicValue sv) {
     return new ProgramState(this, stack.push(new SymbolicValueSymbol(sv, null)));
   }
@@ -0,0 +1,81 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.sonar.java.collections.PMap;
+import org.sonar.java.se.constraint.ConstraintsByDomain;
+import org.sonar.java.se.symbolicvalues.SymbolicValue;
+import org.sonar.plugins.java.api.semantic.Symbol;
+
+/**
+ * Shares equal maps of values and constraints, as well as equal {@link ConstraintsByDomain}, between the program states of
+ * an exploded graph. Equal states then mostly differ by reference only, which makes their comparison cheap, and duplicates
+ * built along different paths can be garbage collected.
+ *
+ * Program states themselves are not shared: their equality ignores visited program points, and their exit value can
+ * still be set once they are part of the graph.
+ */
+class StateInterner {
+
+  private final Map<PMap<Symbol, SymbolicValue>, PMap<Symbol, SymbolicValue>> values = new HashMap<>();
+  private final Map<PMap<SymbolicValue, ConstraintsByDomain>, PMap<SymbolicValue, ConstraintsByDomain>> constraints = new HashMap<>();
+  private final Map<ConstraintsByDomain, ConstraintsByDomain> constraintsByDomain = new HashMap<>();
+  private final Set<ConstraintsByDomain> canonicalConstraintsByDomain = Collections.newSetFromMap(new IdentityHashMap<>());
+
+  ProgramState intern(ProgramState programState) {
+    PMap<Symbol, SymbolicValue> internedValues = values.computeIfAbsent(programState.values, v -> v);
+    PMap<SymbolicValue, ConstraintsByDomain> internedConstraints = constraints.get(programState.constraints);
+    if (internedConstraints == null) {
+      internedConstraints = internConstraintsByDomain(programState.constraints);
+      constraints.put(internedConstraints, internedConstraints);
+    }
+    return programState.withMaps(internedValues, internedConstraints);
+  }
+
+  private PMap<SymbolicValue, ConstraintsByDomain> internConstraintsByDomain(PMap<SymbolicValue, ConstraintsByDomain> constraintsBySymbolicValue) {
+    List<SymbolicValue> toReplace = new ArrayList<>();
+    List<ConstraintsByDomain> replacements = new ArrayList<>();
+    constraintsBySymbolicValue.forEach((sv, constraintsForSV) -> {
+      if (canonicalConstraintsByDomain.contains(constraintsForSV)) {
+        return;
+      }
+      ConstraintsByDomain interned = constraintsByDomain.putIfAbsent(constraintsForSV, constraintsForSV);
+      if (interned == null) {
+        canonicalConstraintsByDomain.add(constraintsForSV);
+      } else {
+        toReplace.add(sv);
+        replacements.add(interned);
+      }
+    });
+    PMap<SymbolicValue, ConstraintsByDomain> result = constraintsBySymbolicValue;
+    for (int i = 0; i < toReplace.size(); i++) {
+      result = result.putInstance(toReplace.get(i), replacements.get(i));
+    }
+    return result;
+  }
+
+}
@@ -0,0 +1,154 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se;
+
+import com.google.common.collect.ImmutableSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.CheckForNull;
+import org.sonar.java.collections.PMap;
+import org.sonar.java.se.constraint.BooleanConstraint;
+import org.sonar.java.se.constraint.Constraint;
+import org.sonar.java.se.constraint.ConstraintsByDomain;
+import org.sonar.java.se.constraint.TypedConstraint;
+import org.sonar.java.se.symbolicvalues.SymbolicValue;
+
+/**
+ * Joins a state reaching a program point with a state already explored at this program point, so that the exploration of
+ * the incoming state can be skipped or replaced by the exploration of a more general state.
+ *
+ * States are only joined when they bind the same symbols to symbolic values which can be matched one to one, have the same
+ * stack and the same exit value. Constraints of the {@link #WIDENED_DOMAINS} on which states disagree are dropped. Constraints
+ * of other domains are the ones on which checks raise issues: states disagreeing on them are never joined, which keeps
+ * checks from reporting issues on paths which do not exist.
+ */
+final class StateMerger {
+
+  static final Set<Class<? extends Constraint>> WIDENED_DOMAINS = ImmutableSet.of(BooleanConstraint.class, TypedConstraint.class);
+
+  private StateMerger() {
+  }
+
+  /**
+   * @return the explored state if it is more general than the incoming one, a state more general than both of them, or null
+   * if they can not be joined
+   */
+  @CheckForNull
+  static ProgramState join(ProgramState explored, ProgramState incoming) {
+    if (!explored.hasSameStackAndExitValue(incoming)) {
+      return null;
+    }
+    Map<SymbolicValue, SymbolicValue> incomingByExplored = matchSymbolicValues(explored, incoming);
+    if (incomingByExplored == null) {
+      return null;
+    }
+    List<SymbolicValue> exploredSymbolicValues = new ArrayList<>();
+    explored.constraints.forEach((sv, constraints) -> exploredSymbolicValues.add(sv));
+    PMap<SymbolicValue, ConstraintsByDomain> joinedConstraints = explored.constraints;
+    Set<SymbolicValue> matchedIncoming = new HashSet<>();
+    for (SymbolicValue sv : exploredSymbolicValues) {
+      SymbolicValue incomingSV = incomingByExplored.getOrDefault(sv, sv);
+      matchedIncoming.add(incomingSV);
+      ConstraintsByDomain exploredConstraints = explored.getConstraints(sv);
+      ConstraintsByDomain joined = join(exploredConstraints, constraintsOf(incoming, incomingSV));
+      if (joined == null) {
+        return null;
+      }
+      if (joined != exploredConstraints) {
+        joinedConstraints = joined.isEmpty() ? joinedConstraints.remove(sv) : joinedConstraints.put(sv, joined);
+      }
+    }
+    List<ConstraintsByDomain> unmatchedIncoming = new ArrayList<>();
+    incoming.constraints.forEach((sv, constraints) -> {
+      if (!matchedIncoming.contains(sv)) {
+        unmatchedIncoming.add(constraints);
+      }
+    });
+    if (unmatchedIncoming.stream().anyMatch(constraints -> join(ConstraintsByDomain.empty(), constraints) == null)) {
+      return null;
+    }
+    return joinedConstraints == explored.constraints ? explored : explored.withConstraints(joinedConstraints, incoming);
+  }
+
+  /**
+   * @return symbolic values of the incoming state bound to the same symbols as the ones of the explored state, or null if
+   * the symbols are not the same or if symbolic values can not be matched one to one
+   */
+  @CheckForNull
+  private static Map<SymbolicValue, SymbolicValue> matchSymbolicValues(ProgramState explored, ProgramState incoming) {
+    Map<SymbolicValue, SymbolicValue> incomingByExplored = new HashMap<>();
+    Map<SymbolicValue, SymbolicValue> exploredByIncoming = new HashMap<>();
+    boolean[] matching = {true};
+    explored.values.forEach((symbol, exploredSV) -> {
+      SymbolicValue incomingSV = incoming.values.get(symbol);
+      if (incomingSV == null) {
+        matching[0] = false;
+        return;
+      }
+      SymbolicValue previousIncoming = incomingByExplored.putIfAbsent(exploredSV, incomingSV);
+      SymbolicValue previousExplored = exploredByIncoming.putIfAbsent(incomingSV, exploredSV);
+      matching[0] &= (previousIncoming == null || previousIncoming == incomingSV) && (previousExplored == null || previousExplored == exploredSV)
+        && (exploredSV == incomingSV || !isKnown(explored, incomingSV) && !isKnown(incoming, exploredSV));
+    });
+    incoming.values.forEach((symbol, incomingSV) -> matching[0] &= explored.values.get(symbol) != null);
+    return matching[0] ? incomingByExplored : null;
+  }
+
+  /**
+   * Symbolic values known by both states, such as literals, can not be renamed.
+   */
+  private static boolean isKnown(ProgramState programState, SymbolicValue sv) {
+    return programState.getConstraints(sv) != null;
+  }
+
+  private static ConstraintsByDomain constraintsOf(ProgramState programState, SymbolicValue sv) {
+    ConstraintsByDomain constraints = programState.getConstraints(sv);
+    return constraints == null ? ConstraintsByDomain.empty() : constraints;
+  }
+
+  /**
+   * @return constraints on which both agree, or null if they disagree on constraints which can not be dropped
+   */
+  @CheckForNull
+  private static ConstraintsByDomain join(ConstraintsByDomain explored, ConstraintsByDomain incoming) {
+    if (explored.equals(incoming)) {
+      return explored;
+    }
+    ConstraintsByDomain result = explored;
+    Set<Class<? extends Constraint>> domains = Stream.concat(explored.domains(), incoming.domains()).collect(Collectors.toSet());
+    for (Class<? extends Constraint> domain : domains) {
+      if (!Objects.equals(explored.get(domain), incoming.get(domain))) {
+        if (!WIDENED_DOMAINS.contains(domain)) {
+          return null;
+        }
+        result = result.remove(domain);
+      }
+    }
+    return result;
+  }
+
+}
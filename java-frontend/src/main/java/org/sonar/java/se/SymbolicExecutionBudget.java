@@ -0,0 +1,230 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import javax.annotation.CheckForNull;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+/**
+ * Limits of the symbolic execution of methods, in number of steps, wall-clock time per method, per file and per analysis, and
+ * estimated bytes retained by exploded graphs per method, per file and per analysis. A limit of 0 means no limit.
+ *
+ * Exploded graphs are dropped once their method is explored: the memory of a file or of an analysis is the sum of the estimated
+ * bytes of all the graphs built for it, which bounds the allocations of the exploration rather than the heap held at once.
+ *
+ * When a limit is reached, the exploration of the method is interrupted as when the maximum number of steps is reached, and
+ * methods of a file or of an analysis whose time is over are not explored anymore. Reasons of interrupted and skipped
+ * explorations are recorded, so that they can be reported at the end of the analysis.
+ */
+public final class SymbolicExecutionBudget {
+
+  private static final Logger LOG = Loggers.get(SymbolicExecutionBudget.class);
+
+  public static final int DEFAULT_MAX_STEPS = 16_000;
+  private static final long NO_DEADLINE = Long.MAX_VALUE;
+  private static final int ESTIMATED_NODE_BYTES = 128;
+  private static final int ESTIMATED_CONSTRAINT_BYTES = 48;
+
+  public enum Reason {
+    MAX_STEPS,
+    EXPLODED_GRAPH_TOO_BIG,
+    METHOD_MEMORY,
+    FILE_MEMORY,
+    ANALYSIS_MEMORY,
+    METHOD_TIMEOUT,
+    FILE_TIMEOUT,
+    ANALYSIS_TIMEOUT
+  }
+
+  private final int maxSteps;
+  private final long methodTimeoutNanos;
+  private final long fileTimeoutNanos;
+  private final long maxMethodRetainedBytes;
+  private final long maxFileRetainedBytes;
+  private final long maxAnalysisRetainedBytes;
+  private final long analysisDeadline;
+  // files can be analyzed in parallel, each worker thread having the deadline and the consumed memory of the file it explores
+  private final ThreadLocal<Long> fileDeadline = ThreadLocal.withInitial(() -> NO_DEADLINE);
+  private final ThreadLocal<Long> fileRetainedBytes = ThreadLocal.withInitial(() -> 0L);
+  private final AtomicLong analysisRetainedBytes = new AtomicLong();
+  private final Map<Reason, Integer> exhaustedBudgets = new EnumMap<>(Reason.class);
+
+  public SymbolicExecutionBudget(int maxSteps, long methodTimeoutMillis, long fileTimeoutMillis, long analysisTimeoutMillis, long maxMethodRetainedBytes) {
+    this(maxSteps, methodTimeoutMillis, fileTimeoutMillis, analysisTimeoutMillis, maxMethodRetainedBytes, 0, 0);
+  }
+
+  public SymbolicExecutionBudget(int maxSteps, long methodTimeoutMillis, long fileTimeoutMillis, long analysisTimeoutMillis, long maxMethodRetainedBytes,
+    long maxFileRetainedBytes, long maxAnalysisRetainedBytes) {
+    this.maxSteps = maxSteps > 0 ? maxSteps : DEFAULT_MAX_STEPS;
+    this.methodTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(methodTimeoutMillis);
+    this.fileTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(fileTimeoutMillis);
+    this.maxMethodRetainedBytes = maxMethodRetainedBytes;
+    this.maxFileRetainedBytes = maxFileRetainedBytes;
+    this.maxAnalysisRetainedBytes = maxAnalysisRetainedBytes;
+    this.analysisDeadline = deadline(System.nanoTime(), TimeUnit.MILLISECONDS.toNanos(analysisTimeoutMillis));
+  }
+
+  public static SymbolicExecutionBudget unlimited() {
+    return new SymbolicExecutionBudget(DEFAULT_MAX_STEPS, 0, 0, 0, 0);
+  }
+
+  public int maxSteps() {
+    return maxSteps;
+  }
+
+  public long maxMethodRetainedBytes() {
+    return maxMethodRetainedBytes;
+  }
+
+  public long maxFileRetainedBytes() {
+    return maxFileRetainedBytes;
+  }
+
+  public long maxAnalysisRetainedBytes() {
+    return maxAnalysisRetainedBytes;
+  }
+
+  /**
+   * @return true when the exploration of methods can be interrupted by the memory consumed by other methods, making its results
+   * depend on the order in which files are analyzed
+   */
+  public boolean isSharedMemoryBounded() {
+    return maxFileRetainedBytes > 0 || maxAnalysisRetainedBytes > 0;
+  }
+
+  /**
+   * @return true when the exploration of methods can be interrupted by a timeout, making its results depend on the machine
+   */
+  public boolean isTimeBounded() {
+    return methodTimeoutNanos > 0 || fileTimeoutNanos > 0 || analysisDeadline != NO_DEADLINE;
+  }
+
+  /**
+   * Start the time and the memory of the exploration of the methods of a new file.
+   */
+  public void startFile() {
+    fileDeadline.set(deadline(System.nanoTime(), fileTimeoutNanos));
+    fileRetainedBytes.set(0L);
+  }
+
+  /**
+   * @return why methods can not be explored anymore, or null if there is time and memory left for the current file
+   */
+  @CheckForNull
+  public Reason exhausted() {
+    Reason reason = timeout(System.nanoTime());
+    return reason == null ? memoryReason(0) : reason;
+  }
+
+  /**
+   * @return {@link System#nanoTime()} after which the exploration of a method starting now has to be interrupted
+   */
+  public long methodDeadline() {
+    long now = System.nanoTime();
+    return Math.min(deadline(now, methodTimeoutNanos), Math.min(fileDeadline.get(), analysisDeadline));
+  }
+
+  public static boolean hasDeadline(long deadline) {
+    return deadline != NO_DEADLINE;
+  }
+
+  /**
+   * @return reason of the interruption of a method whose deadline is over
+   */
+  public Reason timeoutReason() {
+    Reason reason = timeout(System.nanoTime());
+    return reason == null ? Reason.METHOD_TIMEOUT : reason;
+  }
+
+  /**
+   * @return reason of the interruption of a method whose exploded graph retains the given bytes, or null if there is memory left
+   */
+  @CheckForNull
+  public Reason memoryReason(long retainedBytes) {
+    if (maxAnalysisRetainedBytes > 0 && analysisRetainedBytes.get() + retainedBytes > maxAnalysisRetainedBytes) {
+      return Reason.ANALYSIS_MEMORY;
+    }
+    if (maxFileRetainedBytes > 0 && fileRetainedBytes.get() + retainedBytes > maxFileRetainedBytes) {
+      return Reason.FILE_MEMORY;
+    }
+    if (maxMethodRetainedBytes > 0 && retainedBytes > maxMethodRetainedBytes) {
+      return Reason.METHOD_MEMORY;
+    }
+    return null;
+  }
+
+  /**
+   * Charge the bytes retained by the exploded graph of an explored method, completely or not, to the current file and analysis.
+   */
+  public void consume(long retainedBytes) {
+    fileRetainedBytes.set(fileRetainedBytes.get() + retainedBytes);
+    analysisRetainedBytes.addAndGet(retainedBytes);
+  }
+
+  /**
+   * @return rough estimation of the bytes retained by a node of an exploded graph, and by each constraint of its state
+   */
+  public static long estimatedRetainedBytes(ProgramState programState) {
+    return ESTIMATED_NODE_BYTES + (long) ESTIMATED_CONSTRAINT_BYTES * programState.constraintsSize();
+  }
+
+  @CheckForNull
+  private Reason timeout(long now) {
+    if (now >= analysisDeadline) {
+      return Reason.ANALYSIS_TIMEOUT;
+    }
+    if (now >= fileDeadline.get()) {
+      return Reason.FILE_TIMEOUT;
+    }
+    return null;
+  }
+
+  private static long deadline(long start, long timeoutNanos) {
+    return timeoutNanos > 0 ? (start + timeoutNanos) : NO_DEADLINE;
+  }
+
+  public synchronized void record(Reason reason) {
+    exhaustedBudgets.merge(reason, 1, Integer::sum);
+  }
+
+  /**
+   * @return number of methods whose exploration has been interrupted or skipped, by reason
+   */
+  public synchronized Map<Reason, Integer> exhaustedBudgets() {
+    return new EnumMap<>(exhaustedBudgets);
+  }
+
+  public void logSummary() {
+    Map<Reason, Integer> exhausted = exhaustedBudgets();
+    if (!exhausted.isEmpty()) {
+      LOG.info("Symbolic execution was incomplete for some methods: {}", exhausted.entrySet().stream()
+        .map(entry -> entry.getValue() + " (" + entry.getKey().name().toLowerCase(Locale.ENGLISH) + ")")
+        .collect(Collectors.joining(", ")));
+    }
+  }
+
+}
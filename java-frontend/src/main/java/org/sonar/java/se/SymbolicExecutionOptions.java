@@ -0,0 +1,113 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.java.collections.PCollections;
+
+/**
+ * Options of the exploration of methods by the {@link ExplodedGraphWalker}, which trade precision or completeness of the
+ * symbolic execution for its cost.
+ */
+public final class SymbolicExecutionOptions {
+
+  private final boolean stateMerging;
+  private final WorkList.Strategy workListStrategy;
+  private final SymbolicExecutionBudget budget;
+  @Nullable
+  private final SymbolicExecutionStatistics statistics;
+  private final PCollections.Implementation collections;
+
+  private SymbolicExecutionOptions(boolean stateMerging, WorkList.Strategy workListStrategy, SymbolicExecutionBudget budget,
+    @Nullable SymbolicExecutionStatistics statistics, PCollections.Implementation collections) {
+    this.stateMerging = stateMerging;
+    this.workListStrategy = workListStrategy;
+    this.budget = budget;
+    this.statistics = statistics;
+    this.collections = collections;
+  }
+
+  /**
+   * Options of an exploration without state merging nor limits. A new instance is returned on each call, as the budget
+   * records the deadlines and the exhausted limits of the analysis using it.
+   */
+  public static SymbolicExecutionOptions defaults() {
+    return new SymbolicExecutionOptions(false, WorkList.Strategy.DEPTH_FIRST, SymbolicExecutionBudget.unlimited(), null, PCollections.Implementation.AVL_TREE);
+  }
+
+  /**
+   * @param stateMerging when true, states reaching a block having several predecessors are joined with the states already
+   *                     explored there (see {@link StateMerger})
+   */
+  public SymbolicExecutionOptions withStateMerging(boolean stateMerging) {
+    return new SymbolicExecutionOptions(stateMerging, workListStrategy, budget, statistics, collections);
+  }
+
+  /**
+   * @param workListStrategy order in which the nodes of the exploded graph are explored
+   */
+  public SymbolicExecutionOptions withWorkListStrategy(WorkList.Strategy workListStrategy) {
+    return new SymbolicExecutionOptions(stateMerging, workListStrategy, budget, statistics, collections);
+  }
+
+  /**
+   * @param budget limits of the exploration, shared by all the methods explored with these options
+   */
+  public SymbolicExecutionOptions withBudget(SymbolicExecutionBudget budget) {
+    return new SymbolicExecutionOptions(stateMerging, workListStrategy, budget, statistics, collections);
+  }
+
+  /**
+   * @param statistics collector of the effort spent on each explored method, or null to not collect it
+   */
+  public SymbolicExecutionOptions withStatistics(@Nullable SymbolicExecutionStatistics statistics) {
+    return new SymbolicExecutionOptions(stateMerging, workListStrategy, budget, statistics, collections);
+  }
+
+  /**
+   * @param collections implementation of the maps of the program states of the explored methods
+   */
+  public SymbolicExecutionOptions withCollections(PCollections.Implementation collections) {
+    return new SymbolicExecutionOptions(stateMerging, workListStrategy, budget, statistics, collections);
+  }
+
+  public boolean stateMerging() {
+    return stateMerging;
+  }
+
+  public WorkList.Strategy workListStrategy() {
+    return workListStrategy;
+  }
+
+  public SymbolicExecutionBudget budget() {
+    return budget;
+  }
+
+  @CheckForNull
+  public SymbolicExecutionStatistics statistics() {
+    return statistics;
+  }
+
+  public PCollections.Implementation collections() {
+    return collections;
+  }
+
+}
@@ -0,0 +1,139 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+/**
+ * Collects, for each method explored by symbolic execution, the effort spent on its exploration and why it has been aborted,
+ * if it has been.
+ */
+public class SymbolicExecutionStatistics {
+
+  private static final Logger LOG = Loggers.get(SymbolicExecutionStatistics.class);
+  private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+  private final List<MethodStatistics> methods = new ArrayList<>();
+
+  public synchronized void record(MethodStatistics methodStatistics) {
+    methods.add(methodStatistics);
+  }
+
+  public void writeReport(File reportFile) {
+    File directory = reportFile.getParentFile();
+    if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+      LOG.warn("Unable to create directory of the symbolic execution statistics: " + directory.getAbsolutePath());
+      return;
+    }
+    try (Writer writer = Files.newBufferedWriter(reportFile.toPath(), StandardCharsets.UTF_8)) {
+      GSON.toJson(report(), writer);
+      LOG.info("Symbolic execution statistics written to " + reportFile.getAbsolutePath());
+    } catch (IOException e) {
+      LOG.warn("Unable to write symbolic execution statistics: " + reportFile.getAbsolutePath(), e);
+    }
+  }
+
+  public void logSummary() {
+    Report report = report();
+    if (report.methods == 0) {
+      return;
+    }
+    LOG.info("Symbolic execution of {} methods took {} ms and {} steps, {} methods took half of this time, {} were aborted",
+      report.methods, TimeUnit.NANOSECONDS.toMillis(report.timeNanos), report.steps, report.methodsTakingHalfOfTime,
+      report.abortReasons.values().stream().mapToInt(Integer::intValue).sum());
+  }
+
+  synchronized Report report() {
+    Report report = new Report();
+    report.methods = methods.size();
+    report.methodStatistics = new ArrayList<>(methods);
+    report.methodStatistics.sort(Comparator.comparingLong((MethodStatistics method) -> method.timeNanos).reversed());
+    for (MethodStatistics method : report.methodStatistics) {
+      report.steps += method.steps;
+      report.timeNanos += method.timeNanos;
+      if (method.abortReason != null) {
+        report.abortReasons.merge(method.abortReason, 1, Integer::sum);
+      }
+    }
+    long cumulatedTime = 0;
+    for (MethodStatistics method : report.methodStatistics) {
+      if (2 * cumulatedTime >= report.timeNanos) {
+        break;
+      }
+      cumulatedTime += method.timeNanos;
+      report.methodsTakingHalfOfTime++;
+    }
+    return report;
+  }
+
+  public static final class MethodStatistics {
+    final String file;
+    final String method;
+    final int line;
+    final int steps;
+    final int nodes;
+    final int peakWorkListSize;
+    final int yields;
+    final long timeNanos;
+    @Nullable
+    final String abortReason;
+
+    public MethodStatistics(String file, String method, int line, int steps, int nodes, int peakWorkListSize, int yields, long timeNanos,
+      @Nullable SymbolicExecutionBudget.Reason abortReason) {
+      this.file = file;
+      this.method = method;
+      this.line = line;
+      this.steps = steps;
+      this.nodes = nodes;
+      this.peakWorkListSize = peakWorkListSize;
+      this.yields = yields;
+      this.timeNanos = timeNanos;
+      this.abortReason = abortReason == null ? null : abortReason.name();
+    }
+  }
+
+  static class Report {
+    int methods;
+    long steps;
+    long timeNanos;
+    /**
+     * Smallest number of methods whose exploration took half of the time of symbolic execution.
+     */
+    int methodsTakingHalfOfTime;
+    Map<String, Integer> abortReasons = new TreeMap<>();
+    List<MethodStatistics> methodStatistics;
+  }
+
+}
@@ -21,10 +21,13 @@ package org.sonar.java.se;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
+import java.util.ArrayList;
 import java.util.List;
+import javax.annotation.Nullable;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.java.ast.visitors.SubscriptionVisitor;
+import org.sonar.java.cfg.CFGProvider;
 import org.sonar.java.resolve.Flags;
 import org.sonar.java.resolve.JavaSymbol;
 import org.sonar.java.resolve.SemanticModel;
@@ -42,16 +45,35 @@ public class SymbolicExecutionVisitor extends SubscriptionVisitor {
   @VisibleForTesting
   public BehaviorCache behaviorCache;
   private final ExplodedGraphWalker.ExplodedGraphWalkerFactory egwFactory;
+  private final SymbolicExecutionBudget budget;
+  @Nullable
+  private final SymbolicExecutionStatistics statistics;
+  private final List<MethodTree> methods = new ArrayList<>();
 
   public SymbolicExecutionVisitor(List<JavaFileScanner> executableScanners, BehaviorCache behaviorCache) {
-    egwFactory = new ExplodedGraphWalker.ExplodedGraphWalkerFactory(executableScanners);
+    this(executableScanners, behaviorCache, SymbolicExecutionOptions.defaults());
+  }
+
+  public SymbolicExecutionVisitor(List<JavaFileScanner> executableScanners, BehaviorCache behaviorCache, SymbolicExecutionOptions options) {
+    egwFactory = new ExplodedGraphWalker.ExplodedGraphWalkerFactory(executableScanners, options);
     this.behaviorCache = behaviorCache;
+    this.budget = options.budget();
+    this.statistics = options.statistics();
   }
 
   @Override
   public void scanFile(JavaFileScannerContext context) {
     behaviorCache.setFileContext(this, (SemanticModel) context.getSemanticModel());
+    methods.clear();
+    budget.startFile();
     super.scanFile(context);
+    try {
+      // methods are explored one at a time, callees first: they are not explored in parallel, as symbols are completed lazily,
+      // symbolic values are numbered by a shared counter and checks keep the state of the explored method
+      CallGraph.bottomUpOrder(methods).forEach(this::execute);
+    } finally {
+      methods.clear();
+    }
   }
 
   @Override
@@ -61,11 +83,19 @@ public class SymbolicExecutionVisitor extends SubscriptionVisitor {
 
   @Override
   public void visitNode(Tree tree) {
-    execute((MethodTree) tree);
+    methods.add((MethodTree) tree);
   }
 
   public void execute(MethodTree methodTree) {
+    SymbolicExecutionBudget.Reason exhaustedBudget = budget.exhausted();
+    if (exhaustedBudget != null && methodTree.block() != null) {
+      skip(methodTree, exhaustedBudget);
+      return;
+    }
     ExplodedGraphWalker walker = getWalker();
+    walker.setCFGProvider(CFGProvider.of(context));
+    long start = System.nanoTime();
+    SymbolicExecutionBudget.Reason abortReason = null;
     try {
       Symbol.MethodSymbol methodSymbol = methodTree.symbol();
       if (methodCanNotBeOverriden(methodSymbol)) {
@@ -80,10 +110,48 @@ public class SymbolicExecutionVisitor extends SubscriptionVisitor {
     } catch (ExplodedGraphWalker.MaximumStepsReachedException
       | ExplodedGraphWalker.ExplodedGraphTooBigException exception) {
       LOG.debug("Could not complete symbolic execution: ", exception);
+      abortReason = interruptionReason(exception);
+      budget.record(abortReason);
       if (walker.methodBehavior != null) {
         walker.methodBehavior.visited();
       }
     }
+    budget.consume(walker.retainedBytes());
+    if (statistics != null && walker.steps > 0) {
+      int yields = walker.methodBehavior == null ? 0 : walker.methodBehavior.yields().size();
+      statistics.record(methodStatistics(methodTree, walker.steps, walker.explodedGraphSize(), walker.peakWorkListSize, yields,
+        System.nanoTime() - start, abortReason));
+    }
+  }
+
+  private SymbolicExecutionStatistics.MethodStatistics methodStatistics(MethodTree methodTree, int steps, int nodes, int peakWorkListSize,
+    int yields, long timeNanos, @Nullable SymbolicExecutionBudget.Reason abortReason) {
+    String method = ((JavaSymbol.MethodJavaSymbol) methodTree.symbol()).completeSignature();
+    return new SymbolicExecutionStatistics.MethodStatistics(context.getFile().getPath(), method, methodTree.simpleName().firstToken().line(),
+      steps, nodes, peakWorkListSize, yields, timeNanos, abortReason);
+  }
+
+  private void skip(MethodTree methodTree, SymbolicExecutionBudget.Reason exhaustedBudget) {
+    LOG.debug("Skipped symbolic execution of method {} in class {}: {} budget exhausted",
+      methodTree.simpleName().name(), methodTree.symbol().owner().name(), exhaustedBudget);
+    budget.record(exhaustedBudget);
+    if (statistics != null) {
+      statistics.record(methodStatistics(methodTree, 0, 0, 0, 0, 0L, exhaustedBudget));
+    }
+    Symbol.MethodSymbol methodSymbol = methodTree.symbol();
+    if (methodCanNotBeOverriden(methodSymbol)) {
+      behaviorCache.methodBehaviorForSymbol(methodSymbol).visited();
+    }
+  }
+
+  private static SymbolicExecutionBudget.Reason interruptionReason(RuntimeException exception) {
+    if (exception instanceof ExplodedGraphWalker.BudgetExhaustedException) {
+      return ((ExplodedGraphWalker.BudgetExhaustedException) exception).reason();
+    }
+    if (exception instanceof ExplodedGraphWalker.ExplodedGraphTooBigException) {
+      return SymbolicExecutionBudget.Reason.EXPLODED_GRAPH_TOO_BIG;
+    }
+    return SymbolicExecutionBudget.Reason.MAX_STEPS;
   }
 
   @VisibleForTesting
@@ -0,0 +1,140 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se;
+
+import com.google.common.collect.Iterators;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import javax.annotation.CheckForNull;
+import org.sonar.java.cfg.CFG;
+
+/**
+ * Nodes of the exploded graph waiting to be explored. The order in which they are explored decides which paths of a method
+ * are covered before the maximum number of steps is reached.
+ */
+public interface WorkList {
+
+  void add(ExplodedGraph.Node node);
+
+  /**
+   * @return the next node to explore, which is removed from the work list
+   */
+  ExplodedGraph.Node remove();
+
+  /**
+   * @return the next node to explore, or null if the work list is empty
+   */
+  @CheckForNull
+  ExplodedGraph.Node peek();
+
+  int size();
+
+  default boolean isEmpty() {
+    return size() == 0;
+  }
+
+  enum Strategy {
+    /**
+     * Last enqueued node first.
+     */
+    DEPTH_FIRST {
+      @Override
+      public WorkList create(CFG cfg) {
+        return new DequeWorkList(true);
+      }
+    },
+    /**
+     * First enqueued node first.
+     */
+    BREADTH_FIRST {
+      @Override
+      public WorkList create(CFG cfg) {
+        return new DequeWorkList(false);
+      }
+    },
+    /**
+     * Node whose block comes first in reverse postorder of the control flow graph first, so that states reaching a block are
+     * explored after the states of its predecessors outside of loops.
+     */
+    REVERSE_POSTORDER {
+      @Override
+      public WorkList create(CFG cfg) {
+        int[] order = reversePostorder(cfg);
+        long stride = cfg.blocks().stream().mapToInt(block -> block.elements().size()).max().orElse(0) + 2L;
+        return new PriorityWorkList(node -> order[node.programPoint.block.id()] * stride + node.programPoint.i);
+      }
+    },
+    /**
+     * Node whose program point has been visited the least number of times by its path first.
+     */
+    LEAST_VISITED_FIRST {
+      @Override
+      public WorkList create(CFG cfg) {
+        return new PriorityWorkList(node -> node.programState == null ? 0 : node.programState.numberOfTimeVisited(node.programPoint));
+      }
+    };
+
+    public abstract WorkList create(CFG cfg);
+
+    /**
+     * @return position of each block, indexed by block id, in reverse postorder of the blocks reachable from the entry block.
+     * Unreachable blocks come last.
+     */
+    private static int[] reversePostorder(CFG cfg) {
+      List<CFG.Block> blocks = cfg.blocks();
+      int[] postorder = new int[blocks.size()];
+      Arrays.fill(postorder, -1);
+      boolean[] discovered = new boolean[blocks.size()];
+      Deque<CFG.Block> path = new ArrayDeque<>();
+      Deque<Iterator<CFG.Block>> successors = new ArrayDeque<>();
+      discovered[cfg.entry().id()] = true;
+      path.push(cfg.entry());
+      successors.push(successors(cfg.entry()));
+      int count = 0;
+      while (!path.isEmpty()) {
+        Iterator<CFG.Block> iterator = successors.peek();
+        if (iterator.hasNext()) {
+          CFG.Block successor = iterator.next();
+          if (!discovered[successor.id()]) {
+            discovered[successor.id()] = true;
+            path.push(successor);
+            successors.push(successors(successor));
+          }
+        } else {
+          successors.pop();
+          postorder[path.pop().id()] = count;
+          count++;
+        }
+      }
+      int[] order = new int[blocks.size()];
+      for (int id = 0; id < order.length; id++) {
+        order[id] = postorder[id] < 0 ? order.length : (count - 1 - postorder[id]);
+      }
+      return order;
+    }
+
+    private static Iterator<CFG.Block> successors(CFG.Block block) {
+      return Iterators.concat(block.successors().iterator(), block.exceptions().iterator());
+    }
+  }
+}
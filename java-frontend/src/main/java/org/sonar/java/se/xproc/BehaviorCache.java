@@ -30,6 +30,7 @@ import org.sonar.java.bytecode.loader.SquidClassLoader;
 import org.sonar.java.bytecode.se.BytecodeEGWalker;
 import org.sonar.java.resolve.JavaSymbol;
 import org.sonar.java.resolve.SemanticModel;
+import org.sonar.java.se.SymbolicExecutionBudget;
 import org.sonar.java.se.SymbolicExecutionVisitor;
 import org.sonar.plugins.java.api.semantic.Symbol;
 import org.sonar.plugins.java.api.tree.MethodTree;
@@ -43,6 +44,9 @@ public class BehaviorCache {
   @VisibleForTesting
   public final Map<String, MethodBehavior> behaviors = new LinkedHashMap<>();
   private final Map<String, MethodBehavior> bytecodeBehaviors = new LinkedHashMap<>();
+  @Nullable
+  private final MethodBehaviorStore store;
+  private SymbolicExecutionBudget budget = SymbolicExecutionBudget.unlimited();
 
   // methods known to be well covered using bytecode-generated behavior
   private static final Set<String> WHITELIST = ImmutableSet.of(
@@ -98,8 +102,24 @@ public class BehaviorCache {
   }
 
   public BehaviorCache(SquidClassLoader classLoader, boolean crossFileEnabled) {
+    this(classLoader, crossFileEnabled, null);
+  }
+
+  public BehaviorCache(SquidClassLoader classLoader, boolean crossFileEnabled, @Nullable MethodBehaviorStore store) {
     this.classLoader = classLoader;
     this.crossFileEnabled = crossFileEnabled;
+    this.store = store;
+  }
+
+  /**
+   * @param budget limits of the exploration of the methods whose behavior is computed from bytecode
+   */
+  public void setBudget(SymbolicExecutionBudget budget) {
+    this.budget = budget;
+  }
+
+  public SymbolicExecutionBudget budget() {
+    return budget;
   }
 
   public void setFileContext(@Nullable SymbolicExecutionVisitor sev,@Nullable SemanticModel semanticModel) {
@@ -152,11 +172,26 @@ public class BehaviorCache {
     }
 
     if (!bytecodeBehaviors.containsKey(signature)) {
-      new BytecodeEGWalker(this, semanticModel).getMethodBehavior(signature, classLoader);
+      MethodBehavior stored = store == null ? null : store.get(signature);
+      if (stored != null) {
+        bytecodeBehaviors.put(signature, stored);
+      } else {
+        new BytecodeEGWalker(this, semanticModel).getMethodBehavior(signature, classLoader);
+      }
     }
     return bytecodeBehaviors.get(signature);
   }
 
+  /**
+   * Persist the complete method behaviors computed from bytecode during the analysis, so that next analyses do not compute them again.
+   */
+  public void endOfAnalysis() {
+    if (store != null) {
+      bytecodeBehaviors.values().forEach(store::put);
+      store.save();
+    }
+  }
+
   /**
    * Do not trigger any new computation of method behavior, just check if there is a known method behavior for the symbol.
    *
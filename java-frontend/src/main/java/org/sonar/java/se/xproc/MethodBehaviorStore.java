@@ -0,0 +1,452 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se.xproc;
+
+import com.google.common.hash.Hashing;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.java.resolve.Convert;
+import org.sonar.java.se.constraint.Constraint;
+import org.sonar.java.se.constraint.ConstraintsByDomain;
+
+/**
+ * On-disk store of the method behaviors computed from bytecode, shared by all the files of an analysis and between analyses.
+ * Behaviors are grouped by the library declaring their method, in entries keyed by the checksum of its jar (or by the version
+ * of the Java runtime for its classes). As a behavior is computed from the behaviors of the methods it invokes, which are
+ * often declared in other libraries, entries are also keyed by the checksums of all the libraries of the classpath: an entry
+ * stays valid as long as none of them is modified, wherever they are located. Behaviors of methods of classes loaded from
+ * directories, rebuilt with the project, are not stored, and libraries do not invoke such methods.
+ * Only complete behaviors are stored: a behavior whose exploration has been interrupted depends on the limits of the analysis
+ * which computed it, and would otherwise never be computed again.
+ * Entries are written to a directory owned by the analyzer, identified by a marker file. Only entries it wrote, and which have
+ * not been used for {@value #MAX_UNUSED_DAYS} days, are deleted from it.
+ */
+public class MethodBehaviorStore {
+
+  private static final Logger LOG = Loggers.get(MethodBehaviorStore.class);
+  private static final Gson GSON = new Gson();
+  private static final Type STORED_BEHAVIORS_TYPE = new TypeToken<Map<String, StoredBehavior>>() {}.getType();
+  static final String OWNED_DIRECTORY = "sonar-java-behavior-store";
+  static final String MARKER_FILE = ".sonar-java-behavior-store";
+  private static final Pattern ENTRY = Pattern.compile("[0-9a-f]{64}\\.json");
+  private static final int MAX_UNUSED_DAYS = 30;
+
+  @Nullable
+  private final File directory;
+  private final String analyzerFingerprint;
+  private final ClassLoader classLoader;
+  private final List<File> classpath;
+  @Nullable
+  private String classpathKey;
+  private final Map<String, Optional<Entry>> entriesByClass = new HashMap<>();
+  private final Map<String, Optional<String>> ownerKeysByJar = new HashMap<>();
+  private final Map<String, Entry> entries = new HashMap<>();
+
+  private MethodBehaviorStore(@Nullable File directory, String analyzerFingerprint, ClassLoader classLoader, List<File> classpath) {
+    this.directory = directory;
+    this.analyzerFingerprint = analyzerFingerprint;
+    this.classLoader = classLoader;
+    this.classpath = classpath;
+  }
+
+  /**
+   * @param baseDirectory directory in which the store is created
+   * @param analyzerFingerprint everything, apart from the bytecode, which can change the computed behaviors
+   * @param classLoader loader of the classes whose method behaviors are stored
+   * @param classpath files and directories from which the class loader loads the classes
+   */
+  public static MethodBehaviorStore load(File baseDirectory, String analyzerFingerprint, ClassLoader classLoader, List<File> classpath) {
+    File directory = new File(baseDirectory, OWNED_DIRECTORY);
+    boolean owned = isOwned(directory);
+    if (owned) {
+      deleteUnusedEntries(directory);
+    } else if (directory.exists()) {
+      LOG.warn("Method behavior store is not used, as its directory has not been created by the analyzer: " + directory.getAbsolutePath());
+    } else {
+      owned = createOwnedDirectory(directory);
+    }
+    return new MethodBehaviorStore(owned ? directory : null, analyzerFingerprint, classLoader, classpath);
+  }
+
+  private static boolean isOwned(File directory) {
+    return new File(directory, MARKER_FILE).isFile();
+  }
+
+  private static boolean createOwnedDirectory(File directory) {
+    try {
+      Files.createDirectories(directory.toPath());
+      Files.createFile(new File(directory, MARKER_FILE).toPath());
+      return true;
+    } catch (IOException e) {
+      LOG.warn("Unable to create method behavior store directory: " + directory.getAbsolutePath(), e);
+      return false;
+    }
+  }
+
+  private static void deleteUnusedEntries(File directory) {
+    long oldestUse = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(MAX_UNUSED_DAYS);
+    File[] unusedEntries = directory.listFiles(file -> file.isFile() && ENTRY.matcher(file.getName()).matches() && file.lastModified() < oldestUse);
+    if (unusedEntries != null) {
+      for (File unusedEntry : unusedEntries) {
+        unusedEntry.delete();
+      }
+    }
+  }
+
+  /**
+   * @return a new method behavior built from the stored one, or null if the signature is unknown to the store
+   */
+  @CheckForNull
+  public MethodBehavior get(String signature) {
+    Entry entry = entry(signature);
+    StoredBehavior stored = entry == null ? null : entry.behaviors.get(signature);
+    if (stored == null || !stored.complete) {
+      return null;
+    }
+    try {
+      return stored.toMethodBehavior(signature);
+    } catch (IllegalArgumentException e) {
+      // constraint which does not exist anymore, behavior will be computed again
+      LOG.debug("Unable to restore method behavior of " + signature, e);
+      entry.behaviors.remove(signature);
+      entry.modified = true;
+      return null;
+    }
+  }
+
+  /**
+   * Store a complete method behavior, unless a complete behavior is already known for its method, its method is not declared
+   * in a library, or one of its constraints can not be stored.
+   */
+  public void put(MethodBehavior behavior) {
+    if (!behavior.isComplete()) {
+      return;
+    }
+    Entry entry = entry(behavior.signature());
+    if (entry == null) {
+      return;
+    }
+    StoredBehavior known = entry.behaviors.get(behavior.signature());
+    if (known != null && known.complete) {
+      return;
+    }
+    StoredBehavior stored = StoredBehavior.from(behavior);
+    if (stored != null) {
+      entry.behaviors.put(behavior.signature(), stored);
+      entry.modified = true;
+    }
+  }
+
+  public int size() {
+    return entries.values().stream().mapToInt(entry -> entry.behaviors.size()).sum();
+  }
+
+  public void save() {
+    for (Entry entry : entries.values()) {
+      if (entry.modified) {
+        try (Writer writer = Files.newBufferedWriter(entry.file.toPath(), StandardCharsets.UTF_8)) {
+          GSON.toJson(entry.behaviors, STORED_BEHAVIORS_TYPE, writer);
+          entry.modified = false;
+        } catch (IOException e) {
+          LOG.warn("Unable to write method behavior store entry " + entry.file.getAbsolutePath(), e);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return entry of the library declaring the method of the signature, loaded on first access, or null if its behaviors
+   * can not be stored
+   */
+  @CheckForNull
+  private Entry entry(String signature) {
+    if (directory == null) {
+      return null;
+    }
+    int separator = signature.indexOf('#');
+    if (separator < 0) {
+      return null;
+    }
+    return entriesByClass.computeIfAbsent(signature.substring(0, separator), this::entryOfClass).orElse(null);
+  }
+
+  private Optional<Entry> entryOfClass(String className) {
+    URL url = classLoader.getResource(Convert.bytecodeName(className) + ".class");
+    String ownerKey = url == null ? null : ownerKey(url);
+    if (ownerKey == null) {
+      return Optional.empty();
+    }
+    String entryName = Hashing.sha256().hashString(analyzerFingerprint + "\n" + classpathKey() + "\n" + ownerKey, StandardCharsets.UTF_8).toString() + ".json";
+    return Optional.of(entries.computeIfAbsent(entryName, name -> Entry.load(new File(directory, name))));
+  }
+
+  /**
+   * @return key identifying the content of all the libraries of the classpath, computed on first access
+   */
+  private String classpathKey() {
+    if (classpathKey == null) {
+      List<String> libraryKeys = new ArrayList<>();
+      libraryKeys.add(runtimeKey());
+      for (File file : classpath) {
+        if (file.isFile()) {
+          libraryKeys.add(ownerKeysByJar.computeIfAbsent(file.getAbsolutePath(), k -> jarChecksum(file)).orElse("unreadable"));
+        }
+      }
+      Collections.sort(libraryKeys);
+      classpathKey = String.join(",", libraryKeys);
+    }
+    return classpathKey;
+  }
+
+  /**
+   * @return key identifying the content of the library from which the class has been loaded, or null if it has not been
+   * loaded from a library
+   */
+  @CheckForNull
+  private String ownerKey(URL url) {
+    if ("jrt".equals(url.getProtocol())) {
+      return runtimeKey();
+    }
+    if (!"jar".equals(url.getProtocol())) {
+      return null;
+    }
+    String path = url.getPath();
+    int jarSeparator = path.indexOf("!/");
+    if (jarSeparator < 0) {
+      return null;
+    }
+    File jar = jarFile(path.substring(0, jarSeparator));
+    if (jar == null) {
+      return null;
+    }
+    if (jar.getAbsolutePath().startsWith(new File(System.getProperty("java.home")).getAbsolutePath())) {
+      return runtimeKey();
+    }
+    return ownerKeysByJar.computeIfAbsent(jar.getAbsolutePath(), k -> jarChecksum(jar)).orElse(null);
+  }
+
+  @CheckForNull
+  private static File jarFile(String path) {
+    if (!path.startsWith("file:")) {
+      return new File(path);
+    }
+    try {
+      return new File(new URI(path));
+    } catch (URISyntaxException | IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  private static String runtimeKey() {
+    return "runtime:" + System.getProperty("java.vendor") + ":" + System.getProperty("java.runtime.version");
+  }
+
+  private static Optional<String> jarChecksum(File jar) {
+    try {
+      return Optional.of("jar:" + com.google.common.io.Files.asByteSource(jar).hash(Hashing.sha256()).toString());
+    } catch (IOException e) {
+      LOG.debug("Unable to compute checksum of " + jar.getAbsolutePath(), e);
+      return Optional.empty();
+    }
+  }
+
+  private static class Entry {
+    private final File file;
+    private final Map<String, StoredBehavior> behaviors;
+    private boolean modified = false;
+
+    private Entry(File file, Map<String, StoredBehavior> behaviors) {
+      this.file = file;
+      this.behaviors = behaviors;
+    }
+
+    static Entry load(File file) {
+      Map<String, StoredBehavior> behaviors = null;
+      if (file.isFile()) {
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+          behaviors = GSON.fromJson(reader, STORED_BEHAVIORS_TYPE);
+        } catch (IOException | JsonParseException e) {
+          LOG.debug("Unable to read method behavior store entry " + file.getAbsolutePath(), e);
+        }
+        // last modification tells when the entry has been used for the last time
+        file.setLastModified(System.currentTimeMillis());
+      }
+      return new Entry(file, behaviors == null ? new HashMap<>() : behaviors);
+    }
+  }
+
+  private static class StoredBehavior {
+    boolean varArgs;
+    // entries written by former versions of the store can hold incomplete behaviors, which are computed again
+    boolean complete;
+    List<String> declaredExceptions;
+    List<StoredYield> yields;
+
+    @CheckForNull
+    static StoredBehavior from(MethodBehavior behavior) {
+      StoredBehavior stored = new StoredBehavior();
+      stored.varArgs = behavior.isMethodVarArgs();
+      stored.complete = true;
+      stored.declaredExceptions = new ArrayList<>(behavior.getDeclaredExceptions());
+      stored.yields = new ArrayList<>();
+      for (MethodYield yield : behavior.yields) {
+        StoredYield storedYield = StoredYield.from(yield);
+        if (storedYield == null) {
+          return null;
+        }
+        stored.yields.add(storedYield);
+      }
+      return stored;
+    }
+
+    MethodBehavior toMethodBehavior(String signature) {
+      MethodBehavior behavior = new MethodBehavior(signature, varArgs);
+      behavior.setDeclaredExceptions(declaredExceptions);
+      for (StoredYield storedYield : yields) {
+        behavior.yields.add(storedYield.toMethodYield(behavior));
+      }
+      // yields are stored once reduced, reducing them again does not change them
+      behavior.completed();
+      return behavior;
+    }
+  }
+
+  private static class StoredYield {
+    boolean exceptional;
+    @Nullable
+    String exceptionType;
+    int resultIndex;
+    @Nullable
+    List<String> resultConstraint;
+    List<List<String>> parametersConstraints;
+
+    @CheckForNull
+    static StoredYield from(MethodYield yield) {
+      StoredYield stored = new StoredYield();
+      if (yield instanceof HappyPathYield) {
+        HappyPathYield happyPathYield = (HappyPathYield) yield;
+        stored.resultIndex = happyPathYield.resultIndex();
+        ConstraintsByDomain resultConstraint = happyPathYield.resultConstraint();
+        if (resultConstraint != null) {
+          stored.resultConstraint = constraintNames(resultConstraint);
+          if (stored.resultConstraint == null) {
+            return null;
+          }
+        }
+      } else if (yield.getClass() == ExceptionalYield.class) {
+        stored.exceptional = true;
+        stored.exceptionType = ((ExceptionalYield) yield).exceptionTypeName();
+      } else {
+        // yields created by checks are bound to the exploded graph of their method
+        return null;
+      }
+      stored.parametersConstraints = new ArrayList<>();
+      for (ConstraintsByDomain constraints : yield.parametersConstraints) {
+        List<String> names = constraintNames(constraints);
+        if (names == null) {
+          return null;
+        }
+        stored.parametersConstraints.add(names);
+      }
+      return stored;
+    }
+
+    MethodYield toMethodYield(MethodBehavior behavior) {
+      MethodYield yield;
+      if (exceptional) {
+        ExceptionalYield exceptionalYield = new ExceptionalYield(behavior);
+        exceptionalYield.setExceptionType(exceptionType);
+        yield = exceptionalYield;
+      } else {
+        HappyPathYield happyPathYield = new HappyPathYield(behavior);
+        happyPathYield.setResult(resultIndex, resultConstraint == null ? null : constraints(resultConstraint));
+        yield = happyPathYield;
+      }
+      for (List<String> names : parametersConstraints) {
+        yield.parametersConstraints.add(constraints(names));
+      }
+      return yield;
+    }
+
+    /**
+     * Only constraints which are enum constants can be restored: they are stored as name of the enum and name of the constant.
+     */
+    @CheckForNull
+    private static List<String> constraintNames(ConstraintsByDomain constraints) {
+      if (constraints.stream().anyMatch(constraint -> !(constraint instanceof Enum))) {
+        return null;
+      }
+      return constraints.stream()
+        .map(constraint -> (Enum<?>) constraint)
+        .map(constraint -> constraint.getDeclaringClass().getName() + "#" + constraint.name())
+        .collect(Collectors.toList());
+    }
+
+    private static ConstraintsByDomain constraints(List<String> names) {
+      ConstraintsByDomain constraints = ConstraintsByDomain.empty();
+      for (String name : names) {
+        constraints = constraints.put(constraint(name));
+      }
+      return constraints;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Constraint constraint(String name) {
+      int separator = name.indexOf('#');
+      if (separator < 0) {
+        throw new IllegalArgumentException("Invalid constraint: " + name);
+      }
+      Class<?> enumClass;
+      try {
+        enumClass = Class.forName(name.substring(0, separator), false, MethodBehaviorStore.class.getClassLoader());
+      } catch (ClassNotFoundException e) {
+        throw new IllegalArgumentException("Unknown constraint: " + name, e);
+      }
+      if (!enumClass.isEnum() || !Constraint.class.isAssignableFrom(enumClass)) {
+        throw new IllegalArgumentException("Invalid constraint: " + name);
+      }
+      return (Constraint) Enum.valueOf((Class) enumClass, name.substring(separator + 1));
+    }
+  }
+}
@@ -92,9 +92,14 @@ public class XmlAnalyzer {
   private void simpleScan(File file) {
     Document document = XmlParser.parseXML(file);
     if (document != null) {
-      simpleScanAsXmlFile(file, document);
-      if ("pom.xml".equals(file.getName())) {
-        simpleScanAsPomFile(file, document);
+      try {
+        simpleScanAsXmlFile(file, document);
+        if ("pom.xml".equals(file.getName())) {
+          simpleScanAsPomFile(file, document);
+        }
+      } finally {
+        // lines of the file are only read to report issues, by any of the checks
+        sonarComponents.releaseSource(file);
       }
     }
   }
@@ -0,0 +1,30 @@
+class CallGraph {
+
+  static int top(int a) {
+    return recursive(a) + leaf(a) + new CallGraph().open();
+  }
+
+  private int instance() {
+    return leaf(0);
+  }
+
+  private static int recursive(int a) {
+    return a == 0 ? leaf(a) : mutuallyRecursive(a - 1);
+  }
+
+  private static int mutuallyRecursive(int a) {
+    return recursive(a);
+  }
+
+  private static int leaf(int a) {
+    return a;
+  }
+
+  CallGraph() {
+    leaf(1);
+  }
+
+  public int open() {
+    return leaf(2);
+  }
+}
@@ -0,0 +1,20 @@
+/*
+abstract class StateMerging {
+
+  abstract boolean condition();
+
+  abstract void a();
+
+  abstract void b();
+
+  void loop() {
+    boolean flag = condition();
+    while (condition()) {
+      if (flag) {
+        a();
+      } else {
+        b();
+      }
+    }
+  }
+}
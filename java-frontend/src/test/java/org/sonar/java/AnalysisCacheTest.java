@@ -0,0 +1,141 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.plugins.java.api.JavaCheck;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AnalysisCacheTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private File baseDirectory;
+  private static final String FINGERPRINT = AnalysisCache.fingerprint(Collections.singletonList("fingerprint"));
+  private static final String OTHER_FINGERPRINT = AnalysisCache.fingerprint(Collections.singletonList("other"));
+
+  private final File file = new File("src/test/files/A.java");
+  private final JavaCheck check = new JavaCheck() {
+  };
+
+  @Before
+  public void setUp() throws Exception {
+    baseDirectory = temp.newFolder();
+  }
+
+  @Test
+  public void recorded_issues_are_replayed_for_same_content() {
+    AnalysisCache cache = new AnalysisCache(baseDirectory, FINGERPRINT);
+    cache.startRecording(file, "class A {}");
+    AnalyzerMessage message = new AnalyzerMessage(check, file, new AnalyzerMessage.TextSpan(1, 0, 1, 5), "message", 3);
+    message.flows.add(Collections.singletonList(new AnalyzerMessage(check, file, new AnalyzerMessage.TextSpan(1, 6, 1, 7), "secondary", 0)));
+    cache.record("repo:rule", message);
+    cache.record("repo:other", new AnalyzerMessage(check, file, null, "on file", 0));
+    cache.stopRecording(true);
+
+    List<AnalysisCache.CachedIssue> issues = new AnalysisCache(baseDirectory, FINGERPRINT).cachedIssues(file, "class A {}");
+    assertThat(issues).hasSize(2);
+    assertThat(issues.get(0).ruleKey()).isEqualTo("repo:rule");
+    AnalyzerMessage replayed = issues.get(0).toAnalyzerMessage(file);
+    assertThat(replayed.getMessage()).isEqualTo("message");
+    assertThat(replayed.getCost()).isEqualTo(3.0);
+    assertThat(replayed.primaryLocation().toString()).isEqualTo("(1:0)-(1:5)");
+    assertThat(replayed.flows).hasSize(1);
+    assertThat(replayed.flows.get(0).get(0).getMessage()).isEqualTo("secondary");
+    assertThat(replayed.flows.get(0).get(0).primaryLocation().toString()).isEqualTo("(1:6)-(1:7)");
+    assertThat(issues.get(1).toAnalyzerMessage(file).primaryLocation()).isNull();
+  }
+
+  @Test
+  public void no_issues_for_modified_content_or_other_fingerprint() {
+    AnalysisCache cache = new AnalysisCache(baseDirectory, FINGERPRINT);
+    cache.startRecording(file, "class A {}");
+    cache.stopRecording(true);
+    assertThat(cache.cachedIssues(file, "class A {}")).isEmpty();
+    assertThat(cache.cachedIssues(file, "class A { }")).isNull();
+    assertThat(cache.cachedIssues(new File("B.java"), "class A {}")).isNull();
+
+    assertThat(new AnalysisCache(baseDirectory, OTHER_FINGERPRINT).cachedIssues(file, "class A {}")).isNull();
+    assertThat(baseDirectory.list()).containsOnly(AnalysisCache.OWNED_DIRECTORY);
+    assertThat(new File(baseDirectory, AnalysisCache.OWNED_DIRECTORY).list()).containsOnly(AnalysisCache.MARKER_FILE, OTHER_FINGERPRINT);
+  }
+
+  @Test
+  public void only_files_written_by_the_analyzer_are_deleted() throws Exception {
+    File pom = new File(baseDirectory, "pom.xml");
+    assertThat(pom.createNewFile()).isTrue();
+    new AnalysisCache(baseDirectory, FINGERPRINT);
+    File ownedDirectory = new File(baseDirectory, AnalysisCache.OWNED_DIRECTORY);
+    File otherFile = new File(ownedDirectory, "other.txt");
+    assertThat(otherFile.createNewFile()).isTrue();
+    File foreignFile = new File(new File(ownedDirectory, FINGERPRINT), "foreign.json");
+    assertThat(foreignFile.createNewFile()).isTrue();
+
+    new AnalysisCache(baseDirectory, OTHER_FINGERPRINT);
+    assertThat(pom).exists();
+    assertThat(otherFile).exists();
+    assertThat(foreignFile).exists();
+  }
+
+  @Test
+  public void directory_not_created_by_the_analyzer_is_not_used() throws Exception {
+    File ownedDirectory = new File(baseDirectory, AnalysisCache.OWNED_DIRECTORY);
+    File fingerprintDirectory = new File(ownedDirectory, OTHER_FINGERPRINT);
+    assertThat(fingerprintDirectory.mkdirs()).isTrue();
+    File userFile = new File(fingerprintDirectory, FINGERPRINT + ".json");
+    assertThat(userFile.createNewFile()).isTrue();
+
+    AnalysisCache cache = new AnalysisCache(baseDirectory, FINGERPRINT);
+    cache.startRecording(file, "class A {}");
+    cache.stopRecording(true);
+    assertThat(cache.cachedIssues(file, "class A {}")).isNull();
+    assertThat(userFile).exists();
+    assertThat(ownedDirectory.list()).containsOnly(OTHER_FINGERPRINT);
+  }
+
+  @Test
+  public void incomplete_analysis_is_not_cached() {
+    AnalysisCache cache = new AnalysisCache(baseDirectory, FINGERPRINT);
+    cache.startRecording(file, "class A {}");
+    cache.stopRecording(false);
+    assertThat(cache.cachedIssues(file, "class A {}")).isNull();
+
+    cache.startRecording(file, "class A {}");
+    cache.record("repo:rule", new AnalyzerMessage(check, new File("B.java"), 1, "on other file", 0));
+    cache.stopRecording(true);
+    assertThat(cache.cachedIssues(file, "class A {}")).isNull();
+  }
+
+  @Test
+  public void fingerprint_depends_on_all_parts() {
+    assertThat(AnalysisCache.fingerprint(Collections.singletonList("a")))
+      .isEqualTo(AnalysisCache.fingerprint(Collections.singletonList("a")))
+      .isNotEqualTo(AnalysisCache.fingerprint(Collections.singletonList("b")));
+  }
+
+}
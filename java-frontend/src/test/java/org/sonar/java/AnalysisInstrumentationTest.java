@@ -0,0 +1,98 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.java.AnalysisInstrumentation.Phase;
+import org.sonar.plugins.java.api.JavaCheck;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AnalysisInstrumentationTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private final File fileA = new File("src/test/files/A.java");
+  private final File fileB = new File("src/test/files/B.java");
+
+  @org.sonar.check.Rule(key = "S42")
+  private static class RuleCheck implements JavaCheck {
+  }
+
+  private static class OtherCheck implements JavaCheck {
+  }
+
+  @Test
+  public void measures_are_accumulated_per_phase_check_and_file() {
+    AnalysisInstrumentation instrumentation = new AnalysisInstrumentation(10);
+    instrumentation.recordPhase(Phase.PARSING, fileA, instrumentation.start());
+    instrumentation.recordPhase(Phase.PARSING, fileB, instrumentation.start());
+    instrumentation.recordCheck(new RuleCheck(), fileA, instrumentation.start());
+    instrumentation.recordCheck(new RuleCheck(), fileB, instrumentation.start());
+    instrumentation.recordCheck(new OtherCheck(), fileA, instrumentation.start());
+
+    AnalysisInstrumentation.Report report = instrumentation.report();
+    assertThat(report.phases.keySet()).containsExactly("parsing", "semantic", "symbolic_execution", "checks");
+    assertThat(report.phases.get("parsing").count).isEqualTo(2);
+    assertThat(report.phases.get("semantic").count).isZero();
+    assertThat(report.phases.get("checks").count).isEqualTo(3);
+    assertThat(report.checks.keySet()).containsExactly(OtherCheck.class.getName(), "S42");
+    assertThat(report.checks.get("S42").count).isEqualTo(2);
+    assertThat(report.slowestFiles).extracting(fileReport -> fileReport.file).containsOnly(fileA.getPath(), fileB.getPath());
+    assertThat(report.slowestFiles).extracting(fileReport -> fileReport.count).containsOnly(3L, 2L);
+  }
+
+  @Test
+  public void slowest_files_are_sorted_and_limited() throws Exception {
+    AnalysisInstrumentation instrumentation = new AnalysisInstrumentation(1);
+    instrumentation.recordPhase(Phase.PARSING, fileA, instrumentation.start());
+    AnalysisInstrumentation.Sample start = instrumentation.start();
+    Thread.sleep(5);
+    instrumentation.recordPhase(Phase.PARSING, fileB, start);
+
+    AnalysisInstrumentation.Report report = instrumentation.report();
+    assertThat(report.slowestFiles).hasSize(1);
+    assertThat(report.slowestFiles.get(0).file).isEqualTo(fileB.getPath());
+    assertThat(report.slowestFiles.get(0).wallTimeNanos).isGreaterThanOrEqualTo(5_000_000L);
+  }
+
+  @Test
+  public void report_is_written_as_json() throws Exception {
+    AnalysisInstrumentation instrumentation = new AnalysisInstrumentation(10);
+    instrumentation.recordCheck(new RuleCheck(), fileA, instrumentation.start());
+    File reportFile = new File(temp.newFolder(), "work/report.json");
+
+    instrumentation.writeReport(reportFile);
+
+    JsonObject report = new JsonParser().parse(new String(Files.readAllBytes(reportFile.toPath()), StandardCharsets.UTF_8)).getAsJsonObject();
+    assertThat(report.getAsJsonObject("phases").getAsJsonObject("checks").get("count").getAsLong()).isEqualTo(1);
+    assertThat(report.getAsJsonObject("checks").has("S42")).isTrue();
+    assertThat(report.getAsJsonArray("slowestFiles").get(0).getAsJsonObject().get("file").getAsString()).isEqualTo(fileA.getPath());
+  }
+
+}
@@ -32,10 +32,13 @@ import java.nio.file.NoSuchFileException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
@@ -58,6 +61,13 @@ import org.sonar.api.measures.FileLinesContext;
 import org.sonar.api.measures.FileLinesContextFactory;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.utils.Version;
+import org.sonar.api.utils.log.LogTester;
+import org.sonar.api.utils.log.LoggerLevel;
+import org.sonar.java.bytecode.loader.SquidClassLoader;
+import org.sonar.java.collections.PCollections;
+import org.sonar.java.se.WorkList;
+import org.sonar.java.se.xproc.MethodBehavior;
+import org.sonar.java.se.xproc.MethodBehaviorStore;
 import org.sonar.plugins.java.api.CheckRegistrar;
 import org.sonar.plugins.java.api.JavaCheck;
 
@@ -93,6 +103,12 @@ public class SonarComponentsTest {
   @Mock
   private SensorContext context;
 
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Rule
+  public LogTester logTester = new LogTester();
+
   @Before
   public void setUp() {
     // configure mocks that need verification
@@ -285,6 +301,32 @@ public class SonarComponentsTest {
 
   }
 
+  @Test
+  public void rule_key_and_input_file_are_resolved_once() {
+    JavaCheck expectedCheck = new CustomCheck();
+    CheckRegistrar expectedRegistrar = getRegistrar(expectedCheck);
+    SensorContextTester context = SensorContextTester.create(new File(""));
+    File file = new File("file.java");
+    int[] linesOffset = new int[45];
+    linesOffset[35] = 12;
+    linesOffset[42] = 1;
+    context.fileSystem().add(new TestInputFileBuilder("", "file.java").setLines(45).setOriginalLineOffsets(linesOffset).setLastValidOffset(420).build());
+    DefaultFileSystem fileSystem = spy(context.fileSystem());
+    when(this.checks.ruleKey(any(JavaCheck.class))).thenReturn(RuleKey.of("MyRepo", "CustomCheck"));
+
+    SonarComponents sonarComponents = new SonarComponents(fileLinesContextFactory, fileSystem, null, null, checkFactory, new CheckRegistrar[] {
+      expectedRegistrar
+    });
+    sonarComponents.setSensorContext(context);
+
+    sonarComponents.addIssue(file, expectedCheck, 35, "message on line", null);
+    sonarComponents.addIssue(file, expectedCheck, 42, "message on line", null);
+
+    assertThat(context.allIssues()).hasSize(2);
+    verify(this.checks, times(1)).ruleKey(expectedCheck);
+    verify(fileSystem, times(1)).inputFile(any());
+  }
+
   @Test
   public void fail_on_empty_location() {
     JavaCheck expectedCheck = new CustomCheck();
@@ -360,6 +402,234 @@ public class SonarComponentsTest {
     reset(inputFile);
   }
 
+  @Test
+  public void source_is_decoded_once_until_released() throws Exception {
+    File file = new File("src/test/files/Kanji.java");
+    DefaultInputFile inputFile = spy(new TestInputFileBuilder("", file.getPath())
+      .initMetadata(new String(java.nio.file.Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8))
+      .setCharset(StandardCharsets.UTF_8)
+      .build());
+    SensorContextTester context = SensorContextTester.create(new File(""));
+    context.fileSystem().add(inputFile);
+    SonarComponents sonarComponents = new SonarComponents(null, context.fileSystem(), null, null, null);
+    sonarComponents.setSensorContext(context);
+
+    SourceSnapshot source = sonarComponents.source(file);
+    assertThat(sonarComponents.fileContent(file)).isSameAs(source.content());
+    assertThat(sonarComponents.fileLines(file)).isSameAs(source.lines());
+    verify(inputFile, times(1)).contents();
+
+    sonarComponents.releaseSource(file);
+    assertThat(sonarComponents.source(file)).isNotSameAs(source);
+    sonarComponents.releaseSources();
+    sonarComponents.fileLines(file);
+    verify(inputFile, times(3)).contents();
+  }
+
+  @Test
+  public void analysis_cache_is_bound_to_settings_changing_issues() throws Exception {
+    File file = new File("src/test/files/Kanji.java");
+    SensorContextTester context = SensorContextTester.create(new File(""));
+    context.fileSystem().add(new TestInputFileBuilder("", file.getPath())
+      .initMetadata(new String(java.nio.file.Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8))
+      .setCharset(StandardCharsets.UTF_8)
+      .build());
+    context.settings().setProperty(SonarComponents.ANALYSIS_CACHE_ENABLED_KEY, "true");
+    context.settings().setProperty(SonarComponents.ANALYSIS_CACHE_PATH_KEY, temp.newFolder().getAbsolutePath());
+    context.settings().setProperty("sonar.java.source", "8");
+
+    SonarComponents sonarComponents = analysisCacheComponents(context);
+    assertThat(sonarComponents.replayCachedIssues(file)).isFalse();
+    sonarComponents.startRecordingIssues(file);
+    sonarComponents.stopRecordingIssues(true);
+    assertThat(analysisCacheComponents(context).replayCachedIssues(file)).isTrue();
+
+    context.settings().setProperty("sonar.java.source", "7");
+    assertThat(analysisCacheComponents(context).replayCachedIssues(file)).isFalse();
+    context.settings().setProperty("sonar.java.source", "8");
+    context.settings().setProperty(SonarComponents.SE_STATE_MERGING_KEY, "true");
+    assertThat(analysisCacheComponents(context).replayCachedIssues(file)).isFalse();
+  }
+
+  @Test
+  public void analysis_cache_is_not_used_when_issues_depend_on_other_files_timeouts_or_shared_memory() throws Exception {
+    File file = new File("src/test/files/Kanji.java");
+    SensorContextTester context = SensorContextTester.create(new File(""));
+    context.fileSystem().add(new TestInputFileBuilder("", file.getPath())
+      .initMetadata(new String(java.nio.file.Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8))
+      .setCharset(StandardCharsets.UTF_8)
+      .build());
+    File cacheDirectory = temp.newFolder();
+    context.settings().setProperty(SonarComponents.ANALYSIS_CACHE_ENABLED_KEY, "true");
+    context.settings().setProperty(SonarComponents.ANALYSIS_CACHE_PATH_KEY, cacheDirectory.getAbsolutePath());
+
+    context.settings().setProperty("sonar.java.xfile", "true");
+    SonarComponents sonarComponents = analysisCacheComponents(context);
+    sonarComponents.startRecordingIssues(file);
+    sonarComponents.stopRecordingIssues(true);
+    assertThat(sonarComponents.replayCachedIssues(file)).isFalse();
+
+    context.settings().removeProperty("sonar.java.xfile");
+    context.settings().setProperty(SonarComponents.SE_METHOD_TIMEOUT_KEY, "1000");
+    sonarComponents = analysisCacheComponents(context);
+    sonarComponents.startRecordingIssues(file);
+    sonarComponents.stopRecordingIssues(true);
+    assertThat(sonarComponents.replayCachedIssues(file)).isFalse();
+
+    context.settings().removeProperty(SonarComponents.SE_METHOD_TIMEOUT_KEY);
+    context.settings().setProperty(SonarComponents.SE_ANALYSIS_MEMORY_KEY, "1000000");
+    sonarComponents = analysisCacheComponents(context);
+    sonarComponents.startRecordingIssues(file);
+    sonarComponents.stopRecordingIssues(true);
+    assertThat(sonarComponents.replayCachedIssues(file)).isFalse();
+
+    assertThat(cacheDirectory.list()).isEmpty();
+  }
+
+  @Test
+  public void analysis_cache_survives_rebuild_of_same_compiled_classes_but_requires_a_path() throws Exception {
+    File file = new File("src/test/files/Kanji.java");
+    SensorContextTester context = SensorContextTester.create(new File(""));
+    context.fileSystem().add(new TestInputFileBuilder("", file.getPath())
+      .initMetadata(new String(java.nio.file.Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8))
+      .setCharset(StandardCharsets.UTF_8)
+      .build());
+    context.settings().setProperty(SonarComponents.ANALYSIS_CACHE_ENABLED_KEY, "true");
+    context.settings().setProperty(SonarComponents.ANALYSIS_CACHE_PATH_KEY, temp.newFolder().getAbsolutePath());
+    File classes = temp.newFolder();
+    File classFile = new File(classes, "A.class");
+    java.nio.file.Files.write(classFile.toPath(), new byte[] {1, 2, 3});
+    JavaClasspath javaClasspath = mock(JavaClasspath.class);
+    when(javaClasspath.getElements()).thenReturn(Collections.singletonList(classes));
+
+    SonarComponents sonarComponents = classpathComponents(context, javaClasspath);
+    sonarComponents.startRecordingIssues(file);
+    sonarComponents.stopRecordingIssues(true);
+
+    // rebuilt with the same content
+    java.nio.file.Files.write(classFile.toPath(), new byte[] {1, 2, 3});
+    assertThat(classFile.setLastModified(System.currentTimeMillis() + 10_000)).isTrue();
+    assertThat(classpathComponents(context, javaClasspath).replayCachedIssues(file)).isTrue();
+
+    context.settings().removeProperty(SonarComponents.ANALYSIS_CACHE_PATH_KEY);
+    assertThat(analysisCacheComponents(context).replayCachedIssues(file)).isFalse();
+  }
+
+  @Test
+  public void analysis_cache_is_invalidated_by_modified_compiled_classes() throws Exception {
+    File file = new File("src/test/files/Kanji.java");
+    SensorContextTester context = SensorContextTester.create(new File(""));
+    context.fileSystem().add(new TestInputFileBuilder("", file.getPath())
+      .initMetadata(new String(java.nio.file.Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8))
+      .setCharset(StandardCharsets.UTF_8)
+      .build());
+    context.settings().setProperty(SonarComponents.ANALYSIS_CACHE_ENABLED_KEY, "true");
+    context.settings().setProperty(SonarComponents.ANALYSIS_CACHE_PATH_KEY, temp.newFolder().getAbsolutePath());
+    File classes = temp.newFolder();
+    File packageDirectory = new File(classes, "org/foo");
+    assertThat(packageDirectory.mkdirs()).isTrue();
+    File classFile = new File(packageDirectory, "B.class");
+    java.nio.file.Files.write(classFile.toPath(), new byte[] {1, 2, 3});
+    JavaClasspath javaClasspath = mock(JavaClasspath.class);
+    when(javaClasspath.getElements()).thenReturn(Collections.singletonList(classes));
+
+    SonarComponents sonarComponents = classpathComponents(context, javaClasspath);
+    sonarComponents.startRecordingIssues(file);
+    sonarComponents.stopRecordingIssues(true);
+    assertThat(classpathComponents(context, javaClasspath).replayCachedIssues(file)).isTrue();
+
+    // same size, other content
+    java.nio.file.Files.write(classFile.toPath(), new byte[] {1, 2, 4});
+    assertThat(classpathComponents(context, javaClasspath).replayCachedIssues(file)).isFalse();
+
+    java.nio.file.Files.write(classFile.toPath(), new byte[] {1, 2, 3});
+    assertThat(new File(classes, "C.class").createNewFile()).isTrue();
+    assertThat(classpathComponents(context, javaClasspath).replayCachedIssues(file)).isFalse();
+  }
+
+  private static SonarComponents classpathComponents(SensorContextTester context, JavaClasspath javaClasspath) {
+    SonarComponents sonarComponents = new SonarComponents(null, context.fileSystem(), javaClasspath, mock(JavaTestClasspath.class), null);
+    sonarComponents.setSensorContext(context);
+    return sonarComponents;
+  }
+
+  @Test
+  public void method_behavior_store_is_bound_to_symbolic_execution_limits_and_not_used_with_timeouts_or_shared_memory() throws Exception {
+    String signature = "java.util.Objects#foo(Ljava/lang/Object;)V";
+    SensorContextTester context = SensorContextTester.create(new File(""));
+    context.settings().setProperty(SonarComponents.BEHAVIOR_STORE_ENABLED_KEY, "true");
+    context.settings().setProperty(SonarComponents.BEHAVIOR_STORE_PATH_KEY, temp.newFolder().getAbsolutePath());
+    context.settings().setProperty(SonarComponents.SE_MAX_STEPS_KEY, "100");
+    SquidClassLoader classLoader = new SquidClassLoader(Collections.emptyList());
+
+    MethodBehaviorStore store = analysisCacheComponents(context).methodBehaviorStore(false, classLoader, Collections.emptyList());
+    MethodBehavior behavior = new MethodBehavior(signature);
+    behavior.completed();
+    store.put(behavior);
+    store.save();
+    assertThat(analysisCacheComponents(context).methodBehaviorStore(false, classLoader, Collections.emptyList()).get(signature)).isNotNull();
+
+    context.settings().setProperty(SonarComponents.SE_MAX_STEPS_KEY, "16000");
+    assertThat(analysisCacheComponents(context).methodBehaviorStore(false, classLoader, Collections.emptyList()).get(signature)).isNull();
+    context.settings().setProperty(SonarComponents.SE_MAX_STEPS_KEY, "100");
+    context.settings().setProperty(SonarComponents.SE_METHOD_MEMORY_KEY, "1000000");
+    assertThat(analysisCacheComponents(context).methodBehaviorStore(false, classLoader, Collections.emptyList()).get(signature)).isNull();
+
+    context.settings().removeProperty(SonarComponents.SE_METHOD_MEMORY_KEY);
+    context.settings().setProperty(SonarComponents.SE_FILE_MEMORY_KEY, "1000000");
+    assertThat(analysisCacheComponents(context).methodBehaviorStore(false, classLoader, Collections.emptyList())).isNull();
+    context.settings().removeProperty(SonarComponents.SE_FILE_MEMORY_KEY);
+    context.settings().setProperty(SonarComponents.SE_ANALYSIS_MEMORY_KEY, "1000000");
+    assertThat(analysisCacheComponents(context).methodBehaviorStore(false, classLoader, Collections.emptyList())).isNull();
+    context.settings().removeProperty(SonarComponents.SE_ANALYSIS_MEMORY_KEY);
+
+    context.settings().setProperty(SonarComponents.SE_METHOD_TIMEOUT_KEY, "1000");
+    assertThat(analysisCacheComponents(context).methodBehaviorStore(false, classLoader, Collections.emptyList())).isNull();
+    classLoader.close();
+  }
+
+  @Test
+  public void invalid_persistent_collections_implementation_falls_back_to_avl_tree() {
+    SensorContextTester context = SensorContextTester.create(new File(""));
+    context.settings().setProperty(SonarComponents.SE_COLLECTIONS_KEY, "red-black-tree");
+    SonarComponents sonarComponents = new SonarComponents(null, context.fileSystem(), null, mock(JavaTestClasspath.class), null);
+    sonarComponents.setSensorContext(context);
+
+    assertThat(sonarComponents.symbolicExecutionOptions().collections()).isEqualTo(PCollections.Implementation.AVL_TREE);
+    assertThat(logTester.logs(LoggerLevel.WARN)).containsExactly("Invalid value 'red-black-tree' of sonar.java.se.collections, AVL_TREE is used instead");
+  }
+
+  @Test
+  public void persistent_collections_implementation_is_selected_per_analysis() {
+    SensorContextTester context = SensorContextTester.create(new File(""));
+    context.settings().setProperty(SonarComponents.SE_COLLECTIONS_KEY, "hamt");
+    assertThat(analysisCacheComponents(context).symbolicExecutionOptions().collections()).isEqualTo(PCollections.Implementation.HAMT);
+    context.settings().removeProperty(SonarComponents.SE_COLLECTIONS_KEY);
+    assertThat(analysisCacheComponents(context).symbolicExecutionOptions().collections()).isEqualTo(PCollections.Implementation.AVL_TREE);
+  }
+
+  @Test
+  public void invalid_worklist_strategy_falls_back_to_depth_first() {
+    SensorContextTester context = SensorContextTester.create(new File(""));
+    context.settings().setProperty(SonarComponents.SE_WORKLIST_STRATEGY_KEY, "depth-first");
+    SonarComponents sonarComponents = new SonarComponents(null, context.fileSystem(), null, mock(JavaTestClasspath.class), null);
+    sonarComponents.setSensorContext(context);
+
+    assertThat(sonarComponents.symbolicExecutionOptions().workListStrategy()).isEqualTo(WorkList.Strategy.DEPTH_FIRST);
+    assertThat(logTester.logs(LoggerLevel.WARN)).containsExactly("Invalid value 'depth-first' of sonar.java.se.worklistStrategy, DEPTH_FIRST is used instead");
+
+    context.settings().setProperty(SonarComponents.SE_WORKLIST_STRATEGY_KEY, " breadth_first ");
+    sonarComponents = new SonarComponents(null, context.fileSystem(), null, mock(JavaTestClasspath.class), null);
+    sonarComponents.setSensorContext(context);
+    assertThat(sonarComponents.symbolicExecutionOptions().workListStrategy()).isEqualTo(WorkList.Strategy.BREADTH_FIRST);
+  }
+
+  private static SonarComponents analysisCacheComponents(SensorContextTester context) {
+    SonarComponents sonarComponents = new SonarComponents(null, context.fileSystem(), null, mock(JavaTestClasspath.class), null);
+    sonarComponents.setSensorContext(context);
+    return sonarComponents;
+  }
+
   @Test
   public void io_error_when_reading_file_should_fail_analysis() {
     SensorContextTester context = SensorContextTester.create(new File(""));
@@ -0,0 +1,60 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SourceSnapshotTest {
+
+  @Test
+  public void lines_are_split_as_by_the_parser() {
+    assertThat(new SourceSnapshot("").lines()).isEmpty();
+    assertThat(new SourceSnapshot("a").lines()).containsExactly("a");
+    assertThat(new SourceSnapshot("a\n").lines()).containsExactly("a");
+    assertThat(new SourceSnapshot("a\r\nb\rc\nd").lines()).containsExactly("a", "b", "c", "d");
+    assertThat(new SourceSnapshot("\n\r\n\r").lines()).containsExactly("", "", "");
+    assertThat(new SourceSnapshot("a\n\nb\r\n").lines()).containsExactly("a", "", "b");
+    assertThat(new SourceSnapshot("a b").lines()).containsExactly("a b");
+  }
+
+  @Test
+  public void line_offsets() {
+    SourceSnapshot source = new SourceSnapshot("class A {\r\n  int i;\n}");
+    assertThat(source.lineCount()).isEqualTo(3);
+    assertThat(source.lineOffset(1)).isEqualTo(0);
+    assertThat(source.lineOffset(2)).isEqualTo(11);
+    assertThat(source.lineOffset(3)).isEqualTo(20);
+    assertThat(source.content().substring(source.lineOffset(2))).startsWith("  int i;");
+  }
+
+  @Test
+  public void line_texts_are_created_once() {
+    SourceSnapshot source = new SourceSnapshot("a\nb");
+    assertThat(source.lines().get(1)).isSameAs(source.lines().get(1));
+    assertThat(source.lines()).isSameAs(source.lines());
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void lines_are_unmodifiable() {
+    new SourceSnapshot("a\nb").lines().add("c");
+  }
+}
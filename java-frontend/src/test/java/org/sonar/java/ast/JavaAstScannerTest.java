@@ -30,6 +30,7 @@ import java.io.InterruptedIOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import org.hamcrest.BaseMatcher;
 import org.hamcrest.Description;
 import org.junit.Before;
@@ -47,6 +48,7 @@ import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
 import org.sonar.java.AnalysisError;
 import org.sonar.java.AnalysisException;
+import org.sonar.java.EndOfAnalysisCheck;
 import org.sonar.java.ExceptionHandler;
 import org.sonar.java.Measurer;
 import org.sonar.java.SonarComponents;
@@ -69,6 +71,7 @@ import org.sonar.sslr.grammar.LexerlessGrammarBuilder;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
@@ -148,6 +151,59 @@ public class JavaAstScannerTest {
     verifyZeroInteractions(visitor);
   }
 
+  @Test
+  public void should_scan_files_in_parallel_and_visit_them_in_order() {
+    VisitedFilesCollector visitor = new VisitedFilesCollector();
+    SonarComponents sonarComponents = mock(SonarComponents.class);
+    when(sonarComponents.analysisThreads()).thenReturn(4);
+    when(sonarComponents.fileContent(any(File.class))).thenReturn("");
+    when(sonarComponents.isSonarLintContext()).thenReturn(true);
+    JavaAstScanner scanner = new JavaAstScanner(JavaParser.createParser(), sonarComponents);
+    scanner.setVisitorBridge(new VisitorsBridge(Lists.newArrayList(visitor), Lists.newArrayList(), sonarComponents));
+    List<File> files = ImmutableList.of(
+      new File("src/test/files/metrics/Classes.java"),
+      new File("src/test/files/metrics/Comments.java"),
+      new File("src/test/files/metrics/Complexity.java"),
+      new File("src/test/files/metrics/Lines.java"),
+      new File("src/test/files/metrics/NoSonar.java"));
+
+    scanner.scan(files);
+
+    assertThat(visitor.visitedFiles).containsExactlyElementsOf(files);
+    assertThat(visitor.filesWithSemantic).isEqualTo(files.size());
+    assertThat(visitor.endOfAnalysisCalls).isEqualTo(1);
+  }
+
+  @Test
+  public void should_release_sources_once_workers_are_terminated() {
+    VisitedFilesCollector visitor = new VisitedFilesCollector();
+    SonarComponents sonarComponents = mock(SonarComponents.class);
+    when(sonarComponents.analysisThreads()).thenReturn(2);
+    when(sonarComponents.fileContent(any(File.class))).thenReturn("");
+    when(sonarComponents.isSonarLintContext()).thenReturn(true);
+    when(sonarComponents.analysisCancelled()).thenReturn(false, true);
+    List<Boolean> workersRunningOnRelease = new ArrayList<>();
+    doAnswer(invocation -> workersRunningOnRelease.add(workersRunning())).when(sonarComponents).releaseSources();
+    JavaAstScanner scanner = new JavaAstScanner(JavaParser.createParser(), sonarComponents);
+    scanner.setVisitorBridge(new VisitorsBridge(Lists.newArrayList(visitor), Lists.newArrayList(), sonarComponents));
+    List<File> files = ImmutableList.of(
+      new File("src/test/files/metrics/Classes.java"),
+      new File("src/test/files/metrics/Comments.java"),
+      new File("src/test/files/metrics/Complexity.java"),
+      new File("src/test/files/metrics/Lines.java"),
+      new File("src/test/files/metrics/NoSonar.java"));
+
+    scanner.scan(files);
+
+    assertThat(visitor.visitedFiles).hasSize(1);
+    assertThat(workersRunningOnRelease).containsExactly(false);
+    assertThat(visitor.endOfAnalysisCalls).isEqualTo(1);
+  }
+
+  private static boolean workersRunning() {
+    return Thread.getAllStackTraces().keySet().stream().anyMatch(thread -> "sonar-java-analysis-worker".equals(thread.getName()) && thread.isAlive());
+  }
+
   @Test
   public void should_interrupt_analysis_when_InterruptedException_is_thrown() {
     File file = new File("src/test/files/metrics/NoSonar.java");
@@ -234,6 +290,25 @@ public class JavaAstScannerTest {
     return new JavaAstScanner(new ActionParser<>(StandardCharsets.UTF_8, FakeLexer.builder(), FakeGrammar.class, new FakeTreeFactory(), new JavaNodeBuilder(), FakeLexer.ROOT), null);
   }
 
+  private static class VisitedFilesCollector implements JavaFileScanner, EndOfAnalysisCheck {
+    private final List<File> visitedFiles = new ArrayList<>();
+    private int filesWithSemantic = 0;
+    private int endOfAnalysisCalls = 0;
+
+    @Override
+    public void scanFile(JavaFileScannerContext context) {
+      visitedFiles.add(context.getFile());
+      if (context.getSemanticModel() != null) {
+        filesWithSemantic++;
+      }
+    }
+
+    @Override
+    public void endOfAnalysis() {
+      endOfAnalysisCalls++;
+    }
+  }
+
   private static class CheckThrowingSOError implements JavaFileScanner {
 
     @Override
@@ -0,0 +1,47 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.ast.parser;
+
+import com.sonar.sslr.api.GenericTokenType;
+import com.sonar.sslr.api.typed.Input;
+import java.util.Collections;
+import org.junit.Test;
+import org.sonar.java.model.InternalSyntaxToken;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JavaNodeBuilderTest {
+
+  @Test
+  public void token_texts_are_released_at_the_end_of_the_parse() {
+    JavaNodeBuilder builder = new JavaNodeBuilder();
+    Input input = new Input("foo foo".toCharArray());
+    String first = terminal(builder, input, 0, 3).text();
+    assertThat(terminal(builder, input, 4, 7).text()).isSameAs(first);
+
+    builder.endOfParse();
+    assertThat(terminal(builder, input, 4, 7).text()).isEqualTo("foo").isNotSameAs(first);
+  }
+
+  private static InternalSyntaxToken terminal(JavaNodeBuilder builder, Input input, int startIndex, int endIndex) {
+    return (InternalSyntaxToken) builder.createTerminal(input, startIndex, endIndex, Collections.emptyList(), GenericTokenType.IDENTIFIER);
+  }
+
+}
@@ -0,0 +1,63 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.ast.parser;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TokenValuesTest {
+
+  @Test
+  public void equal_texts_share_the_same_string() {
+    char[] source = "int a = a + b; int b;".toCharArray();
+    TokenValues tokenValues = new TokenValues(source);
+
+    String firstInt = tokenValues.value(0, 3);
+    assertThat(firstInt).isEqualTo("int");
+    assertThat(tokenValues.value(15, 18)).isSameAs(firstInt);
+    assertThat(tokenValues.value(4, 5)).isEqualTo("a").isSameAs(tokenValues.value(8, 9));
+    assertThat(tokenValues.value(12, 13)).isEqualTo("b");
+    assertThat(tokenValues.value(13, 13)).isEmpty();
+    assertThat(tokenValues.size()).isEqualTo(4);
+    assertThat(tokenValues.isFor(source)).isTrue();
+    assertThat(tokenValues.isFor("int a".toCharArray())).isFalse();
+  }
+
+  @Test
+  public void texts_are_kept_when_table_grows() {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 5_000; i++) {
+      sb.append("v").append(i).append(' ');
+    }
+    char[] source = sb.toString().toCharArray();
+    TokenValues tokenValues = new TokenValues(source);
+    String first = tokenValues.value(0, 2);
+    int start = 0;
+    for (int i = 0; i < 5_000; i++) {
+      int end = start + 1 + Integer.toString(i).length();
+      assertThat(tokenValues.value(start, end)).isEqualTo("v" + i);
+      start = end + 1;
+    }
+    assertThat(tokenValues.size()).isEqualTo(5_000);
+    assertThat(tokenValues.value(0, 2)).isSameAs(first);
+  }
+
+}
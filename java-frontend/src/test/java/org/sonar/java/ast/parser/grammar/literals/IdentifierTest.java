@@ -39,4 +39,21 @@ public class IdentifierTest {
       .notMatches("assert");
   }
 
+  @Test
+  public void keywords_as_prefix() {
+    assertThat(JavaTokenType.IDENTIFIER)
+      .matches("doubleValue")
+      .matches("do_")
+      .matches("enumeration")
+      .matches("finalize")
+      .matches("null$")
+      .matches("int1")
+
+      .notMatches("double")
+      .notMatches("do")
+      .notMatches("null")
+      .notMatches("enumeration.")
+      .notMatches("1int");
+  }
+
 }
@@ -0,0 +1,164 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.ast.visitors;
+
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import org.sonar.java.ast.parser.JavaParser;
+import org.sonar.plugins.java.api.JavaFileScanner;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+import org.sonar.plugins.java.api.tree.SyntaxToken;
+import org.sonar.plugins.java.api.tree.SyntaxTrivia;
+import org.sonar.plugins.java.api.tree.Tree;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SubscriptionVisitorsDispatcherTest {
+
+  private static final String SOURCE = "class A {\n" +
+    "  // comment\n" +
+    "  void foo(int a) { if (a > 0) { bar(a); } }\n" +
+    "  int bar(int b) { return b; }\n" +
+    "}";
+
+  @Test
+  public void dispatched_visitors_receive_the_same_calls_as_with_their_own_walk() {
+    JavaFileScannerContext context = context(SOURCE);
+    List<RecordingVisitor> alone = Arrays.asList(
+      new RecordingVisitor(Tree.Kind.METHOD, Tree.Kind.IDENTIFIER),
+      new RecordingVisitor(Tree.Kind.TOKEN),
+      new RecordingVisitor(Tree.Kind.TRIVIA, Tree.Kind.IF_STATEMENT),
+      new RecordingVisitor());
+    alone.forEach(visitor -> visitor.scanFile(context));
+
+    List<RecordingVisitor> dispatched = Arrays.asList(
+      new RecordingVisitor(Tree.Kind.METHOD, Tree.Kind.IDENTIFIER),
+      new RecordingVisitor(Tree.Kind.TOKEN),
+      new RecordingVisitor(Tree.Kind.TRIVIA, Tree.Kind.IF_STATEMENT),
+      new RecordingVisitor());
+    new SubscriptionVisitorsDispatcher(new ArrayList<>(dispatched), (scanner, e) -> {
+      throw e;
+    }).scanFile(context);
+
+    for (int i = 0; i < alone.size(); i++) {
+      assertThat(dispatched.get(i).events).isEqualTo(alone.get(i).events);
+      assertThat(dispatched.get(i).context).isSameAs(context);
+    }
+    assertThat(dispatched.get(0).events).contains("visit METHOD", "leave METHOD", "visit IDENTIFIER");
+    assertThat(dispatched.get(1).events).contains("token class", "token }");
+    assertThat(dispatched.get(2).events).contains("trivia // comment", "visit IF_STATEMENT");
+    assertThat(dispatched.get(3).events).isEmpty();
+  }
+
+  @Test
+  public void failing_visitor_is_not_called_anymore_on_the_file() {
+    RecordingVisitor failing = new RecordingVisitor(Tree.Kind.METHOD) {
+      @Override
+      public void visitNode(Tree tree) {
+        super.visitNode(tree);
+        throw new IllegalStateException("boom");
+      }
+    };
+    RecordingVisitor other = new RecordingVisitor(Tree.Kind.METHOD);
+    Map<JavaFileScanner, RuntimeException> failures = new HashMap<>();
+    SubscriptionVisitorsDispatcher dispatcher = new SubscriptionVisitorsDispatcher(ImmutableList.<SubscriptionVisitor>of(failing, other), failures::put);
+
+    dispatcher.scanFile(context(SOURCE));
+
+    assertThat(failing.events).containsExactly("visit METHOD");
+    assertThat(other.events).containsExactly("visit METHOD", "leave METHOD", "visit METHOD", "leave METHOD");
+    assertThat(failures).containsOnlyKeys(failing);
+    assertThat(failures.get(failing)).hasMessage("boom");
+
+    failing.events.clear();
+    dispatcher.scanFile(context(SOURCE));
+    assertThat(failing.events).containsExactly("visit METHOD");
+  }
+
+  @Test
+  public void visitors_redefining_the_scan_of_files_are_not_dispatched() {
+    assertThat(SubscriptionVisitorsDispatcher.canBeDispatched(new RecordingVisitor())).isTrue();
+    assertThat(SubscriptionVisitorsDispatcher.canBeDispatched(mock(JavaFileScanner.class))).isFalse();
+    assertThat(SubscriptionVisitorsDispatcher.canBeDispatched(new RecordingVisitor() {
+      @Override
+      public void scanFile(JavaFileScannerContext context) {
+        super.scanFile(context);
+      }
+    })).isFalse();
+    assertThat(SubscriptionVisitorsDispatcher.canBeDispatched(new SubRecordingVisitor())).isFalse();
+  }
+
+  private static JavaFileScannerContext context(String source) {
+    CompilationUnitTree tree = (CompilationUnitTree) JavaParser.createParser().parse(source);
+    JavaFileScannerContext context = mock(JavaFileScannerContext.class);
+    when(context.getTree()).thenReturn(tree);
+    return context;
+  }
+
+  private static class RecordingVisitor extends SubscriptionVisitor {
+    private final List<Tree.Kind> kinds;
+    private final List<String> events = new ArrayList<>();
+
+    RecordingVisitor(Tree.Kind... kinds) {
+      this.kinds = Arrays.asList(kinds);
+    }
+
+    @Override
+    public List<Tree.Kind> nodesToVisit() {
+      return kinds;
+    }
+
+    @Override
+    public void visitNode(Tree tree) {
+      events.add("visit " + tree.kind());
+    }
+
+    @Override
+    public void leaveNode(Tree tree) {
+      events.add("leave " + tree.kind());
+    }
+
+    @Override
+    public void visitToken(SyntaxToken syntaxToken) {
+      events.add("token " + syntaxToken.text());
+    }
+
+    @Override
+    public void visitTrivia(SyntaxTrivia syntaxTrivia) {
+      events.add("trivia " + syntaxTrivia.comment());
+    }
+  }
+
+  private static class SubRecordingVisitor extends RecordingVisitor {
+    @Override
+    protected void scanTree(Tree tree) {
+      super.scanTree(tree);
+    }
+  }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.bytecode.loader;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BytecodeCacheTest {
+
+  private static final File JAR = new File("src/test/files/bytecode/lib/hello.jar");
+
+  @Test
+  public void entries_are_shared_between_users_of_the_same_jar() throws Exception {
+    BytecodeCache cache = new BytecodeCache(BytecodeCache.MAX_RETAINED_BYTES);
+    AtomicInteger reads = new AtomicInteger();
+    BytecodeCache.BytesReader reader = () -> {
+      reads.incrementAndGet();
+      return new byte[] {42};
+    };
+
+    BytecodeCache.CachedJar first = cache.jar(JAR);
+    BytecodeCache.CachedJar second = cache.jar(JAR);
+    byte[] bytes = first.bytes("A.class", reader);
+    assertThat(second.bytes("A.class", reader)).isSameAs(bytes);
+    assertThat(reads.get()).isEqualTo(1);
+    assertThat(cache.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void least_recently_used_entries_are_evicted_beyond_retained_bytes() throws Exception {
+    BytecodeCache cache = new BytecodeCache(4);
+    AtomicInteger reads = new AtomicInteger();
+    BytecodeCache.BytesReader reader = () -> {
+      reads.incrementAndGet();
+      return new byte[] {1, 2};
+    };
+    BytecodeCache.CachedJar jar = cache.jar(JAR);
+    jar.bytes("A.class", reader);
+    jar.bytes("B.class", reader);
+    jar.bytes("A.class", reader);
+    jar.bytes("C.class", reader);
+    assertThat(reads.get()).isEqualTo(3);
+    assertThat(cache.size()).isEqualTo(2);
+    assertThat(cache.retainedBytes()).isEqualTo(4);
+
+    jar.bytes("A.class", reader);
+    assertThat(reads.get()).isEqualTo(3);
+    jar.bytes("B.class", reader);
+    assertThat(reads.get()).isEqualTo(4);
+
+    // entries larger than the cache are not retained
+    jar.bytes("D.class", () -> new byte[5]);
+    assertThat(cache.size()).isEqualTo(2);
+    assertThat(cache.retainedBytes()).isEqualTo(4);
+  }
+
+  @Test
+  public void loaders_of_the_same_jar_share_bytes() throws Exception {
+    JarLoader first = new JarLoader(JAR);
+    JarLoader second = new JarLoader(JAR);
+    byte[] bytes = first.loadBytes("org/sonar/tests/Hello.class");
+    assertThat(bytes).isNotEmpty();
+    assertThat(second.loadBytes("org/sonar/tests/Hello.class")).isSameAs(bytes);
+    first.close();
+    second.close();
+  }
+
+}
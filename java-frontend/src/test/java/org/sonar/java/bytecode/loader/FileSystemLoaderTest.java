@@ -19,12 +19,17 @@
  */
 package org.sonar.java.bytecode.loader;
 
+import org.junit.Assume;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -33,6 +38,9 @@ public class FileSystemLoaderTest {
   @Rule
   public ExpectedException thrown = ExpectedException.none();
 
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
   @Test
   public void shouldThrowIllegalArgumentException() throws Exception {
     thrown.expect(IllegalArgumentException.class);
@@ -77,6 +85,48 @@ public class FileSystemLoaderTest {
     loader.loadBytes("tags/TagName.class");
   }
 
+  @Test
+  public void testPackages() throws Exception {
+    File dir = new File("src/test/files/bytecode/bin/");
+    FileSystemLoader loader = new FileSystemLoader(dir);
+    assertThat(loader.packages()).contains("", "tags", "properties");
+    loader.close();
+
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("Loader closed");
+    loader.packages();
+  }
+
+  @Test
+  public void packages_of_symbolic_links_are_listed() throws Exception {
+    File dir = temp.newFolder();
+    Path link = dir.toPath().resolve("linked");
+    try {
+      Files.createSymbolicLink(link, new File("src/test/files/bytecode/bin/tags").getAbsoluteFile().toPath());
+    } catch (UnsupportedOperationException | IOException e) {
+      Assume.assumeNoException(e);
+    }
+    FileSystemLoader loader = new FileSystemLoader(dir);
+    assertThat(loader.packages()).contains("linked");
+    assertThat(loader.loadBytes("linked/TagName.class")).isNotEmpty();
+    loader.close();
+  }
+
+  @Test
+  public void all_packages_are_looked_up_when_they_can_not_be_listed() throws Exception {
+    File dir = temp.newFolder();
+    File unreadable = new File(dir, "unreadable");
+    assertThat(new File(unreadable, "sub").mkdirs()).isTrue();
+    Assume.assumeTrue(unreadable.setReadable(false) && !unreadable.canRead());
+    try {
+      FileSystemLoader loader = new FileSystemLoader(dir);
+      assertThat(loader.packages()).isNull();
+      loader.close();
+    } finally {
+      unreadable.setReadable(true);
+    }
+  }
+
   @Test
   public void closeCanBeCalledMultipleTimes() throws Exception {
     File dir = new File("src/test/files/bytecode/bin/");
@@ -23,11 +23,18 @@ import org.apache.commons.io.IOUtils;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -35,6 +42,8 @@ public class JarLoaderTest {
 
   @Rule
   public ExpectedException thrown = ExpectedException.none();
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
 
   @Test
   public void shouldThrowIllegalArgumentException() throws Exception {
@@ -88,6 +97,45 @@ public class JarLoaderTest {
     loader.loadBytes("META-INF/MANIFEST.MF");
   }
 
+  @Test
+  public void load_bytes_of_entries_whose_declared_size_is_wrong() throws Exception {
+    byte[] content = "0123456789".getBytes(StandardCharsets.UTF_8);
+    for (int declaredSize : new int[] {5, 20}) {
+      JarLoader loader = new JarLoader(jarWithDeclaredSize(content, declaredSize));
+      assertThat(loader.loadBytes("A.class")).isEqualTo(content);
+      loader.close();
+    }
+  }
+
+  /**
+   * @return jar with a single deflated entry whose uncompressed size in the central directory is the given one
+   */
+  private File jarWithDeclaredSize(byte[] content, int declaredSize) throws IOException {
+    File jar = temp.newFile();
+    try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar))) {
+      out.putNextEntry(new ZipEntry("A.class"));
+      out.write(content);
+      out.closeEntry();
+    }
+    byte[] bytes = Files.readAllBytes(jar.toPath());
+    for (int i = 0; i < bytes.length - 4; i++) {
+      if (bytes[i] == 'P' && bytes[i + 1] == 'K' && bytes[i + 2] == 1 && bytes[i + 3] == 2) {
+        // uncompressed size of the central directory header, in little endian
+        bytes[i + 24] = (byte) declaredSize;
+      }
+    }
+    Files.write(jar.toPath(), bytes);
+    return jar;
+  }
+
+  @Test
+  public void testPackages() throws Exception {
+    File jar = new File("src/test/files/bytecode/lib/hello.jar");
+    JarLoader loader = new JarLoader(jar);
+    assertThat(loader.packages()).containsOnly("META-INF", "org/sonar/tests", "META-INF/maven/org.sonar.tests/no-tests");
+    loader.close();
+  }
+
   @Test
   public void closeCanBeCalledMultipleTimes() throws Exception {
     File jar = new File("src/test/files/bytecode/lib/hello.jar");
@@ -21,13 +21,17 @@ package org.sonar.java.bytecode.loader;
 
 import com.google.common.collect.Iterators;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.util.Arrays;
 import java.util.Collections;
 import org.apache.commons.io.IOUtils;
 import org.junit.After;
+import org.junit.Assume;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.tree.ClassNode;
@@ -39,6 +43,9 @@ public class SquidClassLoaderTest {
   @Rule
   public ExpectedException thrown = ExpectedException.none();
 
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
   private SquidClassLoader classLoader;
 
   @After
@@ -72,6 +79,35 @@ public class SquidClassLoaderTest {
     classLoader.loadClass("foo.Unknown");
   }
   
+  @Test
+  public void resources_are_found_in_loaders_owning_their_package() throws Exception {
+    File jar = new File("src/test/files/bytecode/lib/hello.jar");
+    File dir = new File("src/test/files/bytecode/bin/");
+    classLoader = new SquidClassLoader(Arrays.asList(jar, dir));
+
+    assertThat(classLoader.loadClass("org.sonar.tests.Hello")).isNotNull();
+    assertThat(classLoader.loadClass("tags.TagName")).isNotNull();
+    assertThat(classLoader.getResource("LambdaExpressions.class")).isNotNull();
+    assertThat(Iterators.forEnumeration(classLoader.findResources("META-INF/MANIFEST.MF"))).hasSize(1);
+    assertThat(classLoader.getBytesForClass("org.sonar.tests.Hello")).isNotEmpty();
+    assertThat(classLoader.getBytesForClass("org.sonar.tests.Unknown")).isNull();
+    thrown.expect(ClassNotFoundException.class);
+    classLoader.loadClass("tags.Unknown");
+  }
+
+  @Test
+  public void bytes_of_classes_from_jars_are_not_copied() throws Exception {
+    File jar = new File("src/test/files/bytecode/lib/hello.jar");
+    classLoader = new SquidClassLoader(Collections.singletonList(jar));
+
+    byte[] bytes = classLoader.getBytesForClass("org.sonar.tests.Hello");
+    assertThat(classLoader.getBytesForClass("org.sonar.tests.Hello")).isSameAs(bytes);
+    assertThat(IOUtils.toByteArray(classLoader.getResourceAsStream("org/sonar/tests/Hello.class"))).isEqualTo(bytes);
+    ClassNode classNode = new ClassNode();
+    new ClassReader(bytes).accept(classNode, 0);
+    assertThat(classNode.name).isEqualTo("org/sonar/tests/Hello");
+  }
+
   @Test
   public void createFromAar() throws Exception {
     File jar = new File("src/test/files/classpath/lib/oklog-1.0.1.aar");
@@ -115,6 +151,37 @@ public class SquidClassLoaderTest {
     classLoader.loadClass("tags.Unknown");
   }
 
+  @Test
+  public void classes_of_symbolically_linked_packages_are_found() throws Exception {
+    File dir = temp.newFolder();
+    try {
+      Files.createSymbolicLink(dir.toPath().resolve("tags"), new File("src/test/files/bytecode/bin/tags").getAbsoluteFile().toPath());
+    } catch (UnsupportedOperationException | IOException e) {
+      Assume.assumeNoException(e);
+    }
+    classLoader = new SquidClassLoader(Collections.singletonList(dir));
+    assertThat(classLoader.getResource("tags/TagName.class")).isNotNull();
+    assertThat(classLoader.getBytesForClass("tags.TagName")).isNotEmpty();
+  }
+
+  @Test
+  public void directories_whose_packages_can_not_be_listed_are_queried_for_all_packages() throws Exception {
+    File dir = temp.newFolder();
+    File tags = new File(dir, "tags");
+    assertThat(tags.mkdir()).isTrue();
+    Files.copy(new File("src/test/files/bytecode/bin/tags/TagName.class").toPath(), new File(tags, "TagName.class").toPath());
+    File unreadable = new File(dir, "unreadable");
+    assertThat(new File(unreadable, "sub").mkdirs()).isTrue();
+    Assume.assumeTrue(unreadable.setReadable(false) && !unreadable.canRead());
+    try {
+      classLoader = new SquidClassLoader(Arrays.asList(new File("src/test/files/bytecode/lib/hello.jar"), dir));
+      assertThat(classLoader.getResource("tags/TagName.class")).isNotNull();
+      assertThat(classLoader.getResource("org/sonar/tests/Hello.class")).isNotNull();
+    } finally {
+      unreadable.setReadable(true);
+    }
+  }
+
   @Test
   public void testFindResource() throws Exception {
     File dir = new File("src/test/files/bytecode/bin/");
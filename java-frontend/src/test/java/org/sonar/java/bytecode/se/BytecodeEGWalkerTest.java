@@ -40,6 +40,7 @@ import org.sonar.java.bytecode.se.testdata.FinalBytecodeTestClass;
 import org.sonar.java.bytecode.se.testdata.MaxRelationBytecode;
 import org.sonar.java.resolve.SemanticModel;
 import org.sonar.java.se.ProgramState;
+import org.sonar.java.se.SymbolicExecutionBudget;
 import org.sonar.java.se.checks.DivisionByZeroCheck;
 import org.sonar.java.se.constraint.BooleanConstraint;
 import org.sonar.java.se.constraint.Constraint;
@@ -228,6 +229,28 @@ public class BytecodeEGWalkerTest {
     assertThat(methodBehavior.isVisited()).isTrue();
   }
 
+  @Test
+  public void memory_budget_should_interrupt_exploration_and_be_consumed() {
+    BehaviorCache behaviorCache = new BehaviorCache(squidClassLoader);
+    SymbolicExecutionBudget budget = new SymbolicExecutionBudget(SymbolicExecutionBudget.DEFAULT_MAX_STEPS, 0, 0, 0, 1);
+    behaviorCache.setBudget(budget);
+    MethodBehavior methodBehavior = getMethodBehavior(BytecodeTestClass.class, "fun(ZLjava/lang/Object;)Ljava/lang/Object;",
+      new BytecodeEGWalker(behaviorCache, semanticModel));
+    assertThat(logTester.logs(LoggerLevel.DEBUG))
+      .contains("Dataflow analysis is incomplete for method org.sonar.java.bytecode.se.testdata.BytecodeTestClass#fun(ZLjava/lang/Object;)Ljava/lang/Object;" +
+        " : Exhausted METHOD_MEMORY budget resolving org.sonar.java.bytecode.se.testdata.BytecodeTestClass#fun(ZLjava/lang/Object;)Ljava/lang/Object;");
+    assertThat(methodBehavior.isComplete()).isFalse();
+    assertThat(methodBehavior.isVisited()).isTrue();
+
+    SymbolicExecutionBudget analysisBudget = new SymbolicExecutionBudget(SymbolicExecutionBudget.DEFAULT_MAX_STEPS, 0, 0, 0, 0, 0, 1);
+    analysisBudget.startFile();
+    BehaviorCache analysisBehaviorCache = new BehaviorCache(squidClassLoader);
+    analysisBehaviorCache.setBudget(analysisBudget);
+    assertThat(analysisBudget.exhausted()).isNull();
+    getMethodBehavior(BytecodeTestClass.class, "fun(ZLjava/lang/Object;)Ljava/lang/Object;", new BytecodeEGWalker(analysisBehaviorCache, semanticModel));
+    assertThat(analysisBudget.exhausted()).isEqualTo(SymbolicExecutionBudget.Reason.ANALYSIS_MEMORY);
+  }
+
   @Test
   public void unchecked_exceptions_should_be_enqueued() {
     MethodBehavior mb = getMethodBehavior(ExceptionEnqueue.class, "test(Lorg/sonar/java/bytecode/se/testdata/ExceptionEnqueue;)Ljava/lang/Object;");
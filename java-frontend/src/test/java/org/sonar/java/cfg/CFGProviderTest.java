@@ -0,0 +1,73 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.cfg;
+
+import java.io.File;
+import java.util.Collections;
+import org.junit.Test;
+import org.sonar.java.ast.parser.JavaParser;
+import org.sonar.java.bytecode.loader.SquidClassLoader;
+import org.sonar.java.model.DefaultJavaFileScannerContext;
+import org.sonar.java.model.JavaVersionImpl;
+import org.sonar.java.resolve.SemanticModel;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+import org.sonar.plugins.java.api.tree.ClassTree;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+import org.sonar.plugins.java.api.tree.MethodTree;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class CFGProviderTest {
+
+  @Test
+  public void cfg_and_live_variables_are_computed_once_per_method() {
+    CompilationUnitTree cut = (CompilationUnitTree) JavaParser.createParser().parse("class A { int field; void foo(int a) { field = a; } void bar(int b) { foo(b); } }");
+    SemanticModel.createFor(cut, new SquidClassLoader(Collections.emptyList()));
+    MethodTree foo = (MethodTree) ((ClassTree) cut.types().get(0)).members().get(1);
+    MethodTree bar = (MethodTree) ((ClassTree) cut.types().get(0)).members().get(2);
+
+    CFGProvider cfgProvider = new CFGProvider();
+    CFG cfg = cfgProvider.cfg(foo);
+    assertThat(cfgProvider.cfg(foo)).isSameAs(cfg);
+    assertThat(cfgProvider.cfg(bar)).isNotSameAs(cfg);
+
+    LiveVariables liveVariables = cfgProvider.liveVariables(foo);
+    assertThat(cfgProvider.liveVariables(foo)).isSameAs(liveVariables);
+    assertThat(liveVariables.getIn(cfg.entry())).extracting("name").containsOnly("a");
+
+    LiveVariables liveVariablesWithFields = cfgProvider.liveVariablesWithFields(foo);
+    assertThat(liveVariablesWithFields).isNotSameAs(liveVariables);
+    assertThat(cfgProvider.liveVariablesWithFields(foo)).isSameAs(liveVariablesWithFields);
+    assertThat(cfgProvider.cfg(foo)).isSameAs(cfg);
+  }
+
+  @Test
+  public void provider_is_shared_by_visitors_of_a_file() {
+    CompilationUnitTree cut = (CompilationUnitTree) JavaParser.createParser().parse("class A { }");
+    SemanticModel semanticModel = SemanticModel.createFor(cut, new SquidClassLoader(Collections.emptyList()));
+    DefaultJavaFileScannerContext context = new DefaultJavaFileScannerContext(cut, new File("A.java"), semanticModel, null, new JavaVersionImpl(), true);
+
+    assertThat(CFGProvider.of(context)).isSameAs(context.cfgProvider()).isSameAs(CFGProvider.of(context));
+    JavaFileScannerContext otherContext = mock(JavaFileScannerContext.class);
+    assertThat(CFGProvider.of(otherContext)).isNotSameAs(CFGProvider.of(otherContext));
+  }
+
+}
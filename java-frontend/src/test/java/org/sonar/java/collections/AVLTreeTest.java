@@ -241,6 +241,27 @@ public class AVLTreeTest {
     assertThat(t2.get("1")).isEqualTo("b");
   }
 
+  @Test
+  public void put_instance_replaces_equal_values() {
+    String v1 = new String("v");
+    String v2 = new String("v");
+    AVLTree<Object, String> t = AVLTree.<Object, String>create().put("k", v1);
+    assertThat(t.put("k", v2)).isSameAs(t);
+    assertThat(t.putInstance("k", v1)).isSameAs(t);
+    AVLTree<Object, String> replaced = t.putInstance("k", v2);
+    assertThat(replaced).isNotSameAs(t).isEqualTo(t);
+    assertThat(replaced.get("k")).isSameAs(v2);
+    assertThat(t.putInstance("other", v2).get("other")).isSameAs(v2);
+
+    Object k1 = new Key(42, "k1");
+    Object k2 = new Key(42, "k2");
+    AVLTree<Object, String> bucket = t.put(k1, v1).put(k2, v1);
+    assertThat(bucket.putInstance(k2, v1)).isSameAs(bucket);
+    assertThat(bucket.putInstance(k2, v2).get(k2)).isSameAs(v2);
+    assertThat(bucket.putInstance(k1, v2).get(k1)).isSameAs(v2);
+    assertThat(bucket.putInstance(k1, v2).get(k2)).isSameAs(v1);
+  }
+
   @Test
   public void no_change() {
     AVLTree<String, String> t0 = AVLTree.create();
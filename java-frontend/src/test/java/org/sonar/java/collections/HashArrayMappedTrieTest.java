@@ -0,0 +1,208 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.collections;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HashArrayMappedTrieTest {
+
+  private static final class Key {
+    private final int hashCode;
+    private final String toString;
+
+    private Key(int hashCode, String toString) {
+      this.hashCode = hashCode;
+      this.toString = toString;
+    }
+
+    @Override
+    public final int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public final String toString() {
+      return toString;
+    }
+  }
+
+  @Test
+  public void collisions() {
+    Object k1 = new Key(42, "k1");
+    Object k2 = new Key(42, "k2");
+    Object k3 = new Key(42, "k3");
+    HashArrayMappedTrie<Object, Object> t = HashArrayMappedTrie.create()
+      .put(k1, "v1")
+      .put(k2, "v2");
+    HashArrayMappedTrie<Object, Object> t2 = HashArrayMappedTrie.create()
+      .put(k2, "v2")
+      .put(k1, "v1");
+
+    assertThat(t.toString()).isEqualTo(" k1->v1 k2->v2");
+    assertThat(t2.toString()).isEqualTo(" k2->v2 k1->v1");
+    assertThat(t).isEqualTo(t2);
+    assertThat(t2).isEqualTo(t);
+    assertThat(t.hashCode())
+      .isEqualTo(((31 * k1.hashCode()) ^ "v1".hashCode()) + ((31 * k2.hashCode()) ^ "v2".hashCode()))
+      .isEqualTo(t2.hashCode());
+
+    assertThat(t.get(k1)).isEqualTo("v1");
+    assertThat(t.get(k2)).isEqualTo("v2");
+    assertThat(t.get(k3)).isNull();
+    assertThat(t.get(new Key(43, "other"))).isNull();
+
+    assertThat(t.put(k2, "new v2").toString()).isEqualTo(" k1->v1 k2->new v2");
+    assertThat(t.put(k1, "v1")).isSameAs(t);
+    assertThat(t.put(k3, "v3").toString()).isEqualTo(" k1->v1 k2->v2 k3->v3");
+    assertThat(t.put(k3, "v3").remove(k1).toString()).isEqualTo(" k2->v2 k3->v3");
+    assertThat(t.put(k3, "v3")).isNotEqualTo(t.put(k3, "other"));
+
+    assertThat(t.remove(k1).toString()).isEqualTo(" k2->v2");
+    assertThat(t.remove(k1)).isEqualTo(HashArrayMappedTrie.create().put(k2, "v2"));
+    assertThat(t.remove(k1).remove(k2)).isSameAs(HashArrayMappedTrie.create());
+    assertThat(t.remove(k3)).isSameAs(t);
+    assertThat(t.remove(new Key(43, "other"))).isSameAs(t);
+
+    Object k4 = new Key(42 + (1 << 5), "k4");
+    HashArrayMappedTrie<Object, Object> t3 = t.put(k4, "v4");
+    assertThat(t3.get(k4)).isEqualTo("v4");
+    assertThat(t3.get(k1)).isEqualTo("v1");
+    assertThat(t3.remove(k4)).isEqualTo(t);
+    assertThat(t3.remove(k1).remove(k2)).isEqualTo(HashArrayMappedTrie.create().put(k4, "v4"));
+
+    Map<Object, Object> entries = new HashMap<>();
+    t.forEach((k, v) -> assertThat(entries.put(k, v)).as("unique key-value").isNull());
+    assertThat(entries).isEqualTo(ImmutableMap.of(k1, "v1", k2, "v2"));
+
+    HashSet<Object> keys = new HashSet<>();
+    t.forEach(k -> assertThat(keys.add(k)).as("unique key").isTrue());
+    assertThat(keys).containsOnly(k1, k2);
+  }
+
+  @Test
+  public void keys_sharing_hash_prefixes() {
+    Object k1 = new Key(0b00001, "k1");
+    Object k2 = new Key(0b100001, "k2");
+    Object k3 = new Key(1 << 31 | 1, "k3");
+    HashArrayMappedTrie<Object, Object> t = HashArrayMappedTrie.create().add(k1).add(k2).add(k3);
+
+    assertThat(t.contains(k1)).isTrue();
+    assertThat(t.contains(k2)).isTrue();
+    assertThat(t.contains(k3)).isTrue();
+    assertThat(t.contains(new Key(1 << 30 | 1, "k4"))).isFalse();
+    assertThat(t.toString()).isEqualTo(" k3->k3 k1->k1 k2->k2");
+    assertThat(t.remove(k2).remove(k3)).isEqualTo(HashArrayMappedTrie.create().add(k1));
+  }
+
+  @Test
+  public void test_empty() {
+    HashArrayMappedTrie<String, String> t = HashArrayMappedTrie.create();
+    assertThat(t).as("singleton").isSameAs(HashArrayMappedTrie.create());
+    assertThat(t.isEmpty()).isTrue();
+    assertThat(t.get("anything")).isNull();
+    assertThat(t.remove("anything")).isSameAs(t);
+    assertThat(t.toString()).isEqualTo("");
+    assertThat(t.hashCode()).isEqualTo(0);
+    assertThat(t.put("1", "a").isEmpty()).isFalse();
+    assertThat(t.put("1", "a").remove("1")).isSameAs(t);
+    assertThat(t).isNotEqualTo(AVLTree.create());
+  }
+
+  @Test
+  public void put_instance_replaces_equal_values() {
+    String v1 = new String("v");
+    String v2 = new String("v");
+    HashArrayMappedTrie<Object, String> t = HashArrayMappedTrie.<Object, String>create().put("k", v1);
+    assertThat(t.put("k", v2)).isSameAs(t);
+    assertThat(t.putInstance("k", v1)).isSameAs(t);
+    HashArrayMappedTrie<Object, String> replaced = t.putInstance("k", v2);
+    assertThat(replaced).isNotSameAs(t).isEqualTo(t);
+    assertThat(replaced.get("k")).isSameAs(v2);
+    assertThat(t.putInstance("other", v2).get("other")).isSameAs(v2);
+
+    Object k1 = new Key(42, "k1");
+    Object k2 = new Key(42, "k2");
+    HashArrayMappedTrie<Object, String> bucket = t.put(k1, v1).put(k2, v1);
+    assertThat(bucket.putInstance(k2, v1)).isSameAs(bucket);
+    assertThat(bucket.putInstance(k2, v2).get(k2)).isSameAs(v2);
+    assertThat(bucket.putInstance(k1, v2).get(k1)).isSameAs(v2);
+    assertThat(bucket.putInstance(k1, v2).get(k2)).isSameAs(v1);
+  }
+
+  @Test
+  public void no_change() {
+    HashArrayMappedTrie<String, String> t1 = HashArrayMappedTrie.<String, String>create().put("1", "1");
+    assertThat(t1.put("1", "1")).isSameAs(t1);
+    assertThat(t1.remove("3")).isSameAs(t1);
+    assertThat(t1.put("1", "2").get("1")).isEqualTo("2");
+  }
+
+  @Test
+  public void shape_does_not_depend_on_order_of_operations() {
+    Random random = new Random(42);
+    List<Integer> keys = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      // small range of hashes to have keys sharing long prefixes
+      keys.add(random.nextInt(1 << 12));
+    }
+    Map<Integer, Integer> expected = new HashMap<>();
+    HashArrayMappedTrie<Integer, Integer> t = HashArrayMappedTrie.create();
+    for (Integer key : keys) {
+      t = t.put(key, key * 2);
+      expected.put(key, key * 2);
+    }
+    for (int i = 0; i < keys.size(); i += 3) {
+      t = t.remove(keys.get(i));
+      expected.remove(keys.get(i));
+    }
+
+    List<Integer> shuffled = new ArrayList<>(expected.keySet());
+    Collections.shuffle(shuffled, random);
+    HashArrayMappedTrie<Integer, Integer> other = HashArrayMappedTrie.create();
+    for (Integer key : shuffled) {
+      other = other.put(key, expected.get(key));
+    }
+
+    assertThat(other).isEqualTo(t);
+    assertThat(other.hashCode()).isEqualTo(t.hashCode());
+    assertThat(other.toString()).isEqualTo(t.toString());
+    Map<Integer, Integer> actual = new HashMap<>();
+    t.forEach(actual::put);
+    assertThat(actual).isEqualTo(expected);
+    for (Integer key : keys) {
+      assertThat(t.get(key)).isEqualTo(expected.get(key));
+    }
+
+    HashArrayMappedTrie<Integer, Integer> modified = other.put(shuffled.get(0), -1);
+    assertThat(modified).isNotEqualTo(t);
+    assertThat(modified.put(shuffled.get(0), expected.get(shuffled.get(0)))).isEqualTo(t);
+  }
+
+}
@@ -35,6 +35,20 @@ public class PCollectionsTest {
     assertThat(PCollections.emptyStack()).isSameAs(SinglyLinkedList.EMPTY);
   }
 
+  @Test
+  public void implementations() {
+    assertThat(PCollections.emptySet(PCollections.Implementation.AVL_TREE)).isSameAs(AVLTree.create());
+    assertThat(PCollections.emptyMap(PCollections.Implementation.AVL_TREE)).isSameAs(AVLTree.create());
+    assertThat(PCollections.emptySet(PCollections.Implementation.HAMT)).isSameAs(HashArrayMappedTrie.create());
+    assertThat(PCollections.emptyMap(PCollections.Implementation.HAMT)).isSameAs(HashArrayMappedTrie.create());
+  }
+
+  @Test
+  public void empty_map_of_the_same_implementation() {
+    assertThat(PCollections.emptyMapLike(PCollections.emptyMap().put(1, 2))).isSameAs(AVLTree.create());
+    assertThat(PCollections.emptyMapLike(PCollections.emptyMap(PCollections.Implementation.HAMT).put(1, 2))).isSameAs(HashArrayMappedTrie.create());
+  }
+
   @Test
   public void private_constructor() throws Exception {
     assertThat(Modifier.isFinal(PCollections.class.getModifiers())).isTrue();
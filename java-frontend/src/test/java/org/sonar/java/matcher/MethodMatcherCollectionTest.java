@@ -111,6 +111,34 @@ public class MethodMatcherCollectionTest {
     assertThat(MethodMatcherCollection.create(matcher1, matcher2).anyMatch(mockSymbol)).isFalse();
   }
 
+  @Test
+  public void should_only_call_matchers_expecting_the_method_name() {
+    Symbol symbol = mock(Symbol.class);
+    when(symbol.isMethodSymbol()).thenReturn(true);
+    when(symbol.name()).thenReturn("foo");
+    MethodMatcher fooMatcher = mock(MethodMatcher.class);
+    when(fooMatcher.exactName()).thenReturn("foo");
+    MethodMatcher barMatcher = mock(MethodMatcher.class);
+    when(barMatcher.exactName()).thenReturn("bar");
+    MethodMatcher anyNameMatcher = mock(MethodMatcher.class);
+
+    MethodMatcherCollection collection = MethodMatcherCollection.create(barMatcher, anyNameMatcher, fooMatcher);
+    assertThat(collection.anyMatch(symbol)).isFalse();
+    verify(fooMatcher).matches(symbol);
+    verify(anyNameMatcher).matches(symbol);
+    verify(barMatcher, never()).matches(symbol);
+
+    when(fooMatcher.matches(symbol)).thenReturn(true);
+    assertThat(collection.anyMatch(symbol)).isTrue();
+
+    MethodMatcher otherFooMatcher = mock(MethodMatcher.class);
+    when(otherFooMatcher.exactName()).thenReturn("foo");
+    when(otherFooMatcher.matches(symbol)).thenReturn(true);
+    when(fooMatcher.matches(symbol)).thenReturn(false);
+    assertThat(collection.anyMatch(symbol)).isFalse();
+    assertThat(collection.add(otherFooMatcher).anyMatch(symbol)).isTrue();
+  }
+
   @Test
   public void should_add_all_matchers() throws Exception {
     MethodMatcher matcher1 = mock(MethodMatcher.class);
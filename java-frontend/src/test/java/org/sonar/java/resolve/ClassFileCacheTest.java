@@ -0,0 +1,87 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.resolve;
+
+import com.google.common.collect.Lists;
+import java.io.File;
+import org.junit.Test;
+import org.objectweb.asm.tree.ClassNode;
+import org.sonar.java.bytecode.loader.SquidClassLoader;
+import org.sonar.java.resolve.targets.HasInnerClass;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ClassFileCacheTest {
+
+  private final ClassFileCache classFiles = new ClassFileCache(new SquidClassLoader(Lists.newArrayList(new File("target/test-classes"), new File("target/classes"))));
+
+  @Test
+  public void class_files_are_decoded_once() {
+    String className = HasInnerClass.class.getName();
+    assertThat(classFiles.classNode(className)).isNotNull().isSameAs(classFiles.classNode(className));
+    assertThat(classFiles.classNode(className).name).isEqualTo("org/sonar/java/resolve/targets/HasInnerClass");
+    assertThat(classFiles.classNode("org.sonar.java.resolve.targets.Unknown")).isNull();
+    assertThat(classFiles.classNode("org.sonar.java.resolve.targets.Unknown")).isNull();
+    assertThat(classFiles.size()).isEqualTo(2);
+
+    assertThat(classFiles.exists(className)).isTrue();
+    assertThat(classFiles.exists(className + "$InnerClass")).isTrue();
+    assertThat(classFiles.exists("org.sonar.java.resolve.targets.Unknown")).isFalse();
+  }
+
+  @Test
+  public void only_most_recently_used_class_files_are_kept() {
+    ClassFileCache boundedClassFiles = new ClassFileCache(new SquidClassLoader(Lists.newArrayList(new File("target/test-classes"))), 2);
+    String first = HasInnerClass.class.getName();
+    String second = first + "$InnerClass";
+    String third = ClassFileCacheTest.class.getName();
+    ClassNode firstNode = boundedClassFiles.classNode(first);
+    boundedClassFiles.classNode(second);
+    assertThat(boundedClassFiles.classNode(first)).isSameAs(firstNode);
+    boundedClassFiles.classNode(third);
+    assertThat(boundedClassFiles.size()).isEqualTo(2);
+    assertThat(boundedClassFiles.classNode(first)).isSameAs(firstNode);
+
+    ClassNode secondNode = boundedClassFiles.classNode(second);
+    assertThat(secondNode.name).isEqualTo("org/sonar/java/resolve/targets/HasInnerClass$InnerClass");
+    assertThat(boundedClassFiles.classNode(second)).isSameAs(secondNode);
+
+    boundedClassFiles.clear();
+    assertThat(boundedClassFiles.size()).isZero();
+    assertThat(boundedClassFiles.classNode(first)).isNotSameAs(firstNode);
+  }
+
+  @Test
+  public void symbols_are_created_per_completer() {
+    BytecodeCompleter first = new BytecodeCompleter(classFiles, new ParametrizedTypeCache());
+    new Symbols(first);
+    BytecodeCompleter second = new BytecodeCompleter(classFiles, new ParametrizedTypeCache());
+    new Symbols(second);
+
+    JavaSymbol.TypeJavaSymbol firstSymbol = first.getClassSymbol(HasInnerClass.class.getName());
+    JavaSymbol.TypeJavaSymbol secondSymbol = second.getClassSymbol(HasInnerClass.class.getName());
+    assertThat(firstSymbol).isNotSameAs(secondSymbol);
+    assertThat(firstSymbol.members().scopeSymbols()).hasSameSizeAs(secondSymbol.members().scopeSymbols());
+    assertThat(firstSymbol.members().lookup("InnerClass")).hasSize(1);
+    assertThat(secondSymbol.members().lookup("InnerClass")).hasSize(1);
+    assertThat(first.loadClass(HasInnerClass.class.getName())).isSameAs(firstSymbol);
+  }
+
+}
@@ -34,6 +34,7 @@ import java.io.File;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import javax.annotation.Nullable;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -186,6 +187,39 @@ public class JavaTypeTest {
     assertThat(Symbols.unknownType.isSubtypeOf(symbols.objectType)).isFalse();
   }
 
+  @Test
+  public void isSubtypeOf_transitive_super_types() throws Exception {
+    JavaSymbol.PackageJavaSymbol packageSymbol = new JavaSymbol.PackageJavaSymbol("org.foo.bar", null);
+    ClassJavaType superInterface = classType(packageSymbol, "SuperInterface", null);
+    ClassJavaType anInterface = classType(packageSymbol, "AnInterface", null, superInterface);
+    ClassJavaType superClass = classType(packageSymbol, "SuperClass", symbols.objectType, anInterface);
+    ClassJavaType subClass = classType(packageSymbol, "SubClass", superClass);
+
+    for (int i = 0; i < 2; i++) {
+      // second iteration uses the names indexed by the first one
+      assertThat(subClass.isSubtypeOf("org.foo.bar.SubClass")).isTrue();
+      assertThat(subClass.isSubtypeOf("org.foo.bar.SuperClass")).isTrue();
+      assertThat(subClass.isSubtypeOf("org.foo.bar.AnInterface")).isTrue();
+      assertThat(subClass.isSubtypeOf("org.foo.bar.SuperInterface")).isTrue();
+      assertThat(subClass.isSubtypeOf("java.lang.Object")).isTrue();
+      assertThat(subClass.isSubtypeOf("java.lang.Cloneable")).isFalse();
+      assertThat(superClass.isSubtypeOf("org.foo.bar.SubClass")).isFalse();
+    }
+    assertThat(subClass.isSubtypeOf(superInterface)).isTrue();
+    assertThat(subClass.isSubtypeOf(anInterface)).isTrue();
+    assertThat(subClass.isSubtypeOf(symbols.objectType)).isTrue();
+    assertThat(superClass.isSubtypeOf(subClass)).isFalse();
+    assertThat(anInterface.isSubtypeOf(symbols.cloneableType)).isFalse();
+  }
+
+  private static ClassJavaType classType(JavaSymbol.PackageJavaSymbol packageSymbol, String name, @Nullable JavaType superType, JavaType... interfaces) {
+    JavaSymbol.TypeJavaSymbol typeSymbol = new JavaSymbol.TypeJavaSymbol(Flags.PUBLIC, name, packageSymbol);
+    ClassJavaType classType = (ClassJavaType) typeSymbol.type;
+    classType.supertype = superType;
+    classType.interfaces = Lists.newArrayList(interfaces);
+    return classType;
+  }
+
   @Test
   public void direct_super_types() {
     Set<ClassJavaType> objectDirectSuperTypes = symbols.objectType.directSuperTypes();
@@ -62,12 +62,11 @@ public class BehaviorCacheTest {
     SymbolicExecutionVisitor sev = createSymbolicExecutionVisitor("src/test/resources/se/MethodBehavior.java");
     assertThat(sev.behaviorCache.behaviors.entrySet()).hasSize(4);
     assertThat(sev.behaviorCache.behaviors.values().stream().filter(mb -> mb != null).count()).isEqualTo(4);
-    // check order of method exploration : last is the topMethod as it requires the other to get its behavior.
-    // Then, as we explore fully a path before switching to another one (see the LIFO in EGW) : qix is handled before foo.
+    // check order of method exploration : callees are explored before topMethod, in the order they are called.
     assertThat(sev.behaviorCache.behaviors.keySet().stream().collect(Collectors.toList())).containsSequence(
-      "MethodBehavior#topMethod(Z)Z",
       "MethodBehavior#bar(Z)Z",
       "MethodBehavior#foo(Z)Z",
+      "MethodBehavior#topMethod(Z)Z",
       "MethodBehavior#independent()V");
 
     // method which can be overriden should not have behaviors: 'abstractMethod', 'publicMethod', 'nativeMethod'
@@ -0,0 +1,56 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se;
+
+import com.sonar.sslr.api.typed.ActionParser;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Test;
+import org.sonar.java.ast.parser.JavaParser;
+import org.sonar.java.bytecode.loader.SquidClassLoader;
+import org.sonar.java.resolve.SemanticModel;
+import org.sonar.plugins.java.api.tree.ClassTree;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+import org.sonar.plugins.java.api.tree.MethodTree;
+import org.sonar.plugins.java.api.tree.Tree;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CallGraphTest {
+
+  @Test
+  public void callees_are_ordered_before_their_callers() {
+    ActionParser<Tree> parser = JavaParser.createParser();
+    CompilationUnitTree cut = (CompilationUnitTree) parser.parse(new File("src/test/files/se/CallGraph.java"));
+    SemanticModel.createFor(cut, new SquidClassLoader(new ArrayList<>()));
+    List<MethodTree> methods = ((ClassTree) cut.types().get(0)).members().stream()
+      .filter(member -> member.is(Tree.Kind.METHOD, Tree.Kind.CONSTRUCTOR))
+      .map(MethodTree.class::cast)
+      .collect(Collectors.toList());
+
+    List<String> order = CallGraph.bottomUpOrder(methods).stream().map(method -> method.simpleName().name()).collect(Collectors.toList());
+
+    // mutually recursive methods are kept in the order of the file, calls of overridable methods and constructors are ignored
+    assertThat(order).containsExactly("leaf", "recursive", "mutuallyRecursive", "top", "instance", "CallGraph", "open");
+  }
+
+}
@@ -20,6 +20,8 @@
 package org.sonar.java.se;
 
 import org.junit.Test;
+import org.sonar.java.se.constraint.ObjectConstraint;
+import org.sonar.java.se.symbolicvalues.SymbolicValue;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
@@ -54,6 +56,42 @@ public class ExplodedGraphTest {
     assertThat(child.parents()).hasSize(2);
   }
 
+  @Test
+  public void states_of_nodes_share_equal_content() {
+    ExplodedGraph eg = new ExplodedGraph();
+    SymbolicValue sv = new SymbolicValue();
+    ProgramState state1 = ProgramState.EMPTY_STATE.addConstraint(sv, ObjectConstraint.NOT_NULL);
+    ProgramState state2 = ProgramState.EMPTY_STATE.addConstraint(sv, ObjectConstraint.NOT_NULL).stackValue(sv);
+    assertThat(state2.constraints).isNotSameAs(state1.constraints).isEqualTo(state1.constraints);
+
+    ExplodedGraph.Node node1 = eg.node(mockProgramPoint("node1"), state1);
+    ExplodedGraph.Node node2 = eg.node(mockProgramPoint("node2"), state2);
+    assertThat(node2.programState).isNotSameAs(node1.programState).isEqualTo(state2);
+    assertThat(node2.programState.constraints).isSameAs(node1.programState.constraints);
+    assertThat(node2.programState.peekValue()).isSameAs(sv);
+
+    ProgramState state3 = ProgramState.EMPTY_STATE.addConstraint(sv, ObjectConstraint.NOT_NULL).addConstraint(new SymbolicValue(), ObjectConstraint.NULL);
+    ExplodedGraph.Node node3 = eg.node(mockProgramPoint("node3"), state3);
+    assertThat(node3.programState).isEqualTo(state3);
+    assertThat(node3.programState.getConstraints(sv)).isSameAs(node1.programState.getConstraints(sv));
+  }
+
+  @Test
+  public void existing_node_keeps_its_state() {
+    ExplodedGraph eg = new ExplodedGraph();
+    SymbolicValue sv = new SymbolicValue();
+    ProgramPoint programPoint = mockProgramPoint("node");
+    ProgramState state = ProgramState.EMPTY_STATE.addConstraint(sv, ObjectConstraint.NOT_NULL);
+    ExplodedGraph.Node node = eg.node(programPoint, state);
+    assertThat(node.isNew()).isTrue();
+
+    ProgramState equalState = ProgramState.EMPTY_STATE.addConstraint(sv, ObjectConstraint.NOT_NULL);
+    ExplodedGraph.Node existing = eg.node(programPoint, equalState);
+    assertThat(existing).isSameAs(node);
+    assertThat(existing.isNew()).isFalse();
+    assertThat(existing.programState).isSameAs(node.programState);
+  }
+
   private ProgramPoint mockProgramPoint(String toString) {
     ProgramPoint mock = mock(ProgramPoint.class);
     when(mock.toString()).thenReturn(toString);
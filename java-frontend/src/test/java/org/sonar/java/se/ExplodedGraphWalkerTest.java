@@ -25,12 +25,15 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.junit.Test;
+import org.sonar.java.SonarComponents;
 import org.sonar.java.bytecode.loader.SquidClassLoader;
 import org.sonar.java.cfg.CFG;
+import org.sonar.java.collections.PCollections;
 import org.sonar.java.resolve.JavaSymbol;
 import org.sonar.java.resolve.SemanticModel;
 import org.sonar.java.se.checks.BooleanGratuitousExpressionsCheck;
@@ -55,6 +58,7 @@ import org.sonar.java.se.xproc.BehaviorCache;
 import org.sonar.java.se.xproc.HappyPathYield;
 import org.sonar.java.se.xproc.MethodBehavior;
 import org.sonar.java.se.xproc.MethodYield;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
 import org.sonar.plugins.java.api.semantic.Symbol;
 import org.sonar.plugins.java.api.semantic.Type;
 import org.sonar.plugins.java.api.tree.AssignmentExpressionTree;
@@ -99,6 +103,94 @@ public class ExplodedGraphWalkerTest {
     assertThat(steps[0]).isGreaterThan(steps[1]);
   }
 
+  @Test
+  public void state_merging_reduces_explored_states() {
+    int stepsWithoutMerging = steps("src/test/files/se/StateMerging.java", SymbolicExecutionOptions.defaults());
+    int stepsWithMerging = steps("src/test/files/se/StateMerging.java", SymbolicExecutionOptions.defaults().withStateMerging(true));
+    assertThat(stepsWithMerging).isPositive();
+    assertThat(stepsWithMerging).isLessThan(stepsWithoutMerging);
+  }
+
+  @Test
+  public void explore_methods_with_hamt_program_states() {
+    SymbolicExecutionOptions options = SymbolicExecutionOptions.defaults().withCollections(PCollections.Implementation.HAMT);
+    assertThat(ProgramState.emptyState(options.collections())).isNotEqualTo(ProgramState.EMPTY_STATE);
+    assertThat(steps("src/test/files/se/SeEngineTestCleanupState.java", options)).isPositive();
+    Map<String, String> properties = Collections.singletonMap(SonarComponents.SE_COLLECTIONS_KEY, "HAMT");
+    JavaCheckVerifier.verify("src/test/files/se/Reproducer.java", properties, seChecks());
+    JavaCheckVerifier.verify("src/test/files/se/NullDereferenceCheck.java", properties, new NullDereferenceCheck());
+  }
+
+  @Test
+  public void explore_methods_with_every_work_list_strategy() {
+    int depthFirstSteps = steps("src/test/files/se/SeEngineTestCleanupState.java", SymbolicExecutionOptions.defaults());
+    for (WorkList.Strategy strategy : WorkList.Strategy.values()) {
+      int strategySteps = steps("src/test/files/se/SeEngineTestCleanupState.java", SymbolicExecutionOptions.defaults().withWorkListStrategy(strategy));
+      assertThat(strategySteps).as(strategy.name()).isPositive();
+      if (strategy == WorkList.Strategy.DEPTH_FIRST) {
+        assertThat(strategySteps).isEqualTo(depthFirstSteps);
+      }
+    }
+  }
+
+  @Test
+  public void interrupt_methods_exhausting_their_budget() {
+    SymbolicExecutionBudget budget = new SymbolicExecutionBudget(SymbolicExecutionBudget.DEFAULT_MAX_STEPS, 0, 0, 0, 1);
+    SymbolicExecutionOptions options = SymbolicExecutionOptions.defaults().withBudget(budget);
+    JavaCheckVerifier.verifyNoIssue("src/test/files/se/StateMerging.java",
+      new SymbolicExecutionVisitor(Collections.emptyList(), new BehaviorCache(new SquidClassLoader(new ArrayList<>())), options));
+    assertThat(budget.exhaustedBudgets()).containsOnlyKeys(SymbolicExecutionBudget.Reason.METHOD_MEMORY);
+
+    SymbolicExecutionBudget exhaustedBudget = new SymbolicExecutionBudget(SymbolicExecutionBudget.DEFAULT_MAX_STEPS, 0, 0, 1, 0);
+    JavaCheckVerifier.verifyNoIssue("src/test/files/se/StateMerging.java",
+      new SymbolicExecutionVisitor(Collections.emptyList(), new BehaviorCache(new SquidClassLoader(new ArrayList<>())), options.withBudget(exhaustedBudget)) {
+        @Override
+        public void scanFile(JavaFileScannerContext context) {
+          sleep();
+          super.scanFile(context);
+        }
+      });
+    assertThat(exhaustedBudget.exhaustedBudgets()).containsOnlyKeys(SymbolicExecutionBudget.Reason.ANALYSIS_TIMEOUT);
+  }
+
+  @Test
+  public void interrupt_and_skip_methods_once_file_or_analysis_memory_is_exhausted() {
+    SymbolicExecutionBudget fileBudget = new SymbolicExecutionBudget(SymbolicExecutionBudget.DEFAULT_MAX_STEPS, 0, 0, 0, 0, 1, 0);
+    JavaCheckVerifier.verifyNoIssue("src/test/files/se/StateMerging.java",
+      new SymbolicExecutionVisitor(Collections.emptyList(), new BehaviorCache(new SquidClassLoader(new ArrayList<>())),
+        SymbolicExecutionOptions.defaults().withBudget(fileBudget)));
+    assertThat(fileBudget.exhaustedBudgets()).containsOnlyKeys(SymbolicExecutionBudget.Reason.FILE_MEMORY);
+
+    SymbolicExecutionBudget analysisBudget = new SymbolicExecutionBudget(SymbolicExecutionBudget.DEFAULT_MAX_STEPS, 0, 0, 0, 0, 0, 1);
+    JavaCheckVerifier.verifyNoIssue("src/test/files/se/StateMerging.java",
+      new SymbolicExecutionVisitor(Collections.emptyList(), new BehaviorCache(new SquidClassLoader(new ArrayList<>())),
+        SymbolicExecutionOptions.defaults().withBudget(analysisBudget)));
+    assertThat(analysisBudget.exhaustedBudgets()).containsOnlyKeys(SymbolicExecutionBudget.Reason.ANALYSIS_MEMORY);
+  }
+
+  private static void sleep() {
+    try {
+      Thread.sleep(5);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static int steps(String fileName, SymbolicExecutionOptions options) {
+    final int[] steps = new int[1];
+    JavaCheckVerifier.verifyNoIssue(fileName, new SymbolicExecutionVisitor(Collections.emptyList(), new BehaviorCache(new SquidClassLoader(new ArrayList<>()))) {
+      @Override
+      public void visitNode(Tree tree) {
+        ExplodedGraphWalker explodedGraphWalker = new ExplodedGraphWalker.ExplodedGraphWalkerFactory(Collections.emptyList(), options)
+          .createWalker(this.behaviorCache, (SemanticModel) context.getSemanticModel());
+        MethodTree methodTree = (MethodTree) tree;
+        explodedGraphWalker.visitMethod(methodTree, methodBehaviorForSymbol(methodTree.symbol()));
+        steps[0] += explodedGraphWalker.steps;
+      }
+    });
+    return steps[0];
+  }
+
   @Test
   public void reproducer() throws Exception {
     JavaCheckVerifier.verify("src/test/files/se/Reproducer.java", seChecks());
@@ -148,10 +240,10 @@ public class ExplodedGraphWalkerTest {
 
               if (getNode) {
                 if (firstExceptionalNode == null) {
-                  firstExceptionalNode = workList.peekFirst();
+                  firstExceptionalNode = workList.peek();
                 }
                 assertThat(workList.size()).as("Should have created a new node in the graph for each of the exceptions").isEqualTo(workListSize + 1);
-                assertThat(workList.peekFirst().programState.peekValue()).as("Exceptional Symbolic Value should stay on the stack").isEqualTo(exceptionSV);
+                assertThat(workList.peek().programState.peekValue()).as("Exceptional Symbolic Value should stay on the stack").isEqualTo(exceptionSV);
                 tested[0]++;
               }
             };
@@ -201,7 +293,7 @@ public class ExplodedGraphWalkerTest {
               assertThat(workList.size()).isEqualTo(workListSize + 1);
               if (shouldEnqueueFalseBranch) {
                 assertThat(programPoints[1]).isNull();
-                programPoints[1] = workList.peekFirst().programPoint;
+                programPoints[1] = workList.peek().programPoint;
               }
             }
           };
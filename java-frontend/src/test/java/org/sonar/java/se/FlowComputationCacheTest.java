@@ -0,0 +1,64 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+import org.sonar.java.se.symbolicvalues.RelationalSymbolicValue;
+import org.sonar.java.se.symbolicvalues.SymbolicValue;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FlowComputationCacheTest {
+
+  @Test
+  public void computed_from_is_memoized_on_shared_operands() {
+    SymbolicValue a = new SymbolicValue();
+    SymbolicValue current = a;
+    // every value uses the previous one twice: unfolding the operands would take 2^100 steps
+    for (int i = 0; i < 100; i++) {
+      RelationalSymbolicValue relational = new RelationalSymbolicValue(RelationalSymbolicValue.Kind.EQUAL);
+      relational.computedFrom(ImmutableList.of(new ProgramState.SymbolicValueSymbol(current, null), new ProgramState.SymbolicValueSymbol(current, null)));
+      current = relational;
+    }
+    FlowComputation.Cache cache = new FlowComputation.Cache();
+    Set<SymbolicValue> computedFrom = cache.computedFrom(current);
+    assertThat(computedFrom).hasSize(101).contains(a, current);
+    assertThat(cache.computedFrom(current)).isSameAs(computedFrom);
+    assertThat(cache.computedFrom(a)).containsOnly(a);
+  }
+
+  @Test
+  public void computed_from_reuses_known_operands() {
+    SymbolicValue a = new SymbolicValue();
+    SymbolicValue b = new SymbolicValue();
+    RelationalSymbolicValue aEqualsB = new RelationalSymbolicValue(RelationalSymbolicValue.Kind.EQUAL);
+    aEqualsB.computedFrom(ImmutableList.of(new ProgramState.SymbolicValueSymbol(b, null), new ProgramState.SymbolicValueSymbol(a, null)));
+    RelationalSymbolicValue notEqual = new RelationalSymbolicValue(RelationalSymbolicValue.Kind.NOT_EQUAL);
+    notEqual.computedFrom(ImmutableList.of(new ProgramState.SymbolicValueSymbol(aEqualsB, null), new ProgramState.SymbolicValueSymbol(a, null)));
+
+    FlowComputation.Cache cache = new FlowComputation.Cache();
+    assertThat(cache.computedFrom(aEqualsB)).containsOnly(a, b, aEqualsB);
+    assertThat(cache.computedFrom(notEqual)).containsOnly(a, b, aEqualsB, notEqual);
+  }
+
+}
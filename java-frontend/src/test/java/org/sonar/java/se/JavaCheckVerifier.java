@@ -98,10 +98,10 @@ public class JavaCheckVerifier {
   private static final String DEFAULT_TEST_JARS_DIRECTORY = "target/test-jars";
   private final String testJarsDirectory;
   private final Expectations expectations;
+  private final Map<String, String> properties;
 
   public JavaCheckVerifier() {
-    this.testJarsDirectory = DEFAULT_TEST_JARS_DIRECTORY;
-    this.expectations = new Expectations();
+    this(DEFAULT_TEST_JARS_DIRECTORY, new Expectations());
   }
 
   private JavaCheckVerifier(Expectations expectations) {
@@ -109,8 +109,13 @@ public class JavaCheckVerifier {
   }
 
   private JavaCheckVerifier(String testJarsDirectory, Expectations expectations) {
+    this(testJarsDirectory, expectations, Collections.emptyMap());
+  }
+
+  private JavaCheckVerifier(String testJarsDirectory, Expectations expectations, Map<String, String> properties) {
     this.testJarsDirectory = testJarsDirectory;
     this.expectations = expectations;
+    this.properties = properties;
   }
 
   /**
@@ -129,6 +134,18 @@ public class JavaCheckVerifier {
     new JavaCheckVerifier().scanFile(filename, check);
   }
 
+  /**
+   * Verifies that the provided file will raise all the expected issues when analyzed with the given checks and analysis
+   * properties, for instance options of the symbolic execution.
+   *
+   * @param filename The file to be analyzed
+   * @param properties The properties of the analysis
+   * @param check The checks to be used for the analysis
+   */
+  public static void verify(String filename, Map<String, String> properties, JavaFileScanner... check) {
+    new JavaCheckVerifier(DEFAULT_TEST_JARS_DIRECTORY, new Expectations(), properties).scanFile(filename, check);
+  }
+
   /**
    * Verifies that the provided file will raise all the expected issues when analyzed with the given check,
    * but using having the classpath extended with a collection of files (classes/jar/zip).
@@ -193,15 +210,18 @@ public class JavaCheckVerifier {
     List<JavaFileScanner> visitors = new ArrayList<>(Arrays.asList(checks));
     visitors.add(expectations.parser());
     File file = new File(filename);
-    VisitorsBridgeForTests visitorsBridge = new VisitorsBridgeForTests(visitors, Lists.newArrayList(classpath), sonarComponents(file));
+    VisitorsBridgeForTests visitorsBridge = new VisitorsBridgeForTests(visitors, Lists.newArrayList(classpath), sonarComponents(file, properties));
     JavaAstScanner.scanSingleFileForTests(file, visitorsBridge);
     VisitorsBridgeForTests.TestJavaFileScannerContext testJavaFileScannerContext = visitorsBridge.lastCreatedTestContext();
     checkIssues(testJavaFileScannerContext.getIssues());
   }
 
-  private static SonarComponents sonarComponents(File file) {
+  private static SonarComponents sonarComponents(File file, Map<String, String> properties) {
     SensorContextTester context = SensorContextTester.create(new File("")).setRuntime(SonarRuntimeImpl.forSonarLint(Version.create(6, 7)));
-    context.setSettings(new MapSettings().setProperty("sonar.java.failOnException", true));
+    MapSettings settings = new MapSettings();
+    settings.setProperty("sonar.java.failOnException", true);
+    properties.forEach(settings::setProperty);
+    context.setSettings(settings);
     SonarComponents sonarComponents = new SonarComponents(null, context.fileSystem(), null, null, null) {
       @Override
       public boolean reportAnalysisError(RecognitionException re, File file) {
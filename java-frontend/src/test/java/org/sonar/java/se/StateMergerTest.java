@@ -0,0 +1,123 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se;
+
+import org.junit.Test;
+import org.sonar.java.resolve.JavaSymbol;
+import org.sonar.java.resolve.Symbols;
+import org.sonar.java.se.constraint.BooleanConstraint;
+import org.sonar.java.se.constraint.ObjectConstraint;
+import org.sonar.java.se.symbolicvalues.SymbolicValue;
+import org.sonar.plugins.java.api.semantic.Symbol;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StateMergerTest {
+
+  private final Symbol owner = new JavaSymbol(JavaSymbol.TYP, 0, "A", Symbols.unknownSymbol);
+  private final Symbol x = new JavaSymbol.VariableJavaSymbol(0, "x", (JavaSymbol) owner);
+  private final Symbol y = new JavaSymbol.VariableJavaSymbol(0, "y", (JavaSymbol) owner);
+
+  @Test
+  public void join_equal_states() {
+    SymbolicValue sv = new SymbolicValue();
+    ProgramState explored = ProgramState.EMPTY_STATE.put(x, sv).addConstraint(sv, ObjectConstraint.NOT_NULL);
+    ProgramState incoming = ProgramState.EMPTY_STATE.put(x, sv).addConstraint(sv, ObjectConstraint.NOT_NULL);
+    assertThat(StateMerger.join(explored, incoming)).isSameAs(explored);
+  }
+
+  @Test
+  public void join_drops_disagreeing_boolean_constraints() {
+    SymbolicValue sv1 = new SymbolicValue();
+    SymbolicValue sv2 = new SymbolicValue();
+    ProgramState explored = ProgramState.EMPTY_STATE.put(x, sv1)
+      .addConstraint(sv1, ObjectConstraint.NOT_NULL)
+      .addConstraint(sv1, BooleanConstraint.TRUE);
+    ProgramState incoming = ProgramState.EMPTY_STATE.put(x, sv2)
+      .addConstraint(sv2, ObjectConstraint.NOT_NULL)
+      .addConstraint(sv2, BooleanConstraint.FALSE);
+
+    ProgramState joined = StateMerger.join(explored, incoming);
+    assertThat(joined).isNotNull();
+    assertThat(joined.getValue(x)).isSameAs(sv1);
+    assertThat(joined.getConstraint(sv1, ObjectConstraint.class)).isEqualTo(ObjectConstraint.NOT_NULL);
+    assertThat(joined.getConstraint(sv1, BooleanConstraint.class)).isNull();
+    assertThat(joined.getConstraint(SymbolicValue.TRUE_LITERAL, BooleanConstraint.class)).isEqualTo(BooleanConstraint.TRUE);
+
+    // explored state is now more general than the states it has been joined with
+    assertThat(StateMerger.join(joined, incoming)).isSameAs(joined);
+    assertThat(StateMerger.join(joined, explored)).isSameAs(joined);
+  }
+
+  @Test
+  public void joined_state_keeps_the_largest_size_of_constraints() {
+    SymbolicValue sv1 = new SymbolicValue();
+    SymbolicValue sv2 = new SymbolicValue();
+    ProgramState shorter = ProgramState.EMPTY_STATE.put(x, sv1)
+      .addConstraint(sv1, ObjectConstraint.NOT_NULL)
+      .addConstraint(sv1, BooleanConstraint.TRUE);
+    ProgramState longer = ProgramState.EMPTY_STATE.put(x, sv2)
+      .addConstraint(sv2, ObjectConstraint.NOT_NULL)
+      .addConstraint(sv2, BooleanConstraint.TRUE)
+      .removeConstraintsOnDomain(sv2, BooleanConstraint.class)
+      .addConstraint(sv2, BooleanConstraint.FALSE);
+    assertThat(longer.constraintsSize()).isGreaterThan(shorter.constraintsSize());
+
+    ProgramState joined = StateMerger.join(shorter, longer);
+    assertThat(joined).isNotNull();
+    assertThat(joined.constraintsSize()).isEqualTo(longer.constraintsSize());
+    joined = StateMerger.join(longer, shorter);
+    assertThat(joined).isNotNull();
+    assertThat(joined.constraintsSize()).isEqualTo(longer.constraintsSize());
+  }
+
+  @Test
+  public void do_not_join_states_disagreeing_on_issue_relevant_constraints() {
+    SymbolicValue sv = new SymbolicValue();
+    ProgramState explored = ProgramState.EMPTY_STATE.put(x, sv).addConstraint(sv, ObjectConstraint.NOT_NULL);
+    ProgramState incoming = ProgramState.EMPTY_STATE.put(x, sv).addConstraint(sv, ObjectConstraint.NULL);
+    assertThat(StateMerger.join(explored, incoming)).isNull();
+    assertThat(StateMerger.join(ProgramState.EMPTY_STATE.put(x, sv), incoming)).isNull();
+  }
+
+  @Test
+  public void do_not_join_states_binding_different_symbols() {
+    SymbolicValue sv = new SymbolicValue();
+    ProgramState explored = ProgramState.EMPTY_STATE.put(x, sv);
+    assertThat(StateMerger.join(explored, ProgramState.EMPTY_STATE.put(y, sv))).isNull();
+    assertThat(StateMerger.join(explored, explored.put(y, sv))).isNull();
+    assertThat(StateMerger.join(explored.put(y, sv), explored.put(y, new SymbolicValue()))).isNull();
+  }
+
+  @Test
+  public void do_not_rename_literals() {
+    ProgramState explored = ProgramState.EMPTY_STATE.put(x, SymbolicValue.TRUE_LITERAL);
+    ProgramState incoming = ProgramState.EMPTY_STATE.put(x, SymbolicValue.FALSE_LITERAL);
+    assertThat(StateMerger.join(explored, incoming)).isNull();
+  }
+
+  @Test
+  public void do_not_join_states_with_different_stacks() {
+    SymbolicValue sv = new SymbolicValue();
+    ProgramState explored = ProgramState.EMPTY_STATE.put(x, sv);
+    assertThat(StateMerger.join(explored, explored.stackValue(sv))).isNull();
+  }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+public class SymbolicExecutionBudgetTest {
+
+  @Test
+  public void unlimited_budget() {
+    SymbolicExecutionBudget budget = SymbolicExecutionBudget.unlimited();
+    budget.startFile();
+    assertThat(budget.maxSteps()).isEqualTo(SymbolicExecutionBudget.DEFAULT_MAX_STEPS);
+    assertThat(budget.exhausted()).isNull();
+    assertThat(SymbolicExecutionBudget.hasDeadline(budget.methodDeadline())).isFalse();
+    assertThat(budget.memoryReason(Long.MAX_VALUE)).isNull();
+    assertThat(budget.isSharedMemoryBounded()).isFalse();
+    assertThat(budget.timeoutReason()).isEqualTo(SymbolicExecutionBudget.Reason.METHOD_TIMEOUT);
+  }
+
+  @Test
+  public void limits() {
+    SymbolicExecutionBudget budget = new SymbolicExecutionBudget(100, 60_000, 0, 0, 1_000);
+    assertThat(budget.maxSteps()).isEqualTo(100);
+    assertThat(SymbolicExecutionBudget.hasDeadline(budget.methodDeadline())).isTrue();
+    assertThat(budget.memoryReason(1_000)).isNull();
+    assertThat(budget.memoryReason(1_001)).isEqualTo(SymbolicExecutionBudget.Reason.METHOD_MEMORY);
+    assertThat(new SymbolicExecutionBudget(0, 0, 0, 0, 0).maxSteps()).isEqualTo(SymbolicExecutionBudget.DEFAULT_MAX_STEPS);
+  }
+
+  @Test
+  public void file_timeout() throws Exception {
+    SymbolicExecutionBudget budget = new SymbolicExecutionBudget(100, 0, 1, 0, 0);
+    assertThat(budget.exhausted()).isNull();
+    budget.startFile();
+    Thread.sleep(5);
+    assertThat(budget.exhausted()).isEqualTo(SymbolicExecutionBudget.Reason.FILE_TIMEOUT);
+    assertThat(budget.timeoutReason()).isEqualTo(SymbolicExecutionBudget.Reason.FILE_TIMEOUT);
+    budget.startFile();
+    assertThat(SymbolicExecutionBudget.hasDeadline(budget.methodDeadline())).isTrue();
+  }
+
+  @Test
+  public void file_deadline_is_the_one_of_the_file_explored_by_the_thread() throws Exception {
+    SymbolicExecutionBudget budget = new SymbolicExecutionBudget(100, 0, 1, 0, 0);
+    budget.startFile();
+    Thread.sleep(5);
+    Thread otherFile = new Thread(budget::startFile);
+    otherFile.start();
+    otherFile.join();
+    assertThat(budget.exhausted()).isEqualTo(SymbolicExecutionBudget.Reason.FILE_TIMEOUT);
+  }
+
+  @Test
+  public void default_options_do_not_share_their_budget() {
+    SymbolicExecutionOptions options = SymbolicExecutionOptions.defaults();
+    options.budget().record(SymbolicExecutionBudget.Reason.MAX_STEPS);
+    assertThat(SymbolicExecutionOptions.defaults().budget()).isNotSameAs(options.budget());
+    assertThat(SymbolicExecutionOptions.defaults().budget().exhaustedBudgets()).isEmpty();
+  }
+
+  @Test
+  public void analysis_timeout() throws Exception {
+    SymbolicExecutionBudget budget = new SymbolicExecutionBudget(100, 0, 60_000, 1, 0);
+    Thread.sleep(5);
+    budget.startFile();
+    assertThat(budget.exhausted()).isEqualTo(SymbolicExecutionBudget.Reason.ANALYSIS_TIMEOUT);
+  }
+
+  @Test
+  public void file_memory() throws Exception {
+    SymbolicExecutionBudget budget = new SymbolicExecutionBudget(100, 0, 0, 0, 1_000, 1_500, 0);
+    assertThat(budget.isSharedMemoryBounded()).isTrue();
+    budget.startFile();
+    budget.consume(1_000);
+    assertThat(budget.exhausted()).isNull();
+    assertThat(budget.memoryReason(500)).isNull();
+    assertThat(budget.memoryReason(501)).isEqualTo(SymbolicExecutionBudget.Reason.FILE_MEMORY);
+    budget.consume(501);
+    assertThat(budget.exhausted()).isEqualTo(SymbolicExecutionBudget.Reason.FILE_MEMORY);
+
+    Thread otherFile = new Thread(() -> {
+      budget.startFile();
+      budget.consume(1_000);
+    });
+    otherFile.start();
+    otherFile.join();
+    assertThat(budget.exhausted()).isEqualTo(SymbolicExecutionBudget.Reason.FILE_MEMORY);
+    budget.startFile();
+    assertThat(budget.exhausted()).isNull();
+  }
+
+  @Test
+  public void analysis_memory() {
+    SymbolicExecutionBudget budget = new SymbolicExecutionBudget(100, 0, 0, 0, 0, 1_500, 2_000);
+    budget.startFile();
+    budget.consume(1_000);
+    budget.startFile();
+    assertThat(budget.memoryReason(1_000)).isEqualTo(SymbolicExecutionBudget.Reason.ANALYSIS_MEMORY);
+    budget.consume(1_001);
+    assertThat(budget.exhausted()).isEqualTo(SymbolicExecutionBudget.Reason.ANALYSIS_MEMORY);
+  }
+
+  @Test
+  public void record_exhausted_budgets() {
+    SymbolicExecutionBudget budget = SymbolicExecutionBudget.unlimited();
+    budget.logSummary();
+    assertThat(budget.exhaustedBudgets()).isEmpty();
+    budget.record(SymbolicExecutionBudget.Reason.METHOD_TIMEOUT);
+    budget.record(SymbolicExecutionBudget.Reason.METHOD_TIMEOUT);
+    budget.record(SymbolicExecutionBudget.Reason.MAX_STEPS);
+    budget.logSummary();
+    assertThat(budget.exhaustedBudgets()).containsOnly(
+      entry(SymbolicExecutionBudget.Reason.MAX_STEPS, 1),
+      entry(SymbolicExecutionBudget.Reason.METHOD_TIMEOUT, 2));
+  }
+}
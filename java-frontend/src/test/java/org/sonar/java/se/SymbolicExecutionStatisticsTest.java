@@ -0,0 +1,95 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.java.bytecode.loader.SquidClassLoader;
+import org.sonar.java.se.SymbolicExecutionStatistics.MethodStatistics;
+import org.sonar.java.se.xproc.BehaviorCache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SymbolicExecutionStatisticsTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void methods_are_sorted_by_time() {
+    SymbolicExecutionStatistics statistics = new SymbolicExecutionStatistics();
+    statistics.logSummary();
+    statistics.record(new MethodStatistics("A.java", "A#fast()V", 3, 10, 12, 2, 1, 10L, null));
+    statistics.record(new MethodStatistics("A.java", "A#slow()V", 7, 16_001, 20_000, 40, 0, 1_000L, SymbolicExecutionBudget.Reason.MAX_STEPS));
+    statistics.record(new MethodStatistics("B.java", "B#medium()V", 2, 100, 120, 5, 2, 100L, null));
+    statistics.logSummary();
+
+    SymbolicExecutionStatistics.Report report = statistics.report();
+    assertThat(report.methods).isEqualTo(3);
+    assertThat(report.steps).isEqualTo(16_111L);
+    assertThat(report.timeNanos).isEqualTo(1_110L);
+    assertThat(report.methodsTakingHalfOfTime).isEqualTo(1);
+    assertThat(report.abortReasons).containsOnlyKeys("MAX_STEPS");
+    assertThat(report.methodStatistics).extracting(method -> method.method).containsExactly("A#slow()V", "B#medium()V", "A#fast()V");
+  }
+
+  @Test
+  public void statistics_are_written_as_json() throws Exception {
+    SymbolicExecutionStatistics statistics = new SymbolicExecutionStatistics();
+    statistics.record(new MethodStatistics("A.java", "A#foo()V", 3, 10, 12, 2, 1, 10L, SymbolicExecutionBudget.Reason.METHOD_TIMEOUT));
+    File reportFile = new File(temp.newFolder(), "work/statistics.json");
+
+    statistics.writeReport(reportFile);
+
+    JsonObject report = new JsonParser().parse(new String(Files.readAllBytes(reportFile.toPath()), StandardCharsets.UTF_8)).getAsJsonObject();
+    assertThat(report.get("methods").getAsInt()).isEqualTo(1);
+    JsonObject method = report.getAsJsonArray("methodStatistics").get(0).getAsJsonObject();
+    assertThat(method.get("method").getAsString()).isEqualTo("A#foo()V");
+    assertThat(method.get("peakWorkListSize").getAsInt()).isEqualTo(2);
+    assertThat(method.get("abortReason").getAsString()).isEqualTo("METHOD_TIMEOUT");
+  }
+
+  @Test
+  public void explored_methods_are_recorded() {
+    SymbolicExecutionStatistics statistics = new SymbolicExecutionStatistics();
+    SymbolicExecutionOptions options = SymbolicExecutionOptions.defaults().withStatistics(statistics);
+    JavaCheckVerifier.verifyNoIssue("src/test/files/se/StateMerging.java",
+      new SymbolicExecutionVisitor(Collections.emptyList(), new BehaviorCache(new SquidClassLoader(new ArrayList<>())), options));
+
+    SymbolicExecutionStatistics.Report report = statistics.report();
+    assertThat(report.methods).isEqualTo(1);
+    MethodStatistics method = report.methodStatistics.get(0);
+    assertThat(method.method).isEqualTo("StateMerging#loop()V");
+    assertThat(method.line).isEqualTo(10);
+    assertThat(method.steps).isPositive();
+    assertThat(method.nodes).isPositive();
+    assertThat(method.peakWorkListSize).isPositive();
+    assertThat(method.abortReason).isNull();
+  }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.sonar.java.cfg.CFG;
+import org.sonar.java.cfg.CFGTest;
+import org.sonar.java.se.symbolicvalues.SymbolicValue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class WorkListTest {
+
+  private final CFG cfg = CFGTest.buildCFG("void fun(boolean b) { if (b) { foo(); } else { bar(); } qix(); }");
+  private final ExplodedGraph explodedGraph = new ExplodedGraph();
+
+  @Test
+  public void depth_first() {
+    WorkList workList = WorkList.Strategy.DEPTH_FIRST.create(cfg);
+    List<ExplodedGraph.Node> nodes = nodes(cfg.entry(), 40);
+    assertThat(workList.isEmpty()).isTrue();
+    assertThat(workList.peek()).isNull();
+    nodes.subList(0, 10).forEach(workList::add);
+    assertThat(workList.remove()).isSameAs(nodes.get(9));
+    nodes.subList(10, 40).forEach(workList::add);
+    assertThat(workList.size()).isEqualTo(39);
+    assertThat(workList.peek()).isSameAs(nodes.get(39));
+    for (int i = 39; i >= 10; i--) {
+      assertThat(workList.remove()).isSameAs(nodes.get(i));
+    }
+    for (int i = 8; i >= 0; i--) {
+      assertThat(workList.remove()).isSameAs(nodes.get(i));
+    }
+    assertThat(workList.isEmpty()).isTrue();
+    assertThatThrownBy(workList::remove).isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  public void breadth_first() {
+    WorkList workList = WorkList.Strategy.BREADTH_FIRST.create(cfg);
+    List<ExplodedGraph.Node> nodes = nodes(cfg.entry(), 40);
+    nodes.subList(0, 10).forEach(workList::add);
+    assertThat(workList.remove()).isSameAs(nodes.get(0));
+    nodes.subList(10, 40).forEach(workList::add);
+    assertThat(workList.size()).isEqualTo(39);
+    for (int i = 1; i < 40; i++) {
+      assertThat(workList.remove()).isSameAs(nodes.get(i));
+    }
+    assertThat(workList.isEmpty()).isTrue();
+  }
+
+  @Test
+  public void reverse_postorder() {
+    WorkList workList = WorkList.Strategy.REVERSE_POSTORDER.create(cfg);
+    CFG.Block entry = cfg.entry();
+    CFG.Block thenBlock = entry.trueBlock();
+    CFG.Block join = thenBlock.successors().iterator().next();
+    ExplodedGraph.Node joinNode = nodes(join, 1).get(0);
+    ExplodedGraph.Node thenNode = nodes(thenBlock, 1).get(0);
+    ExplodedGraph.Node entryNode = nodes(entry, 1).get(0);
+    ExplodedGraph.Node entryNextNode = explodedGraph.node(new ProgramPoint(entry).next(), ProgramState.EMPTY_STATE);
+    workList.add(entryNextNode);
+    workList.add(joinNode);
+    workList.add(entryNode);
+    workList.add(thenNode);
+    assertThat(workList.remove()).isSameAs(entryNode);
+    assertThat(workList.remove()).isSameAs(entryNextNode);
+    assertThat(workList.remove()).isSameAs(thenNode);
+    assertThat(workList.remove()).isSameAs(joinNode);
+  }
+
+  @Test
+  public void least_visited_first() {
+    WorkList workList = WorkList.Strategy.LEAST_VISITED_FIRST.create(cfg);
+    ProgramPoint programPoint = new ProgramPoint(cfg.entry());
+    List<ExplodedGraph.Node> nodes = new ArrayList<>();
+    for (int i = 0; i < 40; i++) {
+      ProgramState programState = ProgramState.EMPTY_STATE.stackValue(new SymbolicValue()).visitedPoint(programPoint, i % 4);
+      nodes.add(explodedGraph.node(programPoint, programState));
+    }
+    nodes.forEach(workList::add);
+    for (int visits = 0; visits < 4; visits++) {
+      // nodes visited the same number of times are explored last enqueued first
+      for (int i = 36 + visits; i >= 0; i -= 4) {
+        assertThat(workList.remove()).isSameAs(nodes.get(i));
+      }
+    }
+    assertThat(workList.isEmpty()).isTrue();
+  }
+
+  private List<ExplodedGraph.Node> nodes(CFG.Block block, int count) {
+    List<ExplodedGraph.Node> nodes = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      nodes.add(explodedGraph.node(new ProgramPoint(block), ProgramState.EMPTY_STATE.stackValue(new SymbolicValue())));
+    }
+    return nodes;
+  }
+}
@@ -0,0 +1,236 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se.xproc;
+
+import com.google.common.base.Strings;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.java.ast.parser.JavaParser;
+import org.sonar.java.bytecode.loader.SquidClassLoader;
+import org.sonar.java.resolve.SemanticModel;
+import org.sonar.java.se.SymbolicExecutionBudget;
+import org.sonar.java.se.constraint.Constraint;
+import org.sonar.java.se.constraint.ConstraintsByDomain;
+import org.sonar.java.se.constraint.ObjectConstraint;
+import org.sonar.java.se.constraint.TypedConstraint;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MethodBehaviorStoreTest {
+
+  private static final String REQUIRE_NON_NULL = "java.util.Objects#requireNonNull(Ljava/lang/Object;)Ljava/lang/Object;";
+  private static final String OBJECTS_FOO = "java.util.Objects#foo(Ljava/lang/Object;)V";
+  private static final List<File> NO_LIBRARIES = Collections.emptyList();
+  private static final String HELLO_FOO = "org.sonar.tests.Hello#foo(Ljava/lang/Object;)V";
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void behaviors_computed_from_bytecode_are_restored_by_next_analysis() throws Exception {
+    File directory = temp.newFolder();
+    SquidClassLoader classLoader = new SquidClassLoader(NO_LIBRARIES);
+    BehaviorCache behaviorCache = behaviorCache(classLoader, MethodBehaviorStore.load(directory, "fingerprint", classLoader, NO_LIBRARIES));
+    MethodBehavior computed = behaviorCache.get(REQUIRE_NON_NULL);
+    assertThat(computed.isComplete()).isTrue();
+    behaviorCache.endOfAnalysis();
+    assertThat(entries(directory)).hasSize(1);
+
+    MethodBehaviorStore store = MethodBehaviorStore.load(directory, "fingerprint", classLoader, NO_LIBRARIES);
+    MethodBehavior restored = behaviorCache(classLoader, store).get(REQUIRE_NON_NULL);
+    assertThat(store.size()).isPositive();
+    assertThat(restored).isNotSameAs(computed);
+    assertThat(restored.isComplete()).isTrue();
+    assertThat(restored.isMethodVarArgs()).isEqualTo(computed.isMethodVarArgs());
+    assertThat(restored.getDeclaredExceptions()).isEqualTo(computed.getDeclaredExceptions());
+    assertThat(restored.yields()).isEqualTo(computed.yields());
+    assertThat(restored.exceptionalPathYields().map(ExceptionalYield::exceptionTypeName).collect(Collectors.toList()))
+      .isEqualTo(computed.exceptionalPathYields().map(ExceptionalYield::exceptionTypeName).collect(Collectors.toList()));
+    classLoader.close();
+  }
+
+  @Test
+  public void behaviors_whose_exploration_has_been_interrupted_are_not_stored() throws Exception {
+    File directory = temp.newFolder();
+    SquidClassLoader classLoader = new SquidClassLoader(NO_LIBRARIES);
+    MethodBehaviorStore store = MethodBehaviorStore.load(directory, "fingerprint", classLoader, NO_LIBRARIES);
+    BehaviorCache behaviorCache = behaviorCache(classLoader, store);
+    behaviorCache.setBudget(new SymbolicExecutionBudget(1, 0, 0, 0, 0));
+    MethodBehavior interrupted = behaviorCache.get(REQUIRE_NON_NULL);
+    assertThat(interrupted.isVisited()).isTrue();
+    assertThat(interrupted.isComplete()).isFalse();
+    behaviorCache.endOfAnalysis();
+
+    assertThat(store.size()).isZero();
+    assertThat(entries(directory)).isEmpty();
+    assertThat(MethodBehaviorStore.load(directory, "fingerprint", classLoader, NO_LIBRARIES).get(REQUIRE_NON_NULL)).isNull();
+    classLoader.close();
+  }
+
+  @Test
+  public void complete_behaviors_are_not_replaced_by_incomplete_ones() throws Exception {
+    File directory = temp.newFolder();
+    SquidClassLoader classLoader = new SquidClassLoader(NO_LIBRARIES);
+    MethodBehaviorStore store = MethodBehaviorStore.load(directory, "fingerprint", classLoader, NO_LIBRARIES);
+    store.put(visitedBehavior(OBJECTS_FOO, ObjectConstraint.NOT_NULL));
+    MethodBehavior incomplete = new MethodBehavior(OBJECTS_FOO);
+    incomplete.visited();
+    store.put(incomplete);
+    store.save();
+
+    MethodBehavior restored = MethodBehaviorStore.load(directory, "fingerprint", classLoader, NO_LIBRARIES).get(OBJECTS_FOO);
+    assertThat(restored).isNotNull();
+    assertThat(restored.isComplete()).isTrue();
+    assertThat(restored.yields()).hasSize(1);
+    classLoader.close();
+  }
+
+  @Test
+  public void behaviors_are_stored_by_checksum_of_their_jar() throws Exception {
+    File directory = temp.newFolder();
+    File jar = new File("src/test/files/bytecode/lib/hello.jar");
+    File movedJar = new File(temp.newFolder(), "hello-moved.jar");
+    Files.copy(jar.toPath(), movedJar.toPath());
+    List<File> classpath = Collections.singletonList(jar);
+    SquidClassLoader classLoader = new SquidClassLoader(classpath);
+    MethodBehaviorStore store = MethodBehaviorStore.load(directory, "fingerprint", classLoader, classpath);
+    store.put(visitedBehavior(HELLO_FOO, ObjectConstraint.NOT_NULL));
+    store.save();
+    classLoader.close();
+
+    // same content at another path
+    List<File> movedClasspath = Collections.singletonList(movedJar);
+    classLoader = new SquidClassLoader(movedClasspath);
+    assertThat(MethodBehaviorStore.load(directory, "fingerprint", classLoader, movedClasspath).get(HELLO_FOO)).isNotNull();
+    assertThat(MethodBehaviorStore.load(directory, "other", classLoader, movedClasspath).get(HELLO_FOO)).isNull();
+    classLoader.close();
+
+    // other content
+    Files.write(movedJar.toPath(), new byte[] {0}, StandardOpenOption.APPEND);
+    classLoader = new SquidClassLoader(movedClasspath);
+    assertThat(MethodBehaviorStore.load(directory, "fingerprint", classLoader, movedClasspath).get(HELLO_FOO)).isNull();
+    classLoader.close();
+  }
+
+  @Test
+  public void behaviors_are_not_restored_when_another_library_of_the_classpath_is_modified() throws Exception {
+    File directory = temp.newFolder();
+    File callerJar = new File("src/test/files/bytecode/lib/hello.jar");
+    File calleeJar = new File(temp.newFolder(), "world.jar");
+    Files.copy(new File("src/test/files/classpath/lib/world.jar").toPath(), calleeJar.toPath());
+    List<File> classpath = Arrays.asList(callerJar, calleeJar);
+    SquidClassLoader classLoader = new SquidClassLoader(classpath);
+    MethodBehaviorStore store = MethodBehaviorStore.load(directory, "fingerprint", classLoader, classpath);
+    store.put(visitedBehavior(HELLO_FOO, ObjectConstraint.NOT_NULL));
+    store.save();
+    assertThat(MethodBehaviorStore.load(directory, "fingerprint", classLoader, classpath).get(HELLO_FOO)).isNotNull();
+    classLoader.close();
+
+    // the jar of the method is not modified, a jar of the methods it may invoke is
+    Files.write(calleeJar.toPath(), new byte[] {0}, StandardOpenOption.APPEND);
+    classLoader = new SquidClassLoader(classpath);
+    assertThat(MethodBehaviorStore.load(directory, "fingerprint", classLoader, classpath).get(HELLO_FOO)).isNull();
+    classLoader.close();
+  }
+
+  @Test
+  public void only_unused_entries_written_by_the_analyzer_are_deleted() throws Exception {
+    File baseDirectory = temp.newFolder();
+    File userFile = new File(baseDirectory, "pom.json");
+    assertThat(userFile.createNewFile()).isTrue();
+    SquidClassLoader classLoader = new SquidClassLoader(NO_LIBRARIES);
+    MethodBehaviorStore store = MethodBehaviorStore.load(baseDirectory, "fingerprint", classLoader, NO_LIBRARIES);
+    store.put(visitedBehavior(OBJECTS_FOO, ObjectConstraint.NOT_NULL));
+    store.save();
+    File storeDirectory = new File(baseDirectory, MethodBehaviorStore.OWNED_DIRECTORY);
+    File otherFile = new File(storeDirectory, "other.json");
+    assertThat(otherFile.createNewFile()).isTrue();
+    File unusedEntry = new File(storeDirectory, Strings.repeat("a", 64) + ".json");
+    assertThat(unusedEntry.createNewFile()).isTrue();
+    assertThat(unusedEntry.setLastModified(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(31))).isTrue();
+
+    assertThat(MethodBehaviorStore.load(baseDirectory, "fingerprint", classLoader, NO_LIBRARIES).get(OBJECTS_FOO)).isNotNull();
+    assertThat(unusedEntry).doesNotExist();
+    assertThat(otherFile).exists();
+    assertThat(userFile).exists();
+    assertThat(entries(baseDirectory)).hasSize(1);
+    classLoader.close();
+  }
+
+  @Test
+  public void directory_not_created_by_the_analyzer_is_not_used() throws Exception {
+    File baseDirectory = temp.newFolder();
+    assertThat(new File(baseDirectory, MethodBehaviorStore.OWNED_DIRECTORY).mkdir()).isTrue();
+    SquidClassLoader classLoader = new SquidClassLoader(NO_LIBRARIES);
+    MethodBehaviorStore store = MethodBehaviorStore.load(baseDirectory, "fingerprint", classLoader, NO_LIBRARIES);
+    store.put(visitedBehavior(OBJECTS_FOO, ObjectConstraint.NOT_NULL));
+    store.save();
+    assertThat(store.size()).isZero();
+    assertThat(new File(baseDirectory, MethodBehaviorStore.OWNED_DIRECTORY).list()).isEmpty();
+    classLoader.close();
+  }
+
+  @Test
+  public void behaviors_which_can_not_be_restored_or_not_from_libraries_are_not_stored() throws Exception {
+    File directory = temp.newFolder();
+    List<File> classpath = Collections.singletonList(new File("target/test-classes"));
+    SquidClassLoader classLoader = new SquidClassLoader(classpath);
+    MethodBehaviorStore store = MethodBehaviorStore.load(directory, "fingerprint", classLoader, classpath);
+    store.put(visitedBehavior(OBJECTS_FOO, new TypedConstraint("java.lang.String")));
+    store.put(new MethodBehavior("java.util.Objects#bar(Ljava/lang/Object;)V"));
+    store.put(visitedBehavior("A#foo(Ljava/lang/Object;)V", ObjectConstraint.NOT_NULL));
+    store.put(visitedBehavior(MethodBehaviorStoreTest.class.getName() + "#foo(Ljava/lang/Object;)V", ObjectConstraint.NOT_NULL));
+    store.save();
+
+    assertThat(store.size()).isZero();
+    assertThat(entries(directory)).isEmpty();
+    assertThat(store.get(OBJECTS_FOO)).isNull();
+    classLoader.close();
+  }
+
+  private static File[] entries(File baseDirectory) {
+    return new File(baseDirectory, MethodBehaviorStore.OWNED_DIRECTORY).listFiles((dir, name) -> name.matches("[0-9a-f]{64}\\.json"));
+  }
+
+  private static BehaviorCache behaviorCache(SquidClassLoader classLoader, MethodBehaviorStore store) {
+    BehaviorCache behaviorCache = new BehaviorCache(classLoader, false, store);
+    behaviorCache.setFileContext(null, SemanticModel.createFor((CompilationUnitTree) JavaParser.createParser().parse("class A {}"), classLoader));
+    return behaviorCache;
+  }
+
+  private static MethodBehavior visitedBehavior(String signature, Constraint constraint) {
+    MethodBehavior behavior = new MethodBehavior(signature);
+    HappyPathYield yield = new HappyPathYield(behavior);
+    yield.parametersConstraints.add(ConstraintsByDomain.empty().put(constraint));
+    behavior.yields.add(yield);
+    behavior.completed();
+    return behavior;
+  }
+}